@@ -0,0 +1,34 @@
+package com.trading212.api.controllers;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Answers requests that could not get a database connection in time, most
+ * often turned away by the concurrency limiter, with a 503 that tells the
+ * client when to come back instead of a 500.
+ */
+@RestControllerAdvice
+public class DatabaseBusyHandler {
+    private final String retryAfterSeconds;
+
+    public DatabaseBusyHandler(@Value("${db.concurrency.retry-after:1s}") Duration retryAfter) {
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @ExceptionHandler({ CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class })
+    public ResponseEntity<?> databaseBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .body(Map.of("error", "Service is busy, please retry"));
+    }
+}
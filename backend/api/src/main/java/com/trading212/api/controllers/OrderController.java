@@ -0,0 +1,89 @@
+package com.trading212.api.controllers;
+
+import com.trading212.api.orders.RestingOrder;
+import com.trading212.api.orders.RestingOrderBook;
+import com.trading212.api.prices.PriceBook;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@ConditionalOnExpression("'${trade.execution:sql}' != 'memory'")
+@CrossOrigin(origins = "*")
+@RequestMapping("/api/v1/users/{userId}/orders")
+public class OrderController {
+    private static final Set<String> STATUSES = Set.of("OPEN", "FILLED", "REJECTED", "CANCELLED");
+
+    private final RestingOrderBook restingOrderBook;
+    private final PriceBook priceBook;
+
+    public OrderController(RestingOrderBook restingOrderBook, PriceBook priceBook) {
+        this.restingOrderBook = restingOrderBook;
+        this.priceBook = priceBook;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> placeOrder(@PathVariable Integer userId, @RequestBody Map<String, Object> body) {
+        // Expecting JSON like: { "symbol": "BTC/USD", "side": "BUY", "type": "LIMIT", "quantity": 0.1, "triggerPrice": 60000 }
+        Object symbol = body.get("symbol");
+        Object side = body.get("side");
+        Object type = body.get("type");
+        Object quantity = body.get("quantity");
+        Object triggerPrice = body.get("triggerPrice");
+        if (symbol == null || side == null || type == null || quantity == null || triggerPrice == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Missing required fields"));
+        }
+
+        RestingOrder.Side orderSide;
+        RestingOrder.Type orderType;
+        try {
+            orderSide = RestingOrder.Side.valueOf(side.toString());
+            orderType = RestingOrder.Type.valueOf(type.toString());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Side must be BUY or SELL and type LIMIT or STOP"));
+        }
+        BigDecimal orderQuantity;
+        BigDecimal orderTrigger;
+        try {
+            orderQuantity = new BigDecimal(quantity.toString());
+            orderTrigger = new BigDecimal(triggerPrice.toString());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Quantity and trigger price must be numbers"));
+        }
+        if (orderQuantity.signum() <= 0 || orderTrigger.signum() <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Quantity and trigger price must be positive"));
+        }
+        // Only symbols with a known price can be watched
+        if (priceBook.get(symbol.toString()) == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Price not available for symbol"));
+        }
+
+        try {
+            return ResponseEntity.ok(restingOrderBook.place(userId, symbol.toString(), orderSide, orderType,
+                    orderQuantity, orderTrigger));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown user"));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> listOrders(@PathVariable Integer userId, @RequestParam(required = false) String status) {
+        if (status != null && !STATUSES.contains(status)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Status must be one of " + STATUSES));
+        }
+        return ResponseEntity.ok(restingOrderBook.list(userId, status));
+    }
+
+    @DeleteMapping("/{orderId}")
+    public ResponseEntity<?> cancelOrder(@PathVariable Integer userId, @PathVariable Integer orderId) {
+        if (!restingOrderBook.cancel(userId, orderId)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No open order with this id"));
+        }
+        return ResponseEntity.ok(restingOrderBook.find(userId, orderId));
+    }
+}
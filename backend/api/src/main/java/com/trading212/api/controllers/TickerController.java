@@ -1,35 +1,86 @@
 package com.trading212.api.controllers;
 
-import java.util.Collections;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.api.prices.CandleHistory;
+import com.trading212.api.prices.TickerSnapshot;
+import com.trading212.common.model.CandleInterval;
 
 @RestController
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "ETag")
 @RequestMapping("/api/v1/tickers")
 class TickerController {
-	private final RedisTemplate<String, Ticker> simpleRedisTemplate;
+	private static final int DEFAULT_CANDLES = 500;
+	private static final int MAX_CANDLES = 1500;
 
-	public TickerController(
-			RedisTemplate<String, Ticker> simpleRedisTemplate) {
-		this.simpleRedisTemplate = simpleRedisTemplate;
+	private final TickerSnapshot tickerSnapshot;
+	private final CandleHistory candleHistory;
+
+	public TickerController(TickerSnapshot tickerSnapshot, CandleHistory candleHistory) {
+		this.tickerSnapshot = tickerSnapshot;
+		this.candleHistory = candleHistory;
 	}
 
 	@GetMapping
-	public Map<String, Ticker> getCryptoPrices() {
-		return Optional.ofNullable(simpleRedisTemplate.opsForValue()
-				.multiGet(simpleRedisTemplate.keys("*")))
-				.orElse(Collections.emptyList())
-				.stream()
-				.collect(Collectors.toMap(Ticker::symbol, ticker -> ticker));
+	public ResponseEntity<byte[]> getCryptoPrices(WebRequest request) {
+		TickerSnapshot.Encoded snapshot = tickerSnapshot.get();
+		if (request.checkNotModified(snapshot.etag())) {
+			return null;
+		}
+		return ResponseEntity.ok()
+				.eTag(snapshot.etag())
+				.cacheControl(CacheControl.noCache())
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(snapshot.json());
+	}
+
+	// Symbols contain a slash, so they are accepted either as two path segments
+	// (/tickers/BTC/USD/candles) or with a dash (/tickers/BTC-USD/candles).
+	@GetMapping("/{base}/{quote}/candles")
+	public ResponseEntity<?> getCandles(@PathVariable String base, @PathVariable String quote,
+			@RequestParam(defaultValue = "1m") String interval,
+			@RequestParam(required = false) Long from,
+			@RequestParam(required = false) Long to,
+			@RequestParam(defaultValue = "" + DEFAULT_CANDLES) int limit) {
+		return candles(base + "/" + quote, interval, from, to, limit);
+	}
+
+	@GetMapping("/{symbol}/candles")
+	public ResponseEntity<?> getCandles(@PathVariable String symbol,
+			@RequestParam(defaultValue = "1m") String interval,
+			@RequestParam(required = false) Long from,
+			@RequestParam(required = false) Long to,
+			@RequestParam(defaultValue = "" + DEFAULT_CANDLES) int limit) {
+		return candles(symbol.replace('-', '/'), interval, from, to, limit);
+	}
+
+	private ResponseEntity<?> candles(String symbol, String intervalLabel, Long from, Long to, int limit) {
+		CandleInterval interval;
+		try {
+			interval = CandleInterval.fromLabel(intervalLabel);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(Map.of("error", "Interval must be one of 1s, 1m, 5m, 1h"));
+		}
+		if (limit < 1 || limit > MAX_CANDLES) {
+			return ResponseEntity.badRequest().body(Map.of("error", "Limit must be between 1 and " + MAX_CANDLES));
+		}
+		// from and to are epoch millis; by default the latest bars up to now
+		long end = to != null ? to : System.currentTimeMillis();
+		long start = from != null ? from : end - interval.millis() * limit;
+		if (start > end) {
+			return ResponseEntity.badRequest().body(Map.of("error", "from must not be after to"));
+		}
+		return ResponseEntity.ok(candleHistory.range(symbol, interval, start, end, limit));
 	}
 }
@@ -1,21 +1,52 @@
 package com.trading212.api.controllers;
 
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.trading212.api.portfolio.PortfolioTracker;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.trade.AccountCache;
+import com.trading212.api.trade.AccountView;
+import com.trading212.api.trade.TradeExecutor;
+import com.trading212.api.trade.TransactionHistory;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = UserController.NEXT_CURSOR_HEADER)
 @RequestMapping("/api/v1/users")
 public class UserController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_HISTORY_PAGE = 1000;
+
     private final JdbcTemplate jdbc;
+    private final PriceBook priceBook;
+    private final TransactionHistory transactionHistory;
+    private final TradeExecutor tradeExecutor;
+    private final PortfolioTracker portfolioTracker;
+    private final AccountCache accountCache;
 
-    public UserController(JdbcTemplate jdbc) {
+    public UserController(JdbcTemplate jdbc, PriceBook priceBook, TransactionHistory transactionHistory,
+            TradeExecutor tradeExecutor, PortfolioTracker portfolioTracker, AccountCache accountCache) {
         this.jdbc = jdbc;
+        this.priceBook = priceBook;
+        this.transactionHistory = transactionHistory;
+        this.tradeExecutor = tradeExecutor;
+        this.portfolioTracker = portfolioTracker;
+        this.accountCache = accountCache;
     }
 
     @PostMapping
@@ -45,38 +76,133 @@ public class UserController {
     }
 
     @GetMapping("/{userId}/history")
-    public ResponseEntity<?> getTransactionHistory(@PathVariable Integer userId) {
-        var transactions = jdbc.queryForList("""
-                    SELECT symbol, type, quantity, price, total, balance_after, profit_loss, created_at
-                    FROM transactions
-                    WHERE user_id = ?
-                    ORDER BY created_at DESC
-                """, userId);
-        return ResponseEntity.ok(transactions);
+    public ResponseEntity<?> getTransactionHistory(@PathVariable Integer userId,
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_PAGE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit must be between 1 and " + MAX_HISTORY_PAGE));
+        }
+        if (type != null && !type.equals("BUY") && !type.equals("SELL")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Type must be BUY or SELL"));
+        }
+        TransactionHistory.Cursor after;
+        try {
+            after = cursor == null ? null : TransactionHistory.Cursor.parse(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        // Newest first; the body stays a plain array and the next page is announced in a header
+        var page = transactionHistory.page(
+                new TransactionHistory.Filter(userId, symbol, type, from, to), after, limit);
+        var response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return response.body(page.rows());
+    }
+
+    @GetMapping("/{userId}/history/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactionHistory(@PathVariable Integer userId,
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (type != null && !type.equals("BUY") && !type.equals("SELL")) {
+            // Streaming endpoints can only return a body writer, so the usual error map is written by hand
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write("{\"error\":\"Type must be BUY or SELL\"}".getBytes(StandardCharsets.UTF_8)));
+        }
+        var filter = new TransactionHistory.Filter(userId, symbol, type, from, to);
+        StreamingResponseBody body = out -> transactionHistory.exportCsv(filter, out);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions-" + userId + ".csv\"")
+                .body(body);
     }
 
     @GetMapping("/{userId}/balance")
     public ResponseEntity<?> getBalance(@PathVariable Integer userId) {
-        BigDecimal balance = jdbc.queryForObject(
-                "SELECT balance FROM account_balance WHERE user_id = ?", BigDecimal.class, userId);
-        return ResponseEntity.ok(Map.of("balance", balance));
+        // Balances and holdings come from the trade executor, which may be ahead of the database;
+        // they are cached until a trade or reset changes them
+        AccountView account = accountCache.get(userId);
+        if (account == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Account balance not found for user"));
+        }
+        return ResponseEntity.ok(Map.of("balance", account.balance()));
     }
 
     @PostMapping("/{userId}/reset")
     public ResponseEntity<?> resetAccount(@PathVariable Integer userId) {
-        // Reset balance to $10,000
-        jdbc.update("UPDATE account_balance SET balance = 10000.00, updated_at = NOW() WHERE user_id = ?", userId);
-        // Clear holdings
-        jdbc.update("DELETE FROM holdings WHERE user_id = ?", userId);
-        // Optionally, clear transactions:
-        // jdbc.update("DELETE FROM transactions WHERE user_id = ?", userId);
+        // Reset balance to $10,000 and clear holdings; transactions are kept
+        tradeExecutor.reset(userId);
+        accountCache.invalidate(userId);
+        portfolioTracker.refresh(userId);
         return ResponseEntity.ok(Map.of("message", "Account reset", "balance", 10000.00));
     }
 
     @GetMapping("/{userId}/holdings")
     public ResponseEntity<?> getHoldings(@PathVariable Integer userId) {
-        var holdings = jdbc.queryForList(
-            "SELECT symbol, amount FROM holdings WHERE user_id = ? AND amount > 0 ORDER BY symbol", userId);
+        List<Map<String, Object>> holdings = new ArrayList<>();
+        for (AccountView.Position position : positions(userId)) {
+            holdings.add(Map.of("symbol", position.symbol(), "amount", position.amount()));
+        }
         return ResponseEntity.ok(holdings);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{userId}/pnl")
+    public ResponseEntity<?> getUnrealizedPnl(@PathVariable Integer userId) {
+        // Same cost basis the sells realize against, valued at the current bid
+        List<Map<String, Object>> positions = new ArrayList<>();
+        BigDecimal totalCost = BigDecimal.ZERO;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal totalPnl = BigDecimal.ZERO;
+        for (AccountView.Position holding : positions(userId)) {
+            String symbol = holding.symbol();
+            BigDecimal amount = holding.amount();
+            BigDecimal costBasis = holding.costBasis();
+
+            Map<String, Object> position = new LinkedHashMap<>();
+            position.put("symbol", symbol);
+            position.put("amount", amount);
+            position.put("cost_basis", costBasis);
+            position.put("avg_cost", costBasis.divide(amount, 12, RoundingMode.HALF_UP));
+            totalCost = totalCost.add(costBasis);
+
+            // Positions without a price are listed but left out of the totals' market value
+            PriceBook.Quote quote = priceBook.get(symbol);
+            BigDecimal price = quote == null ? null : quote.ticker().bid();
+            if (price != null) {
+                BigDecimal marketValue = amount.multiply(price);
+                BigDecimal pnl = marketValue.subtract(costBasis);
+                position.put("price", price);
+                position.put("market_value", marketValue);
+                position.put("unrealized_pl", pnl);
+                totalValue = totalValue.add(marketValue);
+                totalPnl = totalPnl.add(pnl);
+            } else {
+                position.put("price", null);
+                position.put("market_value", null);
+                position.put("unrealized_pl", null);
+            }
+            positions.add(position);
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("positions", positions);
+        body.put("total_cost_basis", totalCost);
+        body.put("total_market_value", totalValue);
+        body.put("total_unrealized_pl", totalPnl);
+        return ResponseEntity.ok(body);
+    }
+
+    private List<AccountView.Position> positions(int userId) {
+        AccountView account = accountCache.get(userId);
+        return account == null ? List.of() : account.positions();
+    }
+}
@@ -0,0 +1,156 @@
+package com.trading212.api.db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Lets at most {@code limit} connections be out at a time, handed out in
+ * arrival order, and turns callers away quickly once the database is
+ * saturated instead of letting them pile up behind the pool. A caller that
+ * cannot get a permit straight away is rejected at once if the queue ahead of
+ * it is expected to take longer than the latency budget to clear, and
+ * otherwise waits at most that budget. Rejections are thrown as
+ * {@link DatabaseBusyException}.
+ *
+ * The expected wait comes from a moving average of how long connections are
+ * held, so it only stays meaningful while everything behind the limiter holds
+ * connections for about as long as a request; long holders such as history
+ * exports and the trade writers use a {@link DedicatedPool} instead. A permit
+ * is returned when its connection is closed.
+ *
+ * Background work that is short but must not fail because requests saturate
+ * the limit, such as loading an account, runs inside {@link #queueing}: its
+ * connections wait in line for a permit for as long as it takes.
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+  private static final ThreadLocal<Boolean> QUEUEING = new ThreadLocal<>();
+
+  private final Semaphore permits;
+  private final int limit;
+  private final long maxWaitNanos;
+  private final Timer waits;
+  private final Counter rejections;
+  // Updated without synchronization; a lost sample only makes the estimate lag
+  private volatile long averageHoldNanos;
+
+  public ConcurrencyLimitedDataSource(DataSource target, int limit, Duration maxWait, MeterRegistry meterRegistry) {
+    super(target);
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Database concurrency limit must be positive: " + limit);
+    }
+    this.permits = new Semaphore(limit, true);
+    this.limit = limit;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.waits = Timer.builder("db.limiter.wait").publishPercentileHistogram().register(meterRegistry);
+    this.rejections = Counter.builder("db.limiter.rejections").register(meterRegistry);
+    Gauge.builder("db.limiter.in-use", permits, p -> limit - p.availablePermits()).register(meterRegistry);
+    Gauge.builder("db.limiter.waiting", permits, Semaphore::getQueueLength).register(meterRegistry);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    acquire();
+    return limited(() -> super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    acquire();
+    return limited(() -> super.getConnection(username, password));
+  }
+
+  /** Runs the work on this thread with connections that queue for a permit instead of being turned away. */
+  public static <T> T queueing(Supplier<T> work) {
+    if (Boolean.TRUE.equals(QUEUEING.get())) {
+      return work.get();
+    }
+    QUEUEING.set(Boolean.TRUE);
+    try {
+      return work.get();
+    } finally {
+      QUEUEING.remove();
+    }
+  }
+
+  private interface ConnectionSource {
+    Connection get() throws SQLException;
+  }
+
+  private void acquire() throws SQLException {
+    long start = System.nanoTime();
+    try {
+      // The timed form honours fairness, so nobody barges past the queue
+      if (!permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+        if (Boolean.TRUE.equals(QUEUEING.get())) {
+          permits.acquire();
+          return;
+        }
+        long expectedWait = (permits.getQueueLength() + 1) * averageHoldNanos / limit;
+        if (expectedWait > maxWaitNanos || !permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+          rejections.increment();
+          throw new DatabaseBusyException(limit);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a database connection", e);
+    } finally {
+      waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private Connection limited(ConnectionSource source) throws SQLException {
+    Connection connection;
+    try {
+      connection = source.get();
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+    long acquiredAt = System.nanoTime();
+    AtomicBoolean released = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "equals":
+              return proxy == args[0];
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "close":
+              if (released.compareAndSet(false, true)) {
+                averageHoldNanos += (System.nanoTime() - acquiredAt - averageHoldNanos) / 8;
+                try {
+                  connection.close();
+                } finally {
+                  permits.release();
+                }
+              }
+              return null;
+            default:
+              break;
+          }
+          try {
+            return method.invoke(connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+  }
+}
@@ -0,0 +1,101 @@
+package com.trading212.api.db;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class DataSourceConfig {
+
+  private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+  /**
+   * Puts the connection pool behind a {@link ConcurrencyLimitedDataSource},
+   * so everything that talks to Postgres for a request, transactions
+   * included, shares one limit. By default the limit is the pool size. The
+   * trade writers, history exports and triggered orders use the
+   * {@link DedicatedPool}s below; short background work that shares the pool
+   * queues for its permits instead of being shed, see
+   * {@link ConcurrencyLimitedDataSource#queueing}.
+   */
+  @Bean
+  static BeanPostProcessor concurrencyLimitedDataSource(Environment environment,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+          return bean;
+        }
+        int limit = environment.getProperty("db.concurrency.limit", Integer.class, 0);
+        if (limit == 0) {
+          limit = poolSize(dataSource);
+        }
+        Duration maxWait = environment.getProperty("db.concurrency.max-wait", Duration.class,
+            Duration.ofMillis(250));
+        return new ConcurrencyLimitedDataSource(dataSource, limit, maxWait, meterRegistry.getObject());
+      }
+    };
+  }
+
+  /**
+   * For the group commit writer, the write-behind journal and the account
+   * engine's lock, which hold a connection for a whole batch or for as long as
+   * the node runs.
+   */
+  @Bean
+  DedicatedPool writerPool(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry,
+      @Value("${db.writers.pool-size:2}") int poolSize) {
+    return dedicatedPool("writers", poolSize, properties, environment, meterRegistry);
+  }
+
+  /** For history exports, which stream rows for as long as the client keeps reading. */
+  @Bean
+  DedicatedPool exportPool(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry,
+      @Value("${history.export.pool-size:2}") int poolSize) {
+    return dedicatedPool("exports", poolSize, properties, environment, meterRegistry);
+  }
+
+  /** For triggered resting orders, which must not be turned away when requests saturate the limit. */
+  @Bean
+  DedicatedPool triggerPool(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry,
+      @Value("${orders.trigger.pool-size:1}") int poolSize) {
+    return dedicatedPool("order-triggers", poolSize, properties, environment, meterRegistry);
+  }
+
+  private static DedicatedPool dedicatedPool(String name, int poolSize, DataSourceProperties properties,
+      Environment environment, MeterRegistry meterRegistry) {
+    HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    // The main pool's settings, such as the driver properties, then this pool's own size
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+    pool.setPoolName(name);
+    pool.setMaximumPoolSize(poolSize);
+    // Connections are only opened once something uses the pool
+    pool.setMinimumIdle(0);
+    pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    return new DedicatedPool(pool);
+  }
+
+  private static int poolSize(DataSource dataSource) {
+    if (!(dataSource instanceof HikariDataSource hikari)) {
+      throw new IllegalStateException("db.concurrency.limit must be set for a " + dataSource.getClass().getName());
+    }
+    // Hikari only fills in its default when the pool starts
+    return hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+  }
+}
@@ -0,0 +1,11 @@
+package com.trading212.api.db;
+
+import java.sql.SQLTransientConnectionException;
+
+/** No database connection could be had within the latency budget. */
+public class DatabaseBusyException extends SQLTransientConnectionException {
+
+  public DatabaseBusyException(int limit) {
+    super("All " + limit + " database connections are busy");
+  }
+}
@@ -0,0 +1,52 @@
+package com.trading212.api.db;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * A connection pool of its own, outside the {@link ConcurrencyLimitedDataSource},
+ * for work that holds connections far longer than a request: its holds neither
+ * use up the permits requests need nor inflate the limiter's estimate of how
+ * long a permit is held. Deliberately not a {@link DataSource} bean, so Spring
+ * Boot still creates the main pool and wraps it in the limiter.
+ */
+public final class DedicatedPool implements AutoCloseable {
+
+  private final HikariDataSource dataSource;
+  private final NamedParameterJdbcTemplate jdbc;
+  private final PlatformTransactionManager transactionManager;
+
+  DedicatedPool(HikariDataSource dataSource) {
+    this.dataSource = dataSource;
+    this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+    this.transactionManager = new DataSourceTransactionManager(dataSource);
+  }
+
+  public DataSource dataSource() {
+    return dataSource;
+  }
+
+  public JdbcTemplate jdbc() {
+    return jdbc.getJdbcTemplate();
+  }
+
+  public NamedParameterJdbcTemplate namedJdbc() {
+    return jdbc;
+  }
+
+  /** Manages transactions on this pool's connections only. */
+  public PlatformTransactionManager transactionManager() {
+    return transactionManager;
+  }
+
+  @Override
+  public void close() {
+    dataSource.close();
+  }
+}
@@ -0,0 +1,31 @@
+package com.trading212.api.orders;
+
+import java.math.BigDecimal;
+
+/**
+ * An open limit or stop order. Buys trigger on the ask and fill at it, sells
+ * trigger on the bid and fill at it:
+ *
+ * <pre>
+ * BUY  LIMIT  ask <= trigger   buy once it is cheap enough
+ * BUY  STOP   ask >= trigger   buy once it breaks out upwards
+ * SELL LIMIT  bid >= trigger   take profit
+ * SELL STOP   bid <= trigger   stop loss
+ * </pre>
+ */
+public record RestingOrder(int id, int userId, String symbol, Side side, Type type, BigDecimal quantity,
+    BigDecimal triggerPrice) {
+
+  public enum Side {
+    BUY, SELL
+  }
+
+  public enum Type {
+    LIMIT, STOP
+  }
+
+  /** Whether the order fires once the price has fallen to its trigger, rather than risen to it. */
+  boolean triggersOnFall() {
+    return (side == Side.BUY) == (type == Type.LIMIT);
+  }
+}
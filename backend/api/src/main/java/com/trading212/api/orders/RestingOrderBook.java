@@ -0,0 +1,330 @@
+package com.trading212.api.orders;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.trading212.api.db.DedicatedPool;
+import com.trading212.api.portfolio.PortfolioTracker;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.api.trade.AccountCache;
+import com.trading212.api.trade.SqlTradeExecutor;
+import com.trading212.api.trade.TradeExecutor;
+import com.trading212.api.trade.TradeResult;
+import com.trading212.common.redis.RedisKeys;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Limit and stop orders waiting for their price. Every order is a row in
+ * {@code orders}; the open ones are also held in a {@link TriggerBook} per
+ * symbol, rebuilt from the table at startup, which each tick consults.
+ *
+ * Triggered orders run as market orders on a dedicated thread, at the bid or
+ * ask of the tick that crossed them, so the Redis listener never waits on the
+ * database. Stale quotes trigger nothing, by the same rule as market orders.
+ * Funds and holdings are not reserved while an order rests; an order that
+ * cannot be filled when it triggers is rejected with the executor's reason.
+ * Symbols with resting orders are registered with {@link TickerDemand} so
+ * their ticks keep coming.
+ *
+ * Every api node restores every open order, so the row decides who fills it:
+ * a triggered order is first claimed with a conditional update, in the same
+ * transaction as the trade, and only the node whose claim matched trades. A
+ * claim that matches nothing means another node, or a cancel, got there first.
+ * The trade runs as the {@link SqlTradeExecutor}'s statements on the trigger
+ * pool, whatever {@code trade.execution} is, so the claim and the trade always
+ * commit or roll back together, and a load spike on the request limiter never
+ * sheds them. {@code group-commit} runs the same statements, so the two mix;
+ * {@code memory} keeps accounts in process, where no transaction can reach,
+ * and has no resting orders. An order whose transaction failed on a database
+ * blip rests again and retries on the next tick that crosses it. Orders that
+ * stop resting are published on {@link RedisKeys#ORDER_CLOSURES} so the other
+ * nodes drop them too; one they miss is dropped when its claim fails.
+ */
+@Component
+@ConditionalOnExpression("'${trade.execution:sql}' != 'memory'")
+public class RestingOrderBook implements MessageListener {
+
+  private static final Logger log = LoggerFactory.getLogger(RestingOrderBook.class);
+
+  private static final String COLUMNS =
+      "id, symbol, side, type, quantity, trigger_price, status, fill_price, reason, created_at, updated_at";
+
+  private final Map<String, TriggerBook> books = new ConcurrentHashMap<>();
+  private final Map<Integer, RestingOrder> open = new ConcurrentHashMap<>();
+  private final NamedParameterJdbcTemplate jdbc;
+  // Triggered orders claim and trade on their own pool, outside the request limiter
+  private final NamedParameterJdbcTemplate triggerJdbc;
+  private final TradeExecutor tradeExecutor;
+  private final PriceBook priceBook;
+  private final TickerDemand tickerDemand;
+  private final PortfolioTracker portfolioTracker;
+  private final AccountCache accountCache;
+  private final TransactionTemplate transactions;
+  private final StringRedisTemplate stringRedisTemplate;
+  // Tells this node's own closures apart when they come back from Redis
+  private final String node = UUID.randomUUID().toString().substring(0, 8);
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(
+      Thread.ofPlatform().name("order-trigger").daemon().factory());
+  private final Counter filled;
+  private final Counter rejected;
+  private final Counter retried;
+
+  public RestingOrderBook(NamedParameterJdbcTemplate jdbc, @Qualifier("triggerPool") DedicatedPool triggerPool,
+      PriceBook priceBook, TickerDemand tickerDemand, PortfolioTracker portfolioTracker, AccountCache accountCache,
+      StringRedisTemplate stringRedisTemplate, RedisMessageListenerContainer container,
+      MeterRegistry meterRegistry) {
+    this.jdbc = jdbc;
+    this.triggerJdbc = triggerPool.namedJdbc();
+    this.tradeExecutor = new SqlTradeExecutor(triggerJdbc, meterRegistry);
+    this.priceBook = priceBook;
+    this.tickerDemand = tickerDemand;
+    this.portfolioTracker = portfolioTracker;
+    this.accountCache = accountCache;
+    this.transactions = new TransactionTemplate(triggerPool.transactionManager());
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.filled = Counter.builder("orders.triggered").tag("result", "filled").register(meterRegistry);
+    this.rejected = Counter.builder("orders.triggered").tag("result", "rejected").register(meterRegistry);
+    this.retried = Counter.builder("orders.triggered").tag("result", "retried").register(meterRegistry);
+    Gauge.builder("orders.resting", open, Map::size).register(meterRegistry);
+    container.addMessageListener(this, new ChannelTopic(RedisKeys.ORDER_CLOSURES));
+    recover();
+  }
+
+  private void recover() {
+    jdbc.query("SELECT id, user_id, symbol, side, type, quantity, trigger_price FROM orders WHERE status = 'OPEN'",
+        rs -> {
+          rest(new RestingOrder(rs.getInt("id"), rs.getInt("user_id"), rs.getString("symbol"),
+              RestingOrder.Side.valueOf(rs.getString("side")), RestingOrder.Type.valueOf(rs.getString("type")),
+              rs.getBigDecimal("quantity"), rs.getBigDecimal("trigger_price")));
+        });
+    log.info("Restored {} resting orders", open.size());
+  }
+
+  /** Persists and indexes a new order; one the current quote already crosses fires straight away. */
+  public Map<String, Object> place(int userId, String symbol, RestingOrder.Side side, RestingOrder.Type type,
+      BigDecimal quantity, BigDecimal triggerPrice) {
+    Integer id = jdbc.queryForObject("""
+        INSERT INTO orders (user_id, symbol, side, type, quantity, trigger_price)
+        VALUES (:userId, :symbol, :side, :type, :quantity, :triggerPrice)
+        RETURNING id
+        """, new MapSqlParameterSource()
+        .addValue("userId", userId)
+        .addValue("symbol", symbol)
+        .addValue("side", side.name())
+        .addValue("type", type.name())
+        .addValue("quantity", quantity)
+        .addValue("triggerPrice", triggerPrice), Integer.class);
+    rest(new RestingOrder(id, userId, symbol, side, type, quantity, triggerPrice));
+    onPrice(symbol);
+    return find(userId, id);
+  }
+
+  /**
+   * Returns {@code false} if the user has no such open order, e.g. because it
+   * already triggered here or on another node.
+   */
+  public boolean cancel(int userId, int orderId) {
+    int cancelled = jdbc.update("""
+        UPDATE orders SET status = 'CANCELLED', updated_at = NOW()
+        WHERE id = :id AND user_id = :userId AND status = 'OPEN'
+        """, Map.of("id", orderId, "userId", userId));
+    if (cancelled == 0) {
+      return false;
+    }
+    drop(orderId);
+    publishClosure(orderId);
+    return true;
+  }
+
+  /** The user's orders, newest first, optionally only those with the given status. */
+  public List<Map<String, Object>> list(int userId, String status) {
+    MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+    String sql = "SELECT " + COLUMNS + " FROM orders WHERE user_id = :userId";
+    if (status != null) {
+      sql += " AND status = :status";
+      params.addValue("status", status);
+    }
+    return jdbc.queryForList(sql + " ORDER BY id DESC", params);
+  }
+
+  public Map<String, Object> find(int userId, int orderId) {
+    return jdbc.queryForMap("SELECT " + COLUMNS + " FROM orders WHERE id = :id AND user_id = :userId",
+        Map.of("id", orderId, "userId", userId));
+  }
+
+  /** Called for every tick; costs a map lookup for symbols without resting orders. */
+  public void onPrice(String symbol) {
+    TriggerBook book = books.get(symbol);
+    if (book == null || book.isEmpty()) {
+      return;
+    }
+    PriceBook.Quote quote = priceBook.get(symbol);
+    if (quote == null || priceBook.isStale(quote)) {
+      return;
+    }
+    BigDecimal bid = quote.ticker().bid();
+    BigDecimal ask = quote.ticker().ask();
+    book.trigger(bid, ask, order -> executor.execute(
+        () -> execute(order, order.side() == RestingOrder.Side.BUY ? ask : bid)));
+  }
+
+  private void rest(RestingOrder order) {
+    open.put(order.id(), order);
+    books.computeIfAbsent(order.symbol(), _ -> new TriggerBook()).add(order);
+    reconcileDemand(order.symbol());
+  }
+
+  private void reconcileDemand(String symbol) {
+    tickerDemand.reconcile(TickerDemand.Source.ORDERS, symbol, () -> !books.get(symbol).isEmpty());
+  }
+
+  /** Forgets an order that stopped resting; a no-op if this node does not hold it. */
+  private void drop(int orderId) {
+    RestingOrder order = open.remove(orderId);
+    if (order != null && books.get(order.symbol()).remove(order)) {
+      reconcileDemand(order.symbol());
+    }
+  }
+
+  private void publishClosure(int orderId) {
+    try {
+      stringRedisTemplate.convertAndSend(RedisKeys.ORDER_CLOSURES, node + ":" + orderId);
+    } catch (Exception e) {
+      log.warn("Could not publish the closure of order {}: {}", orderId, e.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(@NonNull Message message, @Nullable byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    int separator = body.indexOf(':');
+    if (separator < 0 || body.substring(0, separator).equals(node)) {
+      return;
+    }
+    try {
+      drop(Integer.parseInt(body.substring(separator + 1)));
+    } catch (NumberFormatException e) {
+      log.warn("Ignored malformed order closure: {}", body);
+    }
+  }
+
+  private void execute(RestingOrder order, BigDecimal price) {
+    open.remove(order.id());
+    // Released here rather than in onPrice, which runs on the Redis listener thread
+    reconcileDemand(order.symbol());
+    TradeResult result;
+    try {
+      result = transactions.execute(_ -> claimAndTrade(order, price));
+    } catch (RuntimeException e) {
+      // The transaction rolled back, claim included, so the order is still open unless a cancel won since.
+      // Should the commit itself have gone through, the retry's claim matches nothing and drops the order.
+      if (isTransient(e)) {
+        log.warn("Triggered order {} could not run, resting it again: {}", order.id(), e.getMessage());
+        retried.increment();
+        rest(order);
+        return;
+      }
+      log.warn("Triggered order {} failed: {}", order.id(), e.getMessage());
+      result = TradeResult.rejected("Execution failed");
+      if (!reject(order, result.error())) {
+        return;
+      }
+    }
+    if (result == null) {
+      log.debug("Order {} was claimed elsewhere", order.id());
+      return;
+    }
+    publishClosure(order.id());
+    if (result.isFilled()) {
+      filled.increment();
+      accountCache.invalidate(order.userId());
+      portfolioTracker.refresh(order.userId());
+    } else {
+      rejected.increment();
+    }
+  }
+
+  /**
+   * Rejects an order whose execution failed for good; {@code false} if it was
+   * no longer open, or could not be rejected and rests again instead.
+   */
+  private boolean reject(RestingOrder order, String reason) {
+    try {
+      return triggerJdbc.update("""
+          UPDATE orders SET status = 'REJECTED', reason = :reason, updated_at = NOW()
+          WHERE id = :id AND status = 'OPEN'
+          """, Map.of("id", order.id(), "reason", reason)) > 0;
+    } catch (RuntimeException e) {
+      // Still open in the table, so it must not vanish from the book
+      log.error("Could not reject order {}, resting it again: {}", order.id(), e.getMessage());
+      rest(order);
+      return false;
+    }
+  }
+
+  /** Failures that say nothing about the order, so it may run again once the database answers. */
+  private static boolean isTransient(RuntimeException e) {
+    return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+        || e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException
+        || e instanceof TransactionSystemException;
+  }
+
+  /** Claims and trades the order in the caller's transaction; {@code null} if it was no longer open. */
+  private TradeResult claimAndTrade(RestingOrder order, BigDecimal price) {
+    int claimed = triggerJdbc.update("""
+        UPDATE orders SET status = 'FILLED', updated_at = NOW()
+        WHERE id = :id AND status = 'OPEN'
+        """, Map.of("id", order.id()));
+    if (claimed == 0) {
+      return null;
+    }
+    TradeResult result = order.side() == RestingOrder.Side.BUY
+        ? tradeExecutor.buy(order.userId(), order.symbol(), order.quantity(), price)
+        : tradeExecutor.sell(order.userId(), order.symbol(), order.quantity(), price);
+    if (result.isFilled()) {
+      triggerJdbc.update("UPDATE orders SET fill_price = :price WHERE id = :id",
+          Map.of("id", order.id(), "price", result.price()));
+    } else {
+      triggerJdbc.update("UPDATE orders SET status = 'REJECTED', reason = :reason WHERE id = :id",
+          Map.of("id", order.id(), "reason", result.error()));
+    }
+    return result;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
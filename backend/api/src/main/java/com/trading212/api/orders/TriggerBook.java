@@ -0,0 +1,95 @@
+package com.trading212.api.orders;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * The open orders of one symbol, sorted by trigger price. Orders are split by
+ * the side of the quote they watch and the direction they fire in, so the
+ * triggered orders of each book are always one contiguous end of it and a
+ * tick costs a range lookup plus one removal per triggered order, however
+ * many orders are resting.
+ *
+ * Removal is the claim: an order leaves the book exactly once, either
+ * through {@link #trigger} or {@link #remove}, so it can never be both
+ * executed and cancelled.
+ */
+final class TriggerBook {
+
+  private record Key(BigDecimal trigger, int id) implements Comparable<Key> {
+    @Override
+    public int compareTo(Key other) {
+      int byTrigger = trigger.compareTo(other.trigger);
+      return byTrigger != 0 ? byTrigger : Integer.compare(id, other.id);
+    }
+  }
+
+  // Fire once the ask falls to / rises to the trigger
+  private final ConcurrentSkipListMap<Key, RestingOrder> askFalls = new ConcurrentSkipListMap<>();
+  private final ConcurrentSkipListMap<Key, RestingOrder> askRises = new ConcurrentSkipListMap<>();
+  // Fire once the bid falls to / rises to the trigger
+  private final ConcurrentSkipListMap<Key, RestingOrder> bidFalls = new ConcurrentSkipListMap<>();
+  private final ConcurrentSkipListMap<Key, RestingOrder> bidRises = new ConcurrentSkipListMap<>();
+
+  void add(RestingOrder order) {
+    book(order).put(key(order), order);
+  }
+
+  /** Returns whether the order was still resting, i.e. this call claimed it. */
+  boolean remove(RestingOrder order) {
+    return book(order).remove(key(order)) != null;
+  }
+
+  boolean isEmpty() {
+    return askFalls.isEmpty() && askRises.isEmpty() && bidFalls.isEmpty() && bidRises.isEmpty();
+  }
+
+  int size() {
+    return askFalls.size() + askRises.size() + bidFalls.size() + bidRises.size();
+  }
+
+  /** Removes every order crossed by the quote and hands it to {@code triggered}; null sides are skipped. */
+  void trigger(BigDecimal bid, BigDecimal ask, Consumer<RestingOrder> triggered) {
+    if (ask != null) {
+      drain(atOrAbove(askFalls, ask), triggered);
+      drain(atOrBelow(askRises, ask), triggered);
+    }
+    if (bid != null) {
+      drain(atOrAbove(bidFalls, bid), triggered);
+      drain(atOrBelow(bidRises, bid), triggered);
+    }
+  }
+
+  private ConcurrentSkipListMap<Key, RestingOrder> book(RestingOrder order) {
+    boolean onAsk = order.side() == RestingOrder.Side.BUY;
+    if (order.triggersOnFall()) {
+      return onAsk ? askFalls : bidFalls;
+    }
+    return onAsk ? askRises : bidRises;
+  }
+
+  private static Key key(RestingOrder order) {
+    return new Key(order.triggerPrice(), order.id());
+  }
+
+  /** Orders waiting for a fall have fired once their trigger is at or above the price. */
+  private static ConcurrentNavigableMap<Key, RestingOrder> atOrAbove(
+      ConcurrentSkipListMap<Key, RestingOrder> book, BigDecimal price) {
+    return book.tailMap(new Key(price, Integer.MIN_VALUE), true);
+  }
+
+  private static ConcurrentNavigableMap<Key, RestingOrder> atOrBelow(
+      ConcurrentSkipListMap<Key, RestingOrder> book, BigDecimal price) {
+    return book.headMap(new Key(price, Integer.MAX_VALUE), true);
+  }
+
+  private static void drain(ConcurrentNavigableMap<Key, RestingOrder> crossed, Consumer<RestingOrder> triggered) {
+    Map.Entry<Key, RestingOrder> entry;
+    while ((entry = crossed.pollFirstEntry()) != null) {
+      triggered.accept(entry.getValue());
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.trading212.api.portfolio;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.trading212.api.trade.AccountView;
+
+/**
+ * Valuation of one tracked user's account. Each position keeps its last
+ * valuation, so a tick moves the totals by the difference for that position
+ * alone instead of summing the whole portfolio again.
+ */
+final class Portfolio {
+
+  private static final class Line {
+    final BigDecimal amount;
+    final BigDecimal costBasis;
+    BigDecimal price;
+    BigDecimal value = BigDecimal.ZERO;
+
+    Line(BigDecimal amount, BigDecimal costBasis) {
+      this.amount = amount;
+      this.costBasis = costBasis;
+    }
+  }
+
+  private final int userId;
+  private final String topic;
+  private final AtomicLong lastPushNanos = new AtomicLong();
+  private volatile boolean closed;
+  private BigDecimal balance = BigDecimal.ZERO;
+  private Map<String, Line> lines = Map.of();
+  private BigDecimal marketValue = BigDecimal.ZERO;
+  private BigDecimal costBasis = BigDecimal.ZERO;
+
+  Portfolio(int userId, String topic) {
+    this.userId = userId;
+    this.topic = topic;
+  }
+
+  int userId() {
+    return userId;
+  }
+
+  String topic() {
+    return topic;
+  }
+
+  /** Marks the portfolio untracked; a new subscription starts a new one. */
+  void close() {
+    closed = true;
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  /** Replaces the positions with the account's; returns the symbols held. */
+  synchronized Set<String> load(AccountView account) {
+    Map<String, Line> loaded = new TreeMap<>();
+    BigDecimal totalCost = BigDecimal.ZERO;
+    if (account != null) {
+      for (AccountView.Position position : account.positions()) {
+        Line line = new Line(position.amount(), position.costBasis());
+        // Carry the last known price over so a trade does not blank the valuation
+        Line previous = lines.get(position.symbol());
+        if (previous != null && previous.price != null) {
+          line.price = previous.price;
+          line.value = line.amount.multiply(line.price);
+        }
+        loaded.put(position.symbol(), line);
+        totalCost = totalCost.add(position.costBasis());
+      }
+    }
+    this.balance = account == null ? BigDecimal.ZERO : account.balance();
+    this.lines = loaded;
+    this.costBasis = totalCost;
+    this.marketValue = loaded.values().stream().map(line -> line.value).reduce(BigDecimal.ZERO, BigDecimal::add);
+    return loaded.keySet();
+  }
+
+  /** Revalues one position at the given bid; returns whether anything changed. */
+  synchronized boolean reprice(String symbol, BigDecimal bid) {
+    Line line = lines.get(symbol);
+    // compareTo, as the same price may arrive at a different scale
+    if (line == null || line.price != null && bid.compareTo(line.price) == 0) {
+      return false;
+    }
+    BigDecimal value = line.amount.multiply(bid);
+    marketValue = marketValue.add(value).subtract(line.value);
+    line.price = bid;
+    line.value = value;
+    return true;
+  }
+
+  /**
+   * Claims the right to push now if the last push was at least
+   * {@code minIntervalNanos} ago; only one caller wins per interval.
+   */
+  boolean tryClaimPush(long now, long minIntervalNanos) {
+    long last = lastPushNanos.get();
+    return (last == 0 || now - last >= minIntervalNanos) && lastPushNanos.compareAndSet(last, now);
+  }
+
+  synchronized Map<String, Object> snapshot() {
+    List<Map<String, Object>> positions = new ArrayList<>(lines.size());
+    lines.forEach((symbol, line) -> {
+      Map<String, Object> position = new LinkedHashMap<>();
+      position.put("symbol", symbol);
+      position.put("amount", line.amount);
+      position.put("cost_basis", line.costBasis);
+      position.put("price", line.price);
+      position.put("market_value", line.price == null ? null : line.value);
+      position.put("unrealized_pl", line.price == null ? null : line.value.subtract(line.costBasis));
+      positions.add(position);
+    });
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("type", "portfolio");
+    body.put("userId", userId);
+    body.put("balance", balance);
+    body.put("market_value", marketValue);
+    body.put("cost_basis", costBasis);
+    body.put("unrealized_pl", marketValue.subtract(pricedCost()));
+    body.put("total_value", balance.add(marketValue));
+    body.put("positions", positions);
+    return body;
+  }
+
+  // Unpriced positions have no market value yet, so their cost is left out of the P&L
+  private BigDecimal pricedCost() {
+    BigDecimal priced = BigDecimal.ZERO;
+    for (Line line : lines.values()) {
+      if (line.price != null) {
+        priced = priced.add(line.costBasis);
+      }
+    }
+    return priced;
+  }
+}
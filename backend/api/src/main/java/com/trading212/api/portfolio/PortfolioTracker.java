@@ -0,0 +1,238 @@
+package com.trading212.api.portfolio;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.db.ConcurrencyLimitedDataSource;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.api.trade.AccountView;
+import com.trading212.api.trade.TradeExecutor;
+import com.trading212.api.ws.SubscriptionRegistry;
+import com.trading212.api.ws.WebSocketHandler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the portfolio valuation of every user with a WebSocket subscribed to
+ * {@code portfolio:<userId>} and pushes it to that topic. A symbol-to-holders
+ * index means a tick only revalues the users holding that symbol, and each
+ * user is pushed at most once per {@code portfolio.push.min-interval}; ticks
+ * inside the interval are folded into one push at its end. Every held symbol
+ * is registered with {@link TickerDemand}, so its ticks reach this node even
+ * when no client watches it.
+ */
+@Component
+public class PortfolioTracker implements SubscriptionRegistry.TopicListener {
+
+  public static final String TOPIC_PREFIX = "portfolio:";
+
+  private static final Logger log = LoggerFactory.getLogger(PortfolioTracker.class);
+
+  private final Map<Integer, Portfolio> portfolios = new ConcurrentHashMap<>();
+  private final Map<String, Set<Portfolio>> holders = new ConcurrentHashMap<>();
+  private final Set<Portfolio> throttled = ConcurrentHashMap.newKeySet();
+  private final SubscriptionRegistry subscriptionRegistry;
+  private final WebSocketHandler wsHandler;
+  private final TradeExecutor tradeExecutor;
+  private final PriceBook priceBook;
+  private final TickerDemand tickerDemand;
+  private final ObjectMapper objectMapper;
+  private final long minIntervalNanos;
+  private final ScheduledExecutorService flusher;
+  private final Counter revaluations;
+  private final Counter pushes;
+
+  public PortfolioTracker(SubscriptionRegistry subscriptionRegistry, WebSocketHandler wsHandler,
+      TradeExecutor tradeExecutor, PriceBook priceBook, TickerDemand tickerDemand, ObjectMapper objectMapper,
+      MeterRegistry meterRegistry, @Value("${portfolio.push.min-interval:250ms}") Duration minInterval) {
+    this.subscriptionRegistry = subscriptionRegistry;
+    this.wsHandler = wsHandler;
+    this.tradeExecutor = tradeExecutor;
+    this.priceBook = priceBook;
+    this.tickerDemand = tickerDemand;
+    this.objectMapper = objectMapper;
+    this.minIntervalNanos = minInterval.toNanos();
+    this.revaluations = Counter.builder("portfolio.revaluations").register(meterRegistry);
+    this.pushes = Counter.builder("portfolio.pushes").register(meterRegistry);
+    Gauge.builder("portfolio.tracked", portfolios, Map::size).register(meterRegistry);
+    this.flusher = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("portfolio-push").daemon().factory());
+    flusher.scheduleWithFixedDelay(this::pushThrottled, minIntervalNanos, minIntervalNanos, TimeUnit.NANOSECONDS);
+    subscriptionRegistry.addListener(this);
+  }
+
+  /** Called for every tick; costs a map lookup unless a tracked user holds the symbol. */
+  public void onPrice(String symbol) {
+    Set<Portfolio> affected = holders.get(symbol);
+    if (affected == null || affected.isEmpty()) {
+      return;
+    }
+    PriceBook.Quote quote = priceBook.get(symbol);
+    BigDecimal bid = quote == null ? null : quote.ticker().bid();
+    if (bid == null) {
+      return;
+    }
+    for (Portfolio portfolio : affected) {
+      if (portfolio.reprice(symbol, bid)) {
+        revaluations.increment();
+        requestPush(portfolio);
+      }
+    }
+  }
+
+  /** Reloads a user's positions after their account changed; no-op for untracked users. */
+  public void refresh(int userId) {
+    Portfolio portfolio = portfolios.get(userId);
+    if (portfolio != null) {
+      load(portfolio);
+      if (!portfolio.isClosed()) {
+        requestPush(portfolio);
+      }
+    }
+  }
+
+  /**
+   * As {@link #refresh}, but on the push thread rather than the caller's, for
+   * callers such as the Redis listener that must not wait on the database.
+   */
+  public void refreshLater(int userId) {
+    if (portfolios.containsKey(userId)) {
+      flusher.execute(() -> refresh(userId));
+    }
+  }
+
+  @Override
+  public void onSubscribe(String topic, boolean firstSubscriber) {
+    Integer userId = userId(topic);
+    if (userId == null) {
+      return;
+    }
+    Portfolio portfolio = portfolios.computeIfAbsent(userId, id -> new Portfolio(id, topic));
+    if (firstSubscriber) {
+      load(portfolio);
+    }
+    // A new subscriber gets the current valuation straight away
+    push(portfolio);
+  }
+
+  @Override
+  public void onUnsubscribe(String topic, boolean lastSubscriber) {
+    Integer userId = userId(topic);
+    if (userId == null || !lastSubscriber || subscriptionRegistry.subscriberCount(topic) != 0) {
+      return;
+    }
+    Portfolio portfolio = portfolios.remove(userId);
+    if (portfolio != null) {
+      // Closed before the sweep, so a load still in flight either sees it or is swept
+      portfolio.close();
+      untrack(portfolio);
+    }
+  }
+
+  private void load(Portfolio portfolio) {
+    // Not a request of its own, so it queues for a connection rather than being shed
+    AccountView account = ConcurrencyLimitedDataSource.queueing(() -> tradeExecutor.account(portfolio.userId()));
+    if (portfolio.isClosed()) {
+      return;
+    }
+    Set<String> held = portfolio.load(account);
+    holders.forEach((symbol, set) -> {
+      if (!held.contains(symbol) && set.remove(portfolio)) {
+        reconcileDemand(symbol);
+      }
+    });
+    for (String symbol : held) {
+      if (holders.computeIfAbsent(symbol, _ -> ConcurrentHashMap.newKeySet()).add(portfolio)) {
+        reconcileDemand(symbol);
+      }
+      PriceBook.Quote quote = priceBook.get(symbol);
+      if (quote != null && quote.ticker().bid() != null) {
+        portfolio.reprice(symbol, quote.ticker().bid());
+      }
+    }
+    // The last subscriber left while this load ran; take back what it indexed
+    if (portfolio.isClosed()) {
+      untrack(portfolio);
+    }
+  }
+
+  private void untrack(Portfolio portfolio) {
+    holders.forEach((symbol, set) -> {
+      if (set.remove(portfolio)) {
+        reconcileDemand(symbol);
+      }
+    });
+    throttled.remove(portfolio);
+  }
+
+  private void reconcileDemand(String symbol) {
+    tickerDemand.reconcile(TickerDemand.Source.PORTFOLIOS, symbol, () -> {
+      Set<Portfolio> set = holders.get(symbol);
+      return set != null && !set.isEmpty();
+    });
+  }
+
+  private void requestPush(Portfolio portfolio) {
+    if (portfolio.tryClaimPush(System.nanoTime(), minIntervalNanos)) {
+      throttled.remove(portfolio);
+      push(portfolio);
+    } else {
+      throttled.add(portfolio);
+    }
+  }
+
+  private void pushThrottled() {
+    long now = System.nanoTime();
+    for (Portfolio portfolio : throttled) {
+      if (portfolio.tryClaimPush(now, minIntervalNanos) && throttled.remove(portfolio)) {
+        push(portfolio);
+      }
+    }
+  }
+
+  private void push(Portfolio portfolio) {
+    try {
+      wsHandler.broadcastToTopic(portfolio.topic(),
+          new TextMessage(objectMapper.writeValueAsBytes(portfolio.snapshot())));
+      pushes.increment();
+    } catch (IOException e) {
+      log.warn("Could not encode portfolio for {}: {}", portfolio.topic(), e.getMessage());
+    }
+  }
+
+  private static Integer userId(String topic) {
+    if (!topic.startsWith(TOPIC_PREFIX)) {
+      return null;
+    }
+    try {
+      Integer userId = Integer.valueOf(topic.substring(TOPIC_PREFIX.length()));
+      // Only the canonical spelling, so every user has exactly one topic
+      return topic.equals(TOPIC_PREFIX + userId) ? userId : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    flusher.shutdownNow();
+  }
+}
@@ -0,0 +1,40 @@
+package com.trading212.api.prices;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.trading212.common.model.Candle;
+import com.trading212.common.model.CandleInterval;
+import com.trading212.common.redis.RedisKeys;
+
+/**
+ * Completed candles written by ingest. Each series is a sorted set scored by
+ * open time, so a chart range is a single bounded range read.
+ */
+@Component
+public class CandleHistory {
+
+  private final StringRedisTemplate stringRedisTemplate;
+
+  public CandleHistory(StringRedisTemplate stringRedisTemplate) {
+    this.stringRedisTemplate = stringRedisTemplate;
+  }
+
+  /** Bars opened in {@code [from, to]}, oldest first, at most {@code limit} of them. */
+  public List<Candle> range(String symbol, CandleInterval interval, long from, long to, int limit) {
+    Set<String> members = stringRedisTemplate.opsForZSet()
+        .rangeByScore(RedisKeys.candles(interval, symbol), from, to, 0, limit);
+    if (members == null) {
+      return List.of();
+    }
+    List<Candle> candles = new ArrayList<>(members.size());
+    for (String member : members) {
+      candles.add(Candle.decode(member));
+    }
+    return candles;
+  }
+}
@@ -0,0 +1,365 @@
+package com.trading212.api.prices;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.ws.SubscriptionRegistry;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.RedisKeys;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Latest known ticker per symbol, kept in process so that trades, the ticker
+ * endpoint and WebSocket snapshots never have to go to Redis.
+ *
+ * Fed by {@code RedisSubscriber} and warmed from ingest's symbol registry in
+ * Redis once the application is ready. Entries are immutable {@link Quote}s
+ * swapped into a {@link ConcurrentHashMap}.
+ *
+ * Only the symbols in {@link TickerDemand} are streamed to this node. The
+ * quotes of all others are reloaded from Redis in the background every
+ * {@code prices.idle-refresh.interval}, so a read never waits on Redis and
+ * trades and valuations never use a price that merely stopped arriving.
+ */
+@Component
+public class PriceBook {
+
+  private static final Logger log = LoggerFactory.getLogger(PriceBook.class);
+
+  private final Map<String, Quote> quotes = new ConcurrentHashMap<>();
+  private final Set<String> streaming = ConcurrentHashMap.newKeySet();
+  // Symbols ingest lists; only these may be subscribed to
+  private final Set<String> listed = ConcurrentHashMap.newKeySet();
+  private volatile boolean streamingAll;
+  private final AtomicLong version = new AtomicLong();
+  private final StringRedisTemplate stringRedisTemplate;
+  private final RedisSerializer<Ticker> tickerValueSerializer;
+  private final ObjectMapper objectMapper;
+  private final MeterRegistry meterRegistry;
+  private final Duration maxStaleness;
+  private final Duration idleRefreshInterval;
+  private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofPlatform().name("pricebook-refresh").daemon().factory());
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter readThroughs;
+  private final Counter staleRejections;
+
+  public PriceBook(StringRedisTemplate stringRedisTemplate, RedisSerializer<Ticker> tickerValueSerializer,
+      ObjectMapper objectMapper, MeterRegistry meterRegistry,
+      @Value("${prices.max-staleness:2m}") Duration maxStaleness,
+      @Value("${prices.idle-refresh.interval:1s}") Duration idleRefreshInterval) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.tickerValueSerializer = tickerValueSerializer;
+    this.objectMapper = objectMapper;
+    this.meterRegistry = meterRegistry;
+    this.maxStaleness = maxStaleness;
+    this.idleRefreshInterval = idleRefreshInterval;
+    this.hits = Counter.builder("pricebook.lookups").tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder("pricebook.lookups").tag("result", "miss").register(meterRegistry);
+    this.readThroughs = Counter.builder("pricebook.read-throughs").register(meterRegistry);
+    this.staleRejections = Counter.builder("pricebook.stale.rejections").register(meterRegistry);
+    Gauge.builder("pricebook.symbols", quotes, Map::size).register(meterRegistry);
+  }
+
+  /**
+   * A ticker as received from ingest, together with the wall-clock time it
+   * arrived. The JSON frame is kept as is and only decoded when something
+   * actually needs the numbers, e.g. a trade; quotes warmed from binary values
+   * start from the ticker and encode the frame on first use. An
+   * {@code updatedAt} of zero means the age is unknown.
+   */
+  public static final class Quote {
+    private final String symbol;
+    private final long updatedAt;
+    private final ObjectMapper objectMapper;
+    private volatile byte[] json;
+    private volatile Ticker ticker;
+
+    Quote(String symbol, byte[] json, long updatedAt, ObjectMapper objectMapper) {
+      this.symbol = symbol;
+      this.json = json;
+      this.updatedAt = updatedAt;
+      this.objectMapper = objectMapper;
+    }
+
+    Quote(Ticker ticker, long updatedAt, ObjectMapper objectMapper) {
+      this.symbol = ticker.symbol();
+      this.ticker = ticker;
+      this.updatedAt = updatedAt;
+      this.objectMapper = objectMapper;
+    }
+
+    public String symbol() {
+      return symbol;
+    }
+
+    /** The ticker encoded exactly as WebSocket clients receive it; must not be modified. */
+    public byte[] json() {
+      byte[] encoded = json;
+      if (encoded == null) {
+        try {
+          encoded = objectMapper.writeValueAsBytes(ticker);
+        } catch (IOException e) {
+          throw new UncheckedIOException("Could not encode ticker for " + symbol, e);
+        }
+        json = encoded;
+      }
+      return encoded;
+    }
+
+    public long updatedAt() {
+      return updatedAt;
+    }
+
+    public Ticker ticker() {
+      Ticker decoded = ticker;
+      if (decoded == null) {
+        try {
+          decoded = objectMapper.readValue(json, Ticker.class);
+        } catch (IOException e) {
+          throw new UncheckedIOException("Malformed ticker for " + symbol, e);
+        }
+        ticker = decoded;
+      }
+      return decoded;
+    }
+
+    public long ageMillis(long now) {
+      return updatedAt == 0 ? Long.MAX_VALUE : now - updatedAt;
+    }
+  }
+
+  public Quote update(String symbol, byte[] json) {
+    Quote quote = new Quote(symbol, json, System.currentTimeMillis(), objectMapper);
+    if (quotes.put(symbol, quote) == null) {
+      listed.add(symbol);
+      registerAgeGauge(symbol);
+    }
+    version.incrementAndGet();
+    return quote;
+  }
+
+  /**
+   * Returns the latest quote for the symbol or {@code null}, recording a hit or
+   * miss. Quotes of symbols not streamed to this node are at most one idle
+   * refresh behind Redis.
+   */
+  public Quote get(String symbol) {
+    Quote quote = quotes.get(symbol);
+    (quote == null ? misses : hits).increment();
+    return quote;
+  }
+
+  /**
+   * Whether ingest lists the symbol, so that it may be subscribed to. Names
+   * not seen yet are looked up in ingest's registry, in case they were
+   * listed since the last refresh.
+   */
+  public boolean isListed(String symbol) {
+    if (listed.contains(symbol)) {
+      return true;
+    }
+    try {
+      if (Boolean.TRUE.equals(stringRedisTemplate.opsForHash().hasKey(RedisKeys.SYMBOLS, symbol))) {
+        listed.add(symbol);
+        return true;
+      }
+    } catch (Exception e) {
+      log.warn("Could not look {} up in the symbol registry: {}", symbol, e.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * Called by {@link TickerDemand} once ticks for the symbol, or every symbol
+   * for {@link SubscriptionRegistry#WILDCARD}, start or stop arriving. A symbol
+   * that starts streaming is read from Redis once, as its quote may have aged
+   * while nobody needed it.
+   */
+  void streaming(String symbol, boolean on) {
+    if (SubscriptionRegistry.WILDCARD.equals(symbol)) {
+      streamingAll = on;
+      if (on) {
+        load(true, false);
+      }
+    } else if (on) {
+      streaming.add(symbol);
+      readThrough(symbol, quotes.get(symbol));
+    } else {
+      streaming.remove(symbol);
+    }
+  }
+
+  private boolean isStreaming(String symbol) {
+    return streamingAll || streaming.contains(symbol);
+  }
+
+  /** Reloads the quotes of symbols not streamed to this node; a no-op while every symbol is streamed. */
+  private void refreshIdle() {
+    if (!streamingAll) {
+      load(true, false);
+    }
+  }
+
+  /**
+   * Reloads every quote Redis holds a newer tick for, streamed symbols
+   * included, after this node found it missed ticks it should have received.
+   */
+  public void resync() {
+    load(true, true);
+  }
+
+  /** Whether a quote for the symbol is known; unlike {@link #get} this is not counted as a lookup. */
+  public boolean contains(String symbol) {
+    return quotes.containsKey(symbol);
+  }
+
+  /** Whether the quote is too old to trade against; stale quotes are counted as rejections. */
+  public boolean isStale(Quote quote) {
+    boolean stale = quote.ageMillis(System.currentTimeMillis()) > maxStaleness.toMillis();
+    if (stale) {
+      staleRejections.increment();
+    }
+    return stale;
+  }
+
+  /** Incremented on every change, so readers can cheaply tell whether anything moved. */
+  public long version() {
+    return version.get();
+  }
+
+  public Collection<Quote> quotes() {
+    return Collections.unmodifiableCollection(quotes.values());
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warm() {
+    load(false, false);
+    refresher.scheduleWithFixedDelay(this::refreshIdle, idleRefreshInterval.toMillis(),
+        idleRefreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    refresher.shutdownNow();
+  }
+
+  private Quote readThrough(String symbol, Quote expected) {
+    readThroughs.increment();
+    try {
+      byte[] key = symbol.getBytes(StandardCharsets.UTF_8);
+      byte[] value = stringRedisTemplate.execute(
+          (RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+      if (value == null) {
+        return expected;
+      }
+      Object updatedAt = stringRedisTemplate.opsForHash().get(RedisKeys.SYMBOLS, symbol);
+      Quote quote = decode(symbol, value, updatedAt == null ? 0 : Long.parseLong((String) updatedAt));
+      // A tick that arrived meanwhile is newer than what was read
+      boolean stored = expected == null ? quotes.putIfAbsent(symbol, quote) == null
+          : quotes.replace(symbol, expected, quote);
+      if (!stored) {
+        return quotes.get(symbol);
+      }
+      if (expected == null) {
+        registerAgeGauge(symbol);
+      }
+      if (expected == null || expected.updatedAt != quote.updatedAt) {
+        version.incrementAndGet();
+      }
+      return quote;
+    } catch (Exception e) {
+      log.warn("Could not read {} through from Redis: {}", symbol, e.getMessage());
+      return expected;
+    }
+  }
+
+  /**
+   * Loads every symbol in ingest's registry. Absent quotes are always added;
+   * with {@code replaceIdle}, quotes of symbols not streamed here are replaced
+   * when Redis holds a newer one, and with {@code replaceStreamed} so are the
+   * others, when Redis stored theirs after this node received them.
+   */
+  private void load(boolean replaceIdle, boolean replaceStreamed) {
+    try {
+      Map<Object, Object> symbols = stringRedisTemplate.opsForHash().entries(RedisKeys.SYMBOLS);
+      if (symbols.isEmpty()) {
+        return;
+      }
+      symbols.keySet().forEach(symbol -> listed.add((String) symbol));
+      byte[][] keys = symbols.keySet().stream()
+          .map(symbol -> ((String) symbol).getBytes(StandardCharsets.UTF_8))
+          .toArray(byte[][]::new);
+      List<byte[]> values = stringRedisTemplate.execute(
+          (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+      if (values == null) {
+        return;
+      }
+      // Ticks may already be flowing in; never overwrite a live quote with a loaded one.
+      for (int i = 0; i < keys.length; i++) {
+        if (values.get(i) == null) {
+          continue;
+        }
+        String symbol = new String(keys[i], StandardCharsets.UTF_8);
+        Quote quote = decode(symbol, values.get(i), Long.parseLong((String) symbols.get(symbol)));
+        Quote current = quotes.putIfAbsent(symbol, quote);
+        if (current == null) {
+          registerAgeGauge(symbol);
+          version.incrementAndGet();
+        } else if ((isStreaming(symbol) ? replaceStreamed && quote.updatedAt > current.updatedAt
+            : replaceIdle && current.updatedAt != quote.updatedAt) && quotes.replace(symbol, current, quote)) {
+          version.incrementAndGet();
+        }
+      }
+      if (!replaceIdle) {
+        log.info("Price book warmed with {} symbols", quotes.size());
+      }
+    } catch (Exception e) {
+      log.warn("Could not load price book from Redis: {}", e.getMessage());
+    }
+  }
+
+  private Quote decode(String symbol, byte[] value, long updatedAt) {
+    // JSON values are already client frames; anything else goes through the configured codec
+    return value[0] == '{'
+        ? new Quote(symbol, value, updatedAt, objectMapper)
+        : new Quote(tickerValueSerializer.deserialize(value), updatedAt, objectMapper);
+  }
+
+  private void registerAgeGauge(String symbol) {
+    TimeGauge.builder("pricebook.quote.age", quotes, TimeUnit.MILLISECONDS, q -> {
+      Quote current = q.get(symbol);
+      return current == null || current.updatedAt() == 0 ? Double.NaN
+          : System.currentTimeMillis() - current.updatedAt();
+    }).tag("symbol", symbol).register(meterRegistry);
+  }
+}
@@ -0,0 +1,140 @@
+package com.trading212.api.prices;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.trading212.api.ws.SubscriptionRegistry;
+
+/**
+ * The symbols this node needs live ticks for, and why: WebSocket clients
+ * watching them, tracked portfolios holding them or orders resting on them.
+ * {@link SubscriptionRegistry#WILDCARD} stands for every symbol.
+ *
+ * When a symbol gains its first reason the bound {@link Listener} starts
+ * receiving it and the {@link PriceBook} starts streaming it; when it loses
+ * its last, the price book falls back to reading it through from Redis.
+ * Callers report changes through {@link #reconcile}, which re-reads their
+ * current state under the symbol's lock, so racing updates settle on the final
+ * one. Each symbol has its own lock, held across the listener and price book
+ * calls that start or stop it, so a slow Redis call for one symbol only holds
+ * up callers of that symbol.
+ */
+@Component
+public class TickerDemand implements SubscriptionRegistry.TopicListener {
+
+  public enum Source {
+    CLIENTS, PORTFOLIOS, ORDERS, CONFIG
+  }
+
+  /**
+   * Starts and stops the delivery of ticks. Calls for one symbol are made in
+   * order under its lock; calls for different symbols may run concurrently.
+   */
+  public interface Listener {
+    void onStart(String symbol);
+
+    void onStop(String symbol);
+  }
+
+  /** The reasons for one symbol; guarded by its own monitor. */
+  private static final class Demand {
+    final EnumSet<Source> sources = EnumSet.noneOf(Source.class);
+    boolean listening;
+    // Set once the entry left the map; callers holding it must look the symbol up again
+    boolean removed;
+  }
+
+  private final Map<String, Demand> demand = new ConcurrentHashMap<>();
+  private final SubscriptionRegistry subscriptionRegistry;
+  private final PriceBook priceBook;
+  private volatile Listener listener;
+
+  public TickerDemand(SubscriptionRegistry subscriptionRegistry, PriceBook priceBook,
+      @Value("${ticker.subscribe-all:false}") boolean subscribeAll) {
+    this.subscriptionRegistry = subscriptionRegistry;
+    this.priceBook = priceBook;
+    subscriptionRegistry.addListener(this);
+    if (subscribeAll) {
+      reconcile(Source.CONFIG, SubscriptionRegistry.WILDCARD, () -> true);
+    }
+  }
+
+  /** Binds the listener and starts every symbol already in demand. */
+  public void bind(Listener listener) {
+    this.listener = listener;
+    demand.forEach((symbol, entry) -> {
+      synchronized (entry) {
+        // A reconcile that saw the listener may have started it already
+        if (!entry.removed && !entry.listening) {
+          entry.listening = true;
+          listener.onStart(symbol);
+        }
+      }
+    });
+  }
+
+  /** Records whether the source currently needs the symbol, as reported by {@code needed}. */
+  public void reconcile(Source source, String symbol, BooleanSupplier needed) {
+    while (true) {
+      Demand entry = demand.computeIfAbsent(symbol, _ -> new Demand());
+      synchronized (entry) {
+        if (!entry.removed) {
+          reconcile(entry, source, symbol, needed.getAsBoolean());
+          return;
+        }
+      }
+    }
+  }
+
+  private void reconcile(Demand entry, Source source, String symbol, boolean needed) {
+    if (needed) {
+      if (entry.sources.isEmpty()) {
+        entry.sources.add(source);
+        // Subscribe before refreshing the price book, so no tick falls between the two
+        Listener listener = this.listener;
+        if (listener != null) {
+          entry.listening = true;
+          listener.onStart(symbol);
+        }
+        priceBook.streaming(symbol, true);
+      } else {
+        entry.sources.add(source);
+      }
+    } else if (entry.sources.remove(source) && entry.sources.isEmpty()) {
+      priceBook.streaming(symbol, false);
+      if (entry.listening) {
+        entry.listening = false;
+        listener.onStop(symbol);
+      }
+    }
+    if (entry.sources.isEmpty()) {
+      entry.removed = true;
+      demand.remove(symbol, entry);
+    }
+  }
+
+  @Override
+  public void onSubscribe(String topic, boolean firstSubscriber) {
+    if (firstSubscriber) {
+      clientsChanged(topic);
+    }
+  }
+
+  @Override
+  public void onUnsubscribe(String topic, boolean lastSubscriber) {
+    if (lastSubscriber) {
+      clientsChanged(topic);
+    }
+  }
+
+  private void clientsChanged(String topic) {
+    if (SubscriptionRegistry.isSymbol(topic) || SubscriptionRegistry.WILDCARD.equals(topic)) {
+      reconcile(Source.CLIENTS, topic, () -> subscriptionRegistry.subscriberCount(topic) > 0);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.trading212.api.prices;
+
+import java.io.ByteArrayOutputStream;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The full ticker map pre-encoded as JSON. It is re-encoded lazily, at most
+ * once per change of the {@link PriceBook}, so polling clients only cost a
+ * version check and, with a matching ETag, not even a body.
+ */
+@Component
+public class TickerSnapshot {
+
+  // Versions restart with the process, so tag them to keep ETags unique across restarts
+  private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+  private final PriceBook priceBook;
+  private final ObjectMapper objectMapper;
+  private volatile Encoded current = new Encoded(-1, new byte[0], "");
+
+  public TickerSnapshot(PriceBook priceBook, ObjectMapper objectMapper) {
+    this.priceBook = priceBook;
+    this.objectMapper = objectMapper;
+  }
+
+  public record Encoded(long version, byte[] json, String etag) {
+  }
+
+  public Encoded get() {
+    long version = priceBook.version();
+    Encoded encoded = current;
+    if (encoded.version() == version) {
+      return encoded;
+    }
+    synchronized (this) {
+      encoded = current;
+      if (encoded.version() != version) {
+        encoded = encode(version);
+        current = encoded;
+      }
+      return encoded;
+    }
+  }
+
+  private Encoded encode(long version) {
+    // Quotes already hold their JSON, so the map is stitched together rather than re-serialized
+    try {
+      ByteArrayOutputStream json = new ByteArrayOutputStream(4096);
+      json.write('{');
+      boolean first = true;
+      for (PriceBook.Quote quote : priceBook.quotes()) {
+        if (!first) {
+          json.write(',');
+        }
+        first = false;
+        json.writeBytes(objectMapper.writeValueAsBytes(quote.symbol()));
+        json.write(':');
+        json.writeBytes(quote.json());
+      }
+      json.write('}');
+      return new Encoded(version, json.toByteArray(), bootId + "-" + Long.toHexString(version));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not encode ticker snapshot", e);
+    }
+  }
+}
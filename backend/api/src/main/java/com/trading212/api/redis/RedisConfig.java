@@ -1,17 +1,19 @@
 package com.trading212.api.redis;
 
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.BinaryTickerRedisSerializer;
 
 @Configuration
 public class RedisConfig {
@@ -22,26 +24,25 @@ public class RedisConfig {
   }
 
   @Bean
-  public RedisMessageListenerContainer redisContainer(RedisConnectionFactory connectionFactory,
-      MessageListenerAdapter listenerAdapter) {
+  public RedisMessageListenerContainer redisContainer(RedisConnectionFactory connectionFactory) {
     RedisMessageListenerContainer container = new RedisMessageListenerContainer();
     container.setConnectionFactory(connectionFactory);
-    container.addMessageListener(listenerAdapter, new PatternTopic("ticker:updates"));
+    // A single dispatch thread keeps ticks in publish order for the price book
+    container.setTaskExecutor(
+        Executors.newSingleThreadExecutor(Thread.ofPlatform().name("ticker-listener").daemon().factory()));
+    // Channels are added and removed by TickerChannels as symbols come into and out of demand
     return container;
   }
 
+  /** Serializer for the latest-ticker values ingest stores; binary also reads JSON values. */
   @Bean
-  RedisTemplate<String, Ticker> simpleRedisTemplate(RedisConnectionFactory connectionFactory,
+  RedisSerializer<Ticker> tickerValueSerializer(@Value("${ticker.redis.codec:json}") String codec,
       ObjectMapper objectMapper) {
-
-    RedisTemplate<String, Ticker> template = new RedisTemplate<>();
-    template.setConnectionFactory(connectionFactory);
-
-    Jackson2JsonRedisSerializer<Ticker> serializer = new Jackson2JsonRedisSerializer<>(objectMapper, Ticker.class);
-    template.setKeySerializer(new StringRedisSerializer());
-    template.setValueSerializer(serializer);
-    template.afterPropertiesSet();
-
-    return template;
+    RedisSerializer<Ticker> json = new Jackson2JsonRedisSerializer<>(objectMapper, Ticker.class);
+    return switch (codec) {
+      case "json" -> json;
+      case "binary" -> new BinaryTickerRedisSerializer(json);
+      default -> throw new IllegalArgumentException("Unknown ticker.redis.codec: " + codec);
+    };
   }
 }
@@ -1,43 +1,90 @@
 package com.trading212.api.redis;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.trading212.common.model.KrakenModel.TickerResponse;
+import com.trading212.api.orders.RestingOrderBook;
+import com.trading212.api.portfolio.PortfolioTracker;
+import com.trading212.api.prices.PriceBook;
 import com.trading212.api.ws.WebSocketHandler;
+import com.trading212.common.redis.RedisKeys;
+import com.trading212.common.redis.TickStamps;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Component
 public class RedisSubscriber implements MessageListener {
 
-  private final ObjectMapper objectMapper;
+  private static final Logger log = LoggerFactory.getLogger(RedisSubscriber.class);
+
   private final WebSocketHandler wsHandler;
+  private final PriceBook priceBook;
+  private final PortfolioTracker portfolioTracker;
+  // Absent with trade.execution=memory
+  private final RestingOrderBook restingOrderBook;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Counter> received = new ConcurrentHashMap<>();
+  private final Timer transitLatency;
 
-  public RedisSubscriber(ObjectMapper objectMapper, WebSocketHandler wsHandler) {
-    this.objectMapper = objectMapper;
+  public RedisSubscriber(WebSocketHandler wsHandler, PriceBook priceBook, PortfolioTracker portfolioTracker,
+      Optional<RestingOrderBook> restingOrderBook, MeterRegistry meterRegistry) {
     this.wsHandler = wsHandler;
+    this.priceBook = priceBook;
+    this.portfolioTracker = portfolioTracker;
+    this.restingOrderBook = restingOrderBook.orElse(null);
+    this.meterRegistry = meterRegistry;
+    this.transitLatency = Timer.builder("ticks.stage.latency").tag("stage", "transit")
+        .description("Redis publish in ingest to receipt in the api")
+        .publishPercentileHistogram().register(meterRegistry);
   }
 
   @Override
   public void onMessage(@NonNull Message message, @Nullable byte[] pattern) {
+    // The symbol comes from the channel name
+    long receivedAtNanos = System.nanoTime();
+    String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+    onTick(channel.substring(RedisKeys.TICKER_CHANNEL_PREFIX.length()), message.getBody(), receivedAtNanos);
+  }
+
+  /**
+   * Handles one tick from either transport, received at the given
+   * {@link System#nanoTime}; never throws. Frames arrive in the exact format
+   * full-mode clients expect, so they are forwarded untouched once their stage
+   * stamps are stripped.
+   */
+  public void onTick(String symbol, byte[] message, long receivedAtNanos) {
     try {
-      String payload = new String(message.getBody(), StandardCharsets.UTF_8);
-      var parsedPayload = objectMapper.readValue(payload, TickerResponse.class);
-
-      parsedPayload.data().forEach(ticker -> {
-        try {
-          wsHandler.broadcastToTopic(ticker.symbol(), objectMapper.writeValueAsString(ticker));
-        } catch (Exception e) {
-          e.printStackTrace();
-        }
-      });
+      byte[] frame = message;
+      long krakenReceivedAt = 0;
+      if (TickStamps.isStamped(frame)) {
+        krakenReceivedAt = TickStamps.receivedAt(frame);
+        transitLatency.record(TickStamps.nowMicros() - TickStamps.publishedAt(frame), TimeUnit.MICROSECONDS);
+        frame = TickStamps.frame(frame);
+      }
+      received.computeIfAbsent(symbol,
+          s -> Counter.builder("ticks.received").tag("symbol", s).register(meterRegistry)).increment();
+
+      PriceBook.Quote quote = priceBook.update(symbol, frame);
+      wsHandler.broadcastTick(quote, krakenReceivedAt, receivedAtNanos);
+      portfolioTracker.onPrice(symbol);
+      if (restingOrderBook != null) {
+        restingOrderBook.onPrice(symbol);
+      }
     } catch (Exception e) {
-      e.printStackTrace();
+      log.error("Could not handle ticker message", e);
     }
   }
 }
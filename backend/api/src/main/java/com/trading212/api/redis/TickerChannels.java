@@ -0,0 +1,101 @@
+package com.trading212.api.redis;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+import org.springframework.stereotype.Component;
+
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.api.ws.SubscriptionRegistry;
+import com.trading212.common.redis.RedisKeys;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps the listener container subscribed to the ticker channels of exactly
+ * the symbols in {@link TickerDemand}, so a node only receives the ticks its
+ * own clients, portfolios and orders need. While every symbol is demanded the
+ * channels are swapped for the single pattern subscription; Redis would
+ * otherwise deliver each tick once per matching subscription.
+ *
+ * With {@code ticker.transport=stream}, {@link TickerStreamReader} takes its
+ * place.
+ */
+@Component
+@ConditionalOnProperty(name = "ticker.transport", havingValue = "pubsub", matchIfMissing = true)
+public class TickerChannels implements TickerDemand.Listener {
+
+  private final RedisMessageListenerContainer container;
+  private final MessageListenerAdapter listener;
+  private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+  // Symbols start and stop concurrently under the read lock; swapping to and from the pattern takes the write lock
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean all;
+  private volatile int subscriptions;
+
+  public TickerChannels(RedisMessageListenerContainer container, MessageListenerAdapter listener,
+      TickerDemand tickerDemand, MeterRegistry meterRegistry) {
+    this.container = container;
+    this.listener = listener;
+    Gauge.builder("ticks.channels", this, c -> c.subscriptions)
+        .description("Redis ticker subscriptions held by this node").register(meterRegistry);
+    tickerDemand.bind(this);
+  }
+
+  @Override
+  public void onStart(String symbol) {
+    boolean wildcard = SubscriptionRegistry.WILDCARD.equals(symbol);
+    Lock held = wildcard ? lock.writeLock() : lock.readLock();
+    held.lock();
+    try {
+      if (wildcard) {
+        all = true;
+        // Subscribe to everything before leaving the channels, so nothing is missed in between
+        container.addMessageListener(listener, new PatternTopic(RedisKeys.TICKER_CHANNEL_PATTERN));
+        if (!symbols.isEmpty()) {
+          container.removeMessageListener(listener, channels(symbols));
+        }
+      } else if (symbols.add(symbol) && !all) {
+        container.addMessageListener(listener, new ChannelTopic(RedisKeys.tickerChannel(symbol)));
+      }
+      subscriptions = all ? 1 : symbols.size();
+    } finally {
+      held.unlock();
+    }
+  }
+
+  @Override
+  public void onStop(String symbol) {
+    boolean wildcard = SubscriptionRegistry.WILDCARD.equals(symbol);
+    Lock held = wildcard ? lock.writeLock() : lock.readLock();
+    held.lock();
+    try {
+      if (wildcard) {
+        all = false;
+        if (!symbols.isEmpty()) {
+          container.addMessageListener(listener, channels(symbols));
+        }
+        container.removeMessageListener(listener, new PatternTopic(RedisKeys.TICKER_CHANNEL_PATTERN));
+      } else if (symbols.remove(symbol) && !all) {
+        container.removeMessageListener(listener, new ChannelTopic(RedisKeys.tickerChannel(symbol)));
+      }
+      subscriptions = all ? 1 : symbols.size();
+    } finally {
+      held.unlock();
+    }
+  }
+
+  private static List<ChannelTopic> channels(Set<String> symbols) {
+    return symbols.stream().map(symbol -> new ChannelTopic(RedisKeys.tickerChannel(symbol))).toList();
+  }
+}
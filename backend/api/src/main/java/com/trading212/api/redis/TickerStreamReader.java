@@ -0,0 +1,230 @@
+package com.trading212.api.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.stereotype.Component;
+
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.api.ws.SubscriptionRegistry;
+import com.trading212.common.redis.RedisKeys;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Receives ticks from {@link RedisKeys#TICKER_STREAM} instead of the channels
+ * when {@code ticker.transport=stream}. One thread reads batches with a
+ * blocking {@code XREAD} from the last entry it handled, so a stall or a lost
+ * Redis connection resumes where it left off instead of losing the ticks in
+ * between. A starting node begins {@code ticker.stream.replay} back, so resting
+ * orders and portfolios see the ticks that arrived while it was down.
+ *
+ * Each producer numbers its entries, and a jump means entries were trimmed
+ * before this node read them: the gap is counted and the price book resynced
+ * from Redis. Every symbol is read; ticks of symbols not in
+ * {@link TickerDemand} are skipped.
+ */
+@Component
+@ConditionalOnProperty(name = "ticker.transport", havingValue = "stream")
+public class TickerStreamReader implements TickerDemand.Listener {
+
+  private static final Logger log = LoggerFactory.getLogger(TickerStreamReader.class);
+
+  private static final byte[] STREAM_KEY = RedisKeys.TICKER_STREAM.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SYMBOL = RedisKeys.TICKER_STREAM_SYMBOL.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] FRAME = RedisKeys.TICKER_STREAM_FRAME.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] PRODUCER = RedisKeys.TICKER_STREAM_PRODUCER.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SEQUENCE = RedisKeys.TICKER_STREAM_SEQUENCE.getBytes(StandardCharsets.UTF_8);
+  // Producers remembered; every ingest restart brings new ones
+  private static final int MAX_PRODUCERS = 64;
+  private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+  private final RedisConnectionFactory connectionFactory;
+  private final RedisSubscriber subscriber;
+  private final PriceBook priceBook;
+  private final StreamReadOptions readOptions;
+  private final Duration replay;
+  private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+  private volatile boolean all;
+  // Only used on the reading thread
+  private final Map<String, Long> sequences = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+      return size() > MAX_PRODUCERS;
+    }
+  };
+  private String lastId;
+  private final Counter read;
+  private final Counter gaps;
+  private final Counter missed;
+  private final DistributionSummary batches;
+  private volatile boolean running;
+  private Thread thread;
+
+  public TickerStreamReader(RedisConnectionFactory connectionFactory, RedisSubscriber subscriber,
+      PriceBook priceBook, TickerDemand tickerDemand, MeterRegistry meterRegistry,
+      @Value("${ticker.stream.batch-size:500}") int batchSize,
+      @Value("${ticker.stream.block:1s}") Duration block,
+      @Value("${ticker.stream.replay:10s}") Duration replay) {
+    this.connectionFactory = connectionFactory;
+    this.subscriber = subscriber;
+    this.priceBook = priceBook;
+    this.readOptions = StreamReadOptions.empty().count(batchSize).block(block);
+    this.replay = replay;
+    this.read = Counter.builder("ticks.stream.read")
+        .description("Entries read from the ticker stream").register(meterRegistry);
+    this.gaps = Counter.builder("ticks.stream.gaps")
+        .description("Jumps in a producer's sequence, each followed by a price book resync").register(meterRegistry);
+    this.missed = Counter.builder("ticks.stream.missed")
+        .description("Entries trimmed from the ticker stream before this node read them").register(meterRegistry);
+    this.batches = DistributionSummary.builder("ticks.stream.batch")
+        .description("Entries returned per XREAD").register(meterRegistry);
+    tickerDemand.bind(this);
+  }
+
+  @Override
+  public void onStart(String symbol) {
+    if (SubscriptionRegistry.WILDCARD.equals(symbol)) {
+      all = true;
+    } else {
+      symbols.add(symbol);
+    }
+  }
+
+  @Override
+  public void onStop(String symbol) {
+    if (SubscriptionRegistry.WILDCARD.equals(symbol)) {
+      all = false;
+    } else {
+      symbols.remove(symbol);
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    thread = Thread.ofPlatform().name("ticker-stream").daemon().start(this::run);
+  }
+
+  private void run() {
+    while (running) {
+      try (RedisConnection connection = connectionFactory.getConnection()) {
+        if (lastId == null) {
+          // Stream ids are Redis server times, so the replay window is measured on its clock
+          Long now = connection.serverCommands().time(TimeUnit.MILLISECONDS);
+          lastId = (now - replay.toMillis()) + "-0";
+          log.info("Reading ticks from {}, replaying the last {}s", RedisKeys.TICKER_STREAM, replay.toSeconds());
+        }
+        while (running) {
+          List<ByteRecord> records = connection.streamCommands()
+              .xRead(readOptions, StreamOffset.create(STREAM_KEY, ReadOffset.from(lastId)));
+          if (records != null && !records.isEmpty()) {
+            handle(records);
+          }
+        }
+      } catch (Exception e) {
+        if (running) {
+          log.warn("Could not read the ticker stream, resuming from {} in {}s: {}", lastId,
+              RETRY_DELAY.toSeconds(), e.getMessage());
+          sleep();
+        }
+      }
+    }
+  }
+
+  /** Handles one batch in stream order; package-private for tests. */
+  void handle(List<ByteRecord> records) {
+    long receivedAtNanos = System.nanoTime();
+    boolean gap = false;
+    for (ByteRecord record : records) {
+      byte[] symbol = null;
+      byte[] frame = null;
+      byte[] producer = null;
+      byte[] sequence = null;
+      for (Map.Entry<byte[], byte[]> field : record.getValue().entrySet()) {
+        byte[] name = field.getKey();
+        if (Arrays.equals(name, SYMBOL)) {
+          symbol = field.getValue();
+        } else if (Arrays.equals(name, FRAME)) {
+          frame = field.getValue();
+        } else if (Arrays.equals(name, PRODUCER)) {
+          producer = field.getValue();
+        } else if (Arrays.equals(name, SEQUENCE)) {
+          sequence = field.getValue();
+        }
+      }
+      lastId = record.getId().getValue();
+      if (producer != null && sequence != null) {
+        gap |= sequenced(new String(producer, StandardCharsets.UTF_8),
+            Long.parseLong(new String(sequence, StandardCharsets.US_ASCII)));
+      }
+      if (symbol == null || frame == null) {
+        log.debug("Skipped malformed ticker stream entry {}", lastId);
+        continue;
+      }
+      String name = new String(symbol, StandardCharsets.UTF_8);
+      if (all || symbols.contains(name)) {
+        subscriber.onTick(name, frame, receivedAtNanos);
+      }
+    }
+    read.increment(records.size());
+    batches.record(records.size());
+    if (gap) {
+      // The batch is applied first; Redis then holds at least its newest ticks
+      priceBook.resync();
+    }
+  }
+
+  /** Records the producer's sequence number and returns whether entries before it were missed. */
+  private boolean sequenced(String producer, long sequence) {
+    Long previous = sequences.put(producer, sequence);
+    if (previous == null || sequence <= previous + 1) {
+      return false;
+    }
+    long skipped = sequence - previous - 1;
+    log.warn("Missed {} ticker stream entries from {}, resyncing prices", skipped, producer);
+    gaps.increment();
+    missed.increment(skipped);
+    return true;
+  }
+
+  private void sleep() {
+    try {
+      Thread.sleep(RETRY_DELAY);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+      thread.join(RETRY_DELAY.toMillis());
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.trading212.api.trade;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trading212.api.portfolio.PortfolioTracker;
+import com.trading212.common.redis.RedisKeys;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Accounts as last read from the {@link TradeExecutor}, for the balance,
+ * holdings and P&amp;L endpoints, which clients poll far more often than
+ * accounts change. Entries are loaded on a miss, evicted beyond
+ * {@code accounts.cache.max-size} and expire {@code accounts.cache.ttl} after
+ * loading; unknown users are not cached.
+ *
+ * Every path that changes an account calls {@link #invalidate} once the change
+ * is committed. That drops the entry here, waiting for a load of the same user
+ * in progress and discarding it, so a read racing a trade is never kept. It
+ * also publishes the user on {@link RedisKeys#ACCOUNT_INVALIDATIONS} for the
+ * other api nodes, which drop their copy and reload the live portfolio of the
+ * user if they track it. Pub/sub drops messages while a node is disconnected,
+ * so the TTL bounds how stale another node's copy can get.
+ */
+@Component
+public class AccountCache implements MessageListener {
+
+  private static final Logger log = LoggerFactory.getLogger(AccountCache.class);
+
+  private final TradeExecutor tradeExecutor;
+  private final StringRedisTemplate stringRedisTemplate;
+  private final PortfolioTracker portfolioTracker;
+  private final Cache<Integer, AccountView> accounts;
+  // Tells this node's own invalidations apart when they come back from Redis
+  private final String node = UUID.randomUUID().toString().substring(0, 8);
+  private final Counter remoteInvalidations;
+
+  public AccountCache(TradeExecutor tradeExecutor, StringRedisTemplate stringRedisTemplate,
+      PortfolioTracker portfolioTracker, RedisMessageListenerContainer container, MeterRegistry meterRegistry,
+      @Value("${accounts.cache.max-size:10000}") long maxSize,
+      @Value("${accounts.cache.ttl:10s}") Duration ttl) {
+    this.tradeExecutor = tradeExecutor;
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.portfolioTracker = portfolioTracker;
+    this.accounts = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, accounts, "accounts");
+    this.remoteInvalidations = Counter.builder("accounts.cache.remote-invalidations")
+        .description("Accounts dropped because another api node changed them").register(meterRegistry);
+    container.addMessageListener(this, new ChannelTopic(RedisKeys.ACCOUNT_INVALIDATIONS));
+  }
+
+  /** Current balance and positions, or {@code null} if the user has no account. */
+  public AccountView get(int userId) {
+    return accounts.get(userId, tradeExecutor::account);
+  }
+
+  /** Drops the user's account here and on every other api node. */
+  public void invalidate(int userId) {
+    accounts.invalidate(userId);
+    try {
+      stringRedisTemplate.convertAndSend(RedisKeys.ACCOUNT_INVALIDATIONS, node + ":" + userId);
+    } catch (Exception e) {
+      log.warn("Could not publish the invalidation of account {}: {}", userId, e.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(@NonNull Message message, @Nullable byte[] pattern) {
+    String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    int separator = body.indexOf(':');
+    if (separator < 0 || body.substring(0, separator).equals(node)) {
+      return;
+    }
+    try {
+      int userId = Integer.parseInt(body.substring(separator + 1));
+      accounts.invalidate(userId);
+      remoteInvalidations.increment();
+      portfolioTracker.refreshLater(userId);
+    } catch (NumberFormatException e) {
+      log.warn("Ignored malformed account invalidation: {}", body);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.trading212.api.db.DedicatedPool;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Executes orders against accounts held in memory. Users are partitioned by
+ * id across {@link AccountShard}s, each owned by one thread, so orders for
+ * different shards run in parallel and never contend. Changes reach Postgres
+ * through the {@link WriteBehindJournal}, which is the durable record:
+ * startup recovers every account from the tables it writes.
+ *
+ * Orders are acknowledged before they are persisted, so a crash loses at most
+ * the entries still queued in the journal.
+ *
+ * The accounts in memory are only right while no other node changes them, so
+ * the engine holds a Postgres advisory lock for as long as it runs, on a
+ * connection of its own, and refuses to start while another node holds it.
+ * That connection and the journal's come from the writer pool, so neither
+ * counts against the connections requests share.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.execution", havingValue = "memory")
+public class AccountEngine implements TradeExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(AccountEngine.class);
+
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+  // Advisory lock key owned by the running engine; any constant no other code locks
+  private static final long OWNER_LOCK = 0x6163636f756e7473L;
+
+  private final Connection owner;
+  private final AccountShard[] shards;
+  private final WriteBehindJournal journal;
+
+  public AccountEngine(JdbcTemplate jdbc, @Qualifier("writerPool") DedicatedPool writers,
+      MeterRegistry meterRegistry,
+      @Value("${trade.memory.shards:0}") int shardCount,
+      @Value("${trade.memory.journal.capacity:100000}") int journalCapacity,
+      @Value("${trade.memory.journal.max-batch:1000}") int journalMaxBatch) {
+    this.owner = claimAccounts(writers.dataSource());
+    this.journal = new WriteBehindJournal(writers.jdbc(), writers.transactionManager(), meterRegistry,
+        journalCapacity, journalMaxBatch);
+    this.shards = new AccountShard[shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors()];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new AccountShard(i, jdbc, journal);
+    }
+    recover(jdbc);
+    journal.start();
+  }
+
+  /** Takes the engine's advisory lock on a connection kept until shutdown. */
+  private static Connection claimAccounts(DataSource dataSource) {
+    try {
+      Connection connection = dataSource.getConnection();
+      try (Statement statement = connection.createStatement();
+          ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + OWNER_LOCK + ")")) {
+        if (rs.next() && rs.getBoolean(1)) {
+          return connection;
+        }
+      }
+      connection.close();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not lock the accounts for trade.execution=memory", e);
+    }
+    throw new IllegalStateException(
+        "Another node runs trade.execution=memory against this database; only one may hold the accounts");
+  }
+
+  private void recover(JdbcTemplate jdbc) {
+    jdbc.query("SELECT user_id, balance FROM account_balance",
+        rs -> {
+          int userId = rs.getInt("user_id");
+          shard(userId).restoreBalance(userId, rs.getBigDecimal("balance"));
+        });
+    jdbc.query("SELECT user_id, symbol, amount, cost_basis FROM holdings",
+        rs -> {
+          int userId = rs.getInt("user_id");
+          shard(userId).restorePosition(userId, rs.getString("symbol"), rs.getBigDecimal("amount"),
+              rs.getBigDecimal("cost_basis"));
+        });
+    log.info("Account engine recovered accounts into {} shards", shards.length);
+  }
+
+  @Override
+  public TradeResult buy(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return shard(userId).buy(userId, symbol, quantity, price);
+  }
+
+  @Override
+  public TradeResult sell(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return shard(userId).sell(userId, symbol, quantity, price);
+  }
+
+  @Override
+  public void reset(int userId) {
+    shard(userId).reset(userId);
+  }
+
+  @Override
+  public AccountView account(int userId) {
+    return shard(userId).view(userId);
+  }
+
+  private AccountShard shard(int userId) {
+    return shards[Math.floorMod(userId, shards.length)];
+  }
+
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    // Stop taking orders first so the journal's final flush includes all of them
+    for (AccountShard shard : shards) {
+      shard.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+    journal.close(SHUTDOWN_TIMEOUT_MILLIS);
+    // The connection goes back to the pool rather than closing, which would not release the lock
+    try (Connection connection = owner; Statement statement = connection.createStatement()) {
+      statement.execute("SELECT pg_advisory_unlock(" + OWNER_LOCK + ")");
+    } catch (SQLException e) {
+      log.warn("Could not release the accounts lock: {}", e.getMessage());
+    }
+  }
+}
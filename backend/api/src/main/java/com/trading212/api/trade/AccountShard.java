@@ -0,0 +1,196 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.trading212.api.db.ConcurrencyLimitedDataSource;
+
+/**
+ * The accounts of one partition of users, owned by a single thread. Every
+ * read and change runs on that thread, so orders need no locks and see each
+ * other's effects in submission order. Amounts are rounded to the scales of
+ * the corresponding Postgres columns so the persisted state matches exactly.
+ */
+class AccountShard {
+
+  private static final int MONEY_SCALE = 2;
+  private static final int AMOUNT_SCALE = 12;
+
+  private static final class Account {
+    BigDecimal balance;
+    final Map<String, Position> positions = new TreeMap<>();
+
+    Account(BigDecimal balance) {
+      this.balance = balance;
+    }
+  }
+
+  private static final class Position {
+    BigDecimal amount = BigDecimal.ZERO;
+    BigDecimal costBasis = BigDecimal.ZERO;
+  }
+
+  private final Map<Integer, Account> accounts = new HashMap<>();
+  private final ExecutorService executor;
+  private final JdbcTemplate jdbc;
+  private final WriteBehindJournal journal;
+
+  AccountShard(int index, JdbcTemplate jdbc, WriteBehindJournal journal) {
+    this.executor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("account-shard-" + index).daemon().factory());
+    this.jdbc = jdbc;
+    this.journal = journal;
+  }
+
+  /** Only called during recovery, before the shard thread has run anything. */
+  void restoreBalance(int userId, BigDecimal balance) {
+    accounts.put(userId, new Account(balance));
+  }
+
+  /** Only called during recovery, before the shard thread has run anything. */
+  void restorePosition(int userId, String symbol, BigDecimal amount, BigDecimal costBasis) {
+    Account account = accounts.get(userId);
+    if (account != null) {
+      Position position = account.positions.computeIfAbsent(symbol, s -> new Position());
+      position.amount = amount;
+      position.costBasis = costBasis;
+    }
+  }
+
+  TradeResult buy(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return call(() -> {
+      Account account = account(userId);
+      if (account == null) {
+        return TradeResult.rejected("Account balance not found for user");
+      }
+      BigDecimal total = quantity.multiply(price);
+      if (account.balance.compareTo(total) < 0) {
+        return TradeResult.rejected("Insufficient balance");
+      }
+      account.balance = account.balance.subtract(total).setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+      Position position = account.positions.computeIfAbsent(symbol, s -> new Position());
+      position.amount = position.amount.add(quantity).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+      position.costBasis = position.costBasis.add(total).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+
+      journal.append(new JournalEntry.Fill(userId, symbol, "BUY", quantity, price, total, account.balance, null,
+          position.amount, position.costBasis));
+      return TradeResult.filled(account.balance, price, null);
+    });
+  }
+
+  TradeResult sell(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return call(() -> {
+      Account account = account(userId);
+      if (account == null) {
+        return TradeResult.rejected("Account balance not found for user");
+      }
+      Position position = account.positions.get(symbol);
+      if (position == null || position.amount.compareTo(quantity) < 0) {
+        return TradeResult.rejected("Insufficient holdings");
+      }
+      // Same proportional release of cost basis as the SQL executor
+      BigDecimal releasedCost = position.costBasis.multiply(quantity)
+          .divide(position.amount, AMOUNT_SCALE, RoundingMode.HALF_UP);
+      BigDecimal total = quantity.multiply(price);
+      position.amount = position.amount.subtract(quantity).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+      position.costBasis = position.costBasis.subtract(releasedCost);
+      account.balance = account.balance.add(total).setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+      BigDecimal profitLoss = total.subtract(releasedCost).setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+
+      journal.append(new JournalEntry.Fill(userId, symbol, "SELL", quantity.negate(), price, total.negate(),
+          account.balance, profitLoss, position.amount, position.costBasis));
+      return TradeResult.filled(account.balance, price, profitLoss);
+    });
+  }
+
+  void reset(int userId) {
+    call(() -> {
+      Account account = account(userId);
+      if (account != null) {
+        account.balance = TradeExecutor.STARTING_BALANCE;
+        account.positions.clear();
+        journal.append(new JournalEntry.Reset(userId, account.balance));
+      }
+      return null;
+    });
+  }
+
+  AccountView view(int userId) {
+    return call(() -> {
+      Account account = account(userId);
+      if (account == null) {
+        return null;
+      }
+      List<AccountView.Position> positions = new ArrayList<>(account.positions.size());
+      account.positions.forEach((symbol, position) -> {
+        if (position.amount.signum() > 0) {
+          positions.add(new AccountView.Position(symbol, position.amount, position.costBasis));
+        }
+      });
+      return new AccountView(account.balance, positions);
+    });
+  }
+
+  void shutdown(long timeoutMillis) throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private <T> T call(Supplier<T> task) {
+    Future<T> result = executor.submit(task::get);
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for account shard", e);
+    }
+  }
+
+  /** Accounts created after startup are loaded from Postgres on first use. */
+  private Account account(int userId) {
+    Account account = accounts.get(userId);
+    if (account != null) {
+      return account;
+    }
+    // Every order of the shard waits behind this load, so it queues rather than failing them all
+    Account loaded = ConcurrencyLimitedDataSource.queueing(() -> load(userId));
+    if (loaded != null) {
+      accounts.put(userId, loaded);
+    }
+    return loaded;
+  }
+
+  private Account load(int userId) {
+    List<BigDecimal> balance = jdbc.queryForList(
+        "SELECT balance FROM account_balance WHERE user_id = ?", BigDecimal.class, userId);
+    if (balance.isEmpty()) {
+      return null;
+    }
+    Account loaded = new Account(balance.get(0));
+    jdbc.query("SELECT symbol, amount, cost_basis FROM holdings WHERE user_id = ?", rs -> {
+      Position position = new Position();
+      position.amount = rs.getBigDecimal("amount");
+      position.costBasis = rs.getBigDecimal("cost_basis");
+      loaded.positions.put(rs.getString("symbol"), position);
+    }, userId);
+    return loaded;
+  }
+}
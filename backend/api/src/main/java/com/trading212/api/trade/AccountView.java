@@ -0,0 +1,11 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** Point-in-time copy of an account; positions are sorted by symbol and never empty. */
+public record AccountView(BigDecimal balance, List<Position> positions) {
+
+  public record Position(String symbol, BigDecimal amount, BigDecimal costBasis) {
+  }
+}
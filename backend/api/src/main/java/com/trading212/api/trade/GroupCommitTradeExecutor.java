@@ -0,0 +1,281 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.trading212.api.db.DedicatedPool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Executes orders with the same statements as {@link SqlTradeExecutor}, but
+ * groups them into shared transactions so a burst of orders pays for one
+ * commit instead of one each. A single writer thread collects orders until
+ * the batch is full or the wait window has passed, runs them in order, adds
+ * their ledger rows as one JDBC batch and commits. Callers are only answered
+ * after that commit, so an acknowledged order is as durable as before.
+ *
+ * If a batch fails as a whole, its orders are retried one by one with their
+ * own commits, so a single bad order cannot fail its neighbours.
+ *
+ * Callers wait at most {@code trade.group-commit.timeout} for their commit;
+ * orders still queued once the writer has stopped are failed rather than left
+ * waiting.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.execution", havingValue = "group-commit")
+public class GroupCommitTradeExecutor implements TradeExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(GroupCommitTradeExecutor.class);
+
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+  private static final String INSERT_LEDGER = """
+      INSERT INTO transactions (user_id, symbol, type, quantity, price, total, balance_after, profit_loss, created_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, NOW())
+      """;
+  private static final int[] LEDGER_TYPES = { Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC,
+      Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC };
+
+  private enum Kind {
+    BUY, SELL, RESET
+  }
+
+  private record Order(Kind kind, int userId, String symbol, BigDecimal quantity, BigDecimal price,
+      CompletableFuture<TradeResult> result) {
+  }
+
+  private final BlockingQueue<Order> queue;
+  private final NamedParameterJdbcTemplate jdbc;
+  private final TransactionTemplate transactions;
+  private final SqlTradeExecutor single;
+  private final SqlTradeExecutor reader;
+  private final int maxBatch;
+  private final long maxWaitNanos;
+  private final Duration timeout;
+  private final Thread writer;
+  private final Counter orders;
+  private final Counter fallbacks;
+  private final DistributionSummary batchSize;
+  private final Timer flushTimer;
+  private final Timer buyTimer;
+  private final Timer sellTimer;
+  private final Timer ledgerTimer;
+  private volatile boolean running = true;
+  // Set by the writer once it takes no more orders
+  private volatile boolean stopped;
+
+  public GroupCommitTradeExecutor(NamedParameterJdbcTemplate jdbc, @Qualifier("writerPool") DedicatedPool writers,
+      MeterRegistry meterRegistry,
+      @Value("${trade.group-commit.max-batch:256}") int maxBatch,
+      @Value("${trade.group-commit.max-wait:2ms}") Duration maxWait,
+      @Value("${trade.group-commit.capacity:10000}") int capacity,
+      @Value("${trade.group-commit.timeout:10s}") Duration timeout) {
+    this.queue = new LinkedBlockingQueue<>(capacity);
+    // The writer holds its connection for whole batches, so it uses the writer pool; reads share the main one
+    this.jdbc = writers.namedJdbc();
+    this.transactions = new TransactionTemplate(writers.transactionManager());
+    this.single = new SqlTradeExecutor(writers.namedJdbc(), meterRegistry);
+    this.reader = new SqlTradeExecutor(jdbc, meterRegistry);
+    this.maxBatch = maxBatch;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.timeout = timeout;
+    this.orders = Counter.builder("trade.group-commit.orders").register(meterRegistry);
+    this.fallbacks = Counter.builder("trade.group-commit.fallbacks").register(meterRegistry);
+    this.batchSize = DistributionSummary.builder("trade.group-commit.batch.size")
+        .publishPercentileHistogram().register(meterRegistry);
+    this.flushTimer = Timer.builder("trade.group-commit.flush")
+        .publishPercentileHistogram().register(meterRegistry);
+    this.buyTimer = SqlTradeExecutor.statementTimer(meterRegistry, "buy-without-ledger");
+    this.sellTimer = SqlTradeExecutor.statementTimer(meterRegistry, "sell-without-ledger");
+    this.ledgerTimer = SqlTradeExecutor.statementTimer(meterRegistry, "ledger-batch");
+    this.writer = Thread.ofPlatform().name("trade-group-commit").daemon().start(this::run);
+  }
+
+  @Override
+  public TradeResult buy(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return submit(new Order(Kind.BUY, userId, symbol, quantity, price, new CompletableFuture<>()));
+  }
+
+  @Override
+  public TradeResult sell(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return submit(new Order(Kind.SELL, userId, symbol, quantity, price, new CompletableFuture<>()));
+  }
+
+  /** Queued with the orders, so it cannot interleave with a batch holding the same rows. */
+  @Override
+  public void reset(int userId) {
+    submit(new Order(Kind.RESET, userId, null, null, null, new CompletableFuture<>()));
+  }
+
+  /** Reads committed state directly; everything acknowledged so far is visible. */
+  @Override
+  public AccountView account(int userId) {
+    return reader.account(userId);
+  }
+
+  private TradeResult submit(Order order) {
+    if (!running) {
+      throw new IllegalStateException("Trade executor is shutting down");
+    }
+    try {
+      queue.put(order);
+      // The writer may have stopped after the check above; it fails what it finds queued, this the rest
+      if (stopped && queue.remove(order)) {
+        order.result().completeExceptionally(new IllegalStateException("Trade executor is shutting down"));
+      }
+      return order.result().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("Order not committed within " + timeout.toMillis() + "ms; its outcome is unknown",
+          e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for order commit", e);
+    }
+  }
+
+  private void run() {
+    List<Order> batch = new ArrayList<>(maxBatch);
+    while (running || !queue.isEmpty()) {
+      try {
+        Order first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        collect(batch);
+        flush(batch);
+      } catch (InterruptedException e) {
+        break;
+      } finally {
+        batch.clear();
+      }
+    }
+    stopped = true;
+    Order left;
+    while ((left = queue.poll()) != null) {
+      left.result().completeExceptionally(new IllegalStateException("Trade executor is shutting down"));
+    }
+  }
+
+  /** Adds orders until the batch is full or the wait window since the first one has passed. */
+  private void collect(List<Order> batch) throws InterruptedException {
+    long deadline = System.nanoTime() + maxWaitNanos;
+    while (batch.size() < maxBatch) {
+      queue.drainTo(batch, maxBatch - batch.size());
+      long remaining = deadline - System.nanoTime();
+      if (batch.size() >= maxBatch || remaining <= 0) {
+        return;
+      }
+      Order next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+    }
+  }
+
+  private void flush(List<Order> batch) {
+    long start = System.nanoTime();
+    List<TradeResult> results;
+    try {
+      results = transactions.execute(status -> executeBatch(batch));
+    } catch (RuntimeException e) {
+      fallbacks.increment();
+      log.warn("Group commit of {} orders failed, retrying one by one: {}", batch.size(), e.getMessage());
+      batch.forEach(this::executeAlone);
+      return;
+    } finally {
+      flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      batchSize.record(batch.size());
+      orders.increment(batch.size());
+    }
+    // Only now is the batch durable
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).result().complete(results.get(i));
+    }
+  }
+
+  private List<TradeResult> executeBatch(List<Order> batch) {
+    List<TradeResult> results = new ArrayList<>(batch.size());
+    List<Object[]> ledger = new ArrayList<>(batch.size());
+    for (Order order : batch) {
+      if (order.kind() == Kind.RESET) {
+        single.reset(order.userId());
+        results.add(null);
+        continue;
+      }
+      var params = SqlTradeExecutor.params(order.userId(), order.symbol(), order.quantity(), order.price());
+      BigDecimal total = (BigDecimal) params.get("total");
+      TradeResult result;
+      if (order.kind() == Kind.BUY) {
+        result = SqlTradeExecutor.buyResult(
+            buyTimer.record(() -> jdbc.queryForMap(SqlTradeExecutor.BUY_WITHOUT_LEDGER, params)), order.price());
+        if (result.isFilled()) {
+          ledger.add(new Object[] { order.userId(), order.symbol(), "BUY", order.quantity(), order.price(), total,
+              result.balance(), null });
+        }
+      } else {
+        result = SqlTradeExecutor.sellResult(
+            sellTimer.record(() -> jdbc.queryForMap(SqlTradeExecutor.SELL_WITHOUT_LEDGER, params)), order.price());
+        if (result.isFilled()) {
+          ledger.add(new Object[] { order.userId(), order.symbol(), "SELL", order.quantity().negate(),
+              order.price(), total.negate(), result.balance(), result.profitLoss() });
+        }
+      }
+      results.add(result);
+    }
+    if (!ledger.isEmpty()) {
+      ledgerTimer.record(() -> jdbc.getJdbcOperations().batchUpdate(INSERT_LEDGER, ledger, LEDGER_TYPES));
+    }
+    return results;
+  }
+
+  private void executeAlone(Order order) {
+    try {
+      order.result().complete(switch (order.kind()) {
+        case BUY -> single.buy(order.userId(), order.symbol(), order.quantity(), order.price());
+        case SELL -> single.sell(order.userId(), order.symbol(), order.quantity(), order.price());
+        case RESET -> {
+          single.reset(order.userId());
+          yield null;
+        }
+      });
+    } catch (RuntimeException e) {
+      order.result().completeExceptionally(e);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    running = false;
+    writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+  }
+}
@@ -0,0 +1,25 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+
+/**
+ * A change made by {@link AccountEngine}, queued for {@link WriteBehindJournal}.
+ * Entries carry the resulting state rather than deltas, so replaying the
+ * newest entry per account or position is enough to bring Postgres up to date.
+ * Ledger rows are timestamped by Postgres when written, like those of the
+ * other executors, so history pages order them on one clock.
+ */
+sealed interface JournalEntry {
+
+  int userId();
+
+  /** A fill: the ledger row plus the balance and position it left behind. */
+  record Fill(int userId, String symbol, String type, BigDecimal quantity, BigDecimal price, BigDecimal total,
+      BigDecimal balanceAfter, BigDecimal profitLoss, BigDecimal amountAfter, BigDecimal costBasisAfter)
+      implements JournalEntry {
+  }
+
+  /** The account went back to the starting balance with no holdings. */
+  record Reset(int userId, BigDecimal balance) implements JournalEntry {
+  }
+}
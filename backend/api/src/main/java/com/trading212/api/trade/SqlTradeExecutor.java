@@ -0,0 +1,189 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Executes market orders against Postgres. Each order is one statement: a
+ * data-modifying CTE that checks funds or holdings, moves cash and position
+ * and writes the ledger row atomically, so concurrent orders for the same
+ * user cannot overdraw and every order costs a single round trip.
+ *
+ * Holdings carry a running cost basis, so realized P&L on a sell is computed
+ * from the position row alone rather than from the user's trade history.
+ *
+ * Every statement is timed as {@code trade.sql}, tagged with its name.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.execution", havingValue = "sql", matchIfMissing = true)
+public class SqlTradeExecutor implements TradeExecutor {
+
+  // Checks funds, debits and adds to the position; the ledger row is appended by the caller
+  private static final String BUY_CHANGES = """
+      WITH account AS (
+          SELECT balance FROM account_balance WHERE user_id = :userId
+      ), debit AS (
+          UPDATE account_balance SET balance = balance - :total, updated_at = NOW()
+          WHERE user_id = :userId AND balance >= :total
+          RETURNING balance
+      ), holding AS (
+          INSERT INTO holdings (user_id, symbol, amount, cost_basis, updated_at)
+          SELECT :userId, :symbol, :quantity, :total, NOW() FROM debit
+          ON CONFLICT (user_id, symbol)
+          DO UPDATE SET amount = holdings.amount + EXCLUDED.amount,
+              cost_basis = holdings.cost_basis + EXCLUDED.cost_basis, updated_at = NOW()
+      )""";
+
+  private static final String BUY_LEDGER = """
+      , ledger AS (
+          INSERT INTO transactions (user_id, symbol, type, quantity, price, total, balance_after, created_at)
+          SELECT :userId, :symbol, 'BUY', :quantity, :price, :total, debit.balance, NOW() FROM debit
+      )""";
+
+  private static final String BUY_RESULT = """
+
+      SELECT (SELECT balance FROM account) AS balance_before, (SELECT balance FROM debit) AS balance_after
+      """;
+
+  // The position is locked before it is read so the released cost is computed
+  // from the same row version the update applies to; selling reduces the cost
+  // basis proportionally, which leaves the average cost of the remainder
+  // unchanged. The account row is locked ahead of it, the order buys take, so
+  // a concurrent buy and sell for one user cannot deadlock.
+  private static final String SELL_CHANGES = """
+      WITH account AS (
+          SELECT balance FROM account_balance WHERE user_id = :userId
+          FOR UPDATE
+      ), position AS (
+          SELECT amount, cost_basis FROM holdings
+          WHERE user_id = :userId AND symbol = :symbol AND amount >= :quantity AND EXISTS (SELECT 1 FROM account)
+          FOR UPDATE
+      ), holding AS (
+          UPDATE holdings h
+          SET amount = h.amount - :quantity, cost_basis = h.cost_basis - p.cost_basis * :quantity / p.amount,
+              updated_at = NOW()
+          FROM position p
+          WHERE h.user_id = :userId AND h.symbol = :symbol
+          RETURNING ROUND(:total - p.cost_basis * :quantity / p.amount, 2) AS profit_loss
+      ), credit AS (
+          UPDATE account_balance SET balance = balance + :total, updated_at = NOW()
+          WHERE user_id = :userId AND EXISTS (SELECT 1 FROM holding)
+          RETURNING balance
+      )""";
+
+  private static final String SELL_LEDGER = """
+      , ledger AS (
+          INSERT INTO transactions (user_id, symbol, type, quantity, price, total, balance_after, profit_loss, created_at)
+          SELECT :userId, :symbol, 'SELL', -:quantity, :price, -:total, credit.balance, holding.profit_loss, NOW()
+          FROM credit, holding
+      )""";
+
+  private static final String SELL_RESULT = """
+
+      SELECT (SELECT balance FROM account) AS balance_before, (SELECT balance FROM credit) AS balance_after,
+          (SELECT profit_loss FROM holding) AS profit_loss
+      """;
+
+  private static final String BUY = BUY_CHANGES + BUY_LEDGER + BUY_RESULT;
+  private static final String SELL = SELL_CHANGES + SELL_LEDGER + SELL_RESULT;
+  static final String BUY_WITHOUT_LEDGER = BUY_CHANGES + BUY_RESULT;
+  static final String SELL_WITHOUT_LEDGER = SELL_CHANGES + SELL_RESULT;
+
+  private static final String RESET = """
+      WITH cleared AS (
+          DELETE FROM holdings WHERE user_id = :userId
+      )
+      UPDATE account_balance SET balance = :balance, updated_at = NOW() WHERE user_id = :userId
+      """;
+
+  private final NamedParameterJdbcTemplate jdbc;
+  private final Timer buyTimer;
+  private final Timer sellTimer;
+  private final Timer resetTimer;
+  private final Timer balanceTimer;
+  private final Timer holdingsTimer;
+
+  public SqlTradeExecutor(NamedParameterJdbcTemplate jdbc, MeterRegistry meterRegistry) {
+    this.jdbc = jdbc;
+    this.buyTimer = statementTimer(meterRegistry, "buy");
+    this.sellTimer = statementTimer(meterRegistry, "sell");
+    this.resetTimer = statementTimer(meterRegistry, "reset");
+    this.balanceTimer = statementTimer(meterRegistry, "balance");
+    this.holdingsTimer = statementTimer(meterRegistry, "holdings");
+  }
+
+  @Override
+  public TradeResult buy(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return buyResult(buyTimer.record(() -> jdbc.queryForMap(BUY, params(userId, symbol, quantity, price))), price);
+  }
+
+  @Override
+  public TradeResult sell(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return sellResult(sellTimer.record(() -> jdbc.queryForMap(SELL, params(userId, symbol, quantity, price))),
+        price);
+  }
+
+  @Override
+  public void reset(int userId) {
+    resetTimer.record(() -> jdbc.update(RESET, Map.of("userId", userId, "balance", STARTING_BALANCE)));
+  }
+
+  @Override
+  public AccountView account(int userId) {
+    List<BigDecimal> balance = balanceTimer.record(() -> jdbc.queryForList(
+        "SELECT balance FROM account_balance WHERE user_id = :userId", Map.of("userId", userId), BigDecimal.class));
+    if (balance.isEmpty()) {
+      return null;
+    }
+    List<AccountView.Position> positions = holdingsTimer.record(() -> jdbc.query(
+        "SELECT symbol, amount, cost_basis FROM holdings WHERE user_id = :userId AND amount > 0 ORDER BY symbol",
+        Map.of("userId", userId),
+        (rs, rowNum) -> new AccountView.Position(
+            rs.getString("symbol"), rs.getBigDecimal("amount"), rs.getBigDecimal("cost_basis"))));
+    return new AccountView(balance.get(0), positions);
+  }
+
+  static Timer statementTimer(MeterRegistry meterRegistry, String statement) {
+    return Timer.builder("trade.sql").tag("statement", statement)
+        .publishPercentileHistogram().register(meterRegistry);
+  }
+
+  static TradeResult buyResult(Map<String, Object> row, BigDecimal price) {
+    if (row.get("balance_before") == null) {
+      return TradeResult.rejected("Account balance not found for user");
+    }
+    BigDecimal balanceAfter = (BigDecimal) row.get("balance_after");
+    if (balanceAfter == null) {
+      return TradeResult.rejected("Insufficient balance");
+    }
+    return TradeResult.filled(balanceAfter, price, null);
+  }
+
+  static TradeResult sellResult(Map<String, Object> row, BigDecimal price) {
+    if (row.get("balance_before") == null) {
+      return TradeResult.rejected("Account balance not found for user");
+    }
+    BigDecimal balanceAfter = (BigDecimal) row.get("balance_after");
+    if (balanceAfter == null) {
+      return TradeResult.rejected("Insufficient holdings");
+    }
+    return TradeResult.filled(balanceAfter, price, (BigDecimal) row.get("profit_loss"));
+  }
+
+  static Map<String, Object> params(int userId, String symbol, BigDecimal quantity, BigDecimal price) {
+    return Map.of(
+        "userId", userId,
+        "symbol", symbol,
+        "quantity", quantity,
+        "price", price,
+        "total", quantity.multiply(price));
+  }
+}
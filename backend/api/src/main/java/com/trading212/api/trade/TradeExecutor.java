@@ -0,0 +1,25 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+
+/**
+ * Executes market orders and owns the account state they change. Selected
+ * with {@code trade.execution}: {@code sql} runs every order as a statement
+ * against Postgres, {@code group-commit} runs the same statements but shares
+ * commits between concurrent orders, and {@code memory} keeps accounts in
+ * process and persists behind the orders.
+ */
+public interface TradeExecutor {
+
+  BigDecimal STARTING_BALANCE = new BigDecimal("10000.00");
+
+  TradeResult buy(int userId, String symbol, BigDecimal quantity, BigDecimal price);
+
+  TradeResult sell(int userId, String symbol, BigDecimal quantity, BigDecimal price);
+
+  /** Restores the starting balance and clears all holdings; the ledger is kept. */
+  void reset(int userId);
+
+  /** Current balance and positions, or {@code null} if the user has no account. */
+  AccountView account(int userId);
+}
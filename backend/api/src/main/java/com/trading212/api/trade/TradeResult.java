@@ -0,0 +1,19 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+
+/** Outcome of an order: either an error message, or the fill and resulting balance. */
+public record TradeResult(String error, BigDecimal balance, BigDecimal price, BigDecimal profitLoss) {
+
+  public static TradeResult rejected(String error) {
+    return new TradeResult(error, null, null, null);
+  }
+
+  public static TradeResult filled(BigDecimal balance, BigDecimal price, BigDecimal profitLoss) {
+    return new TradeResult(null, balance, price, profitLoss);
+  }
+
+  public boolean isFilled() {
+    return error == null;
+  }
+}
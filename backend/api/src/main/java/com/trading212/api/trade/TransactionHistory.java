@@ -0,0 +1,195 @@
+package com.trading212.api.trade;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.trading212.api.db.DedicatedPool;
+
+/**
+ * Reads a user's transaction ledger newest first. Pages are addressed by a
+ * keyset cursor on {@code (created_at, id)}, which the
+ * {@code idx_transactions_user_created} index serves directly, so fetching a
+ * page costs the same however deep into the history it is. Exports stream
+ * rows from a server-side cursor instead of materializing the result, on
+ * the export pool, as they hold a connection for as long as the client reads.
+ */
+@Component
+public class TransactionHistory {
+
+  private static final String COLUMNS =
+      "id, symbol, type, quantity, price, total, balance_after, profit_loss, created_at";
+
+  /** Optional filters; {@code null} fields are not applied. {@code to} is exclusive. */
+  public record Filter(int userId, String symbol, String type, LocalDateTime from, LocalDateTime to) {
+  }
+
+  /** Position after the last row of a page, passed back by clients as an opaque token. */
+  public record Cursor(LocalDateTime createdAt, int id) {
+
+    public String encode() {
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString((createdAt + "/" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException if the token was not produced by {@link #encode()} */
+    public static Cursor parse(String token) {
+      try {
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int slash = decoded.lastIndexOf('/');
+        return new Cursor(LocalDateTime.parse(decoded.substring(0, slash)),
+            Integer.parseInt(decoded.substring(slash + 1)));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Invalid cursor", e);
+      }
+    }
+  }
+
+  /** {@code next} is {@code null} on the last page. */
+  public record Page(List<Map<String, Object>> rows, Cursor next) {
+  }
+
+  private final NamedParameterJdbcTemplate jdbc;
+  private final DedicatedPool exports;
+  private final TransactionTemplate readOnly;
+  private final int exportFetchSize;
+
+  public TransactionHistory(NamedParameterJdbcTemplate jdbc, @Qualifier("exportPool") DedicatedPool exports,
+      @Value("${history.export.fetch-size:500}") int exportFetchSize) {
+    this.jdbc = jdbc;
+    this.exports = exports;
+    this.readOnly = new TransactionTemplate(exports.transactionManager());
+    this.readOnly.setReadOnly(true);
+    this.exportFetchSize = exportFetchSize;
+  }
+
+  public Page page(Filter filter, Cursor after, int limit) {
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM transactions");
+    where(sql, params, filter);
+    if (after != null) {
+      sql.append(" AND (created_at, id) < (:afterCreatedAt, :afterId)");
+      params.addValue("afterCreatedAt", Timestamp.valueOf(after.createdAt()));
+      params.addValue("afterId", after.id());
+    }
+    // One extra row tells whether another page exists without a count query
+    sql.append(" ORDER BY created_at DESC, id DESC LIMIT :limit");
+    params.addValue("limit", limit + 1);
+
+    List<Map<String, Object>> rows = jdbc.query(sql.toString(), params, (rs, rowNum) -> row(rs));
+    if (rows.size() <= limit) {
+      return new Page(rows, null);
+    }
+    rows = rows.subList(0, limit);
+    Map<String, Object> last = rows.get(limit - 1);
+    return new Page(rows,
+        new Cursor(((Timestamp) last.get("created_at")).toLocalDateTime(), (Integer) last.get("id")));
+  }
+
+  /**
+   * Writes every matching row as CSV. Postgres only honours the fetch size
+   * inside a transaction, so the query runs in a read-only one and memory use
+   * stays bounded by a single batch of rows.
+   */
+  public void exportCsv(Filter filter, OutputStream out) throws IOException {
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM transactions");
+    where(sql, params, filter);
+    sql.append(" ORDER BY created_at DESC, id DESC");
+
+    ParsedSql parsed = NamedParameterUtils.parseSqlStatement(sql.toString());
+    String jdbcSql = NamedParameterUtils.substituteNamedParameters(parsed, params);
+    Object[] args = NamedParameterUtils.buildValueArray(parsed, params, null);
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write(COLUMNS.replace(", ", ",") + "\n");
+    readOnly.executeWithoutResult(status -> exports.jdbc().query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(jdbcSql);
+      statement.setFetchSize(exportFetchSize);
+      for (int i = 0; i < args.length; i++) {
+        statement.setObject(i + 1, args[i]);
+      }
+      return statement;
+    }, rs -> {
+      try {
+        writeCsv(writer, rs);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }));
+    writer.flush();
+  }
+
+  private static void where(StringBuilder sql, MapSqlParameterSource params, Filter filter) {
+    sql.append(" WHERE user_id = :userId");
+    params.addValue("userId", filter.userId());
+    if (filter.symbol() != null) {
+      sql.append(" AND symbol = :symbol");
+      params.addValue("symbol", filter.symbol());
+    }
+    if (filter.type() != null) {
+      sql.append(" AND type = :type");
+      params.addValue("type", filter.type());
+    }
+    if (filter.from() != null) {
+      sql.append(" AND created_at >= :from");
+      params.addValue("from", Timestamp.valueOf(filter.from()));
+    }
+    if (filter.to() != null) {
+      sql.append(" AND created_at < :to");
+      params.addValue("to", Timestamp.valueOf(filter.to()));
+    }
+  }
+
+  private static Map<String, Object> row(ResultSet rs) throws SQLException {
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("id", rs.getInt("id"));
+    row.put("symbol", rs.getString("symbol"));
+    row.put("type", rs.getString("type"));
+    row.put("quantity", rs.getBigDecimal("quantity"));
+    row.put("price", rs.getBigDecimal("price"));
+    row.put("total", rs.getBigDecimal("total"));
+    row.put("balance_after", rs.getBigDecimal("balance_after"));
+    row.put("profit_loss", rs.getBigDecimal("profit_loss"));
+    row.put("created_at", rs.getTimestamp("created_at"));
+    return row;
+  }
+
+  private static void writeCsv(Writer writer, ResultSet rs) throws SQLException, IOException {
+    // Symbols and types never contain commas or quotes, so no field needs escaping
+    writer.write(Integer.toString(rs.getInt("id")));
+    for (String column : new String[] { "symbol", "type", "quantity", "price", "total", "balance_after",
+        "profit_loss" }) {
+      String value = rs.getString(column);
+      writer.write(',');
+      if (value != null) {
+        writer.write(value);
+      }
+    }
+    writer.write(',');
+    writer.write(rs.getTimestamp("created_at").toLocalDateTime().toString());
+    writer.write('\n');
+  }
+}
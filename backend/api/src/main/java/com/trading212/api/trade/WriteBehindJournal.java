@@ -0,0 +1,243 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Persists {@link AccountEngine} changes to Postgres behind the orders. A
+ * single writer thread takes whatever has queued up since its last flush and
+ * writes it in one transaction: ledger rows, plus only the newest balance and
+ * position per account, so batches grow with load instead of the number of
+ * statements.
+ *
+ * A flush that fails because Postgres cannot be reached is retried with the
+ * same entries; nothing is dropped while the application is running. Any
+ * other failure means Postgres refused an entry: the batch is split until
+ * that entry is flushed alone, and then moved to {@code journal_dead_letters}
+ * with the error, counted in {@code trade.journal.dead-letters} and logged as
+ * an error. The entries around it are written as usual, and later entries for
+ * the same account carry its newer state, but a dead-lettered fill's ledger
+ * row only exists in the dead letter table.
+ */
+class WriteBehindJournal {
+
+  private static final Logger log = LoggerFactory.getLogger(WriteBehindJournal.class);
+
+  private static final long RETRY_DELAY_MILLIS = 1000;
+
+  private static final String DELETE_HOLDINGS = "DELETE FROM holdings WHERE user_id = ?";
+  private static final String UPDATE_BALANCE =
+      "UPDATE account_balance SET balance = ?, updated_at = NOW() WHERE user_id = ?";
+  private static final String UPSERT_HOLDING = """
+      INSERT INTO holdings (user_id, symbol, amount, cost_basis, updated_at) VALUES (?, ?, ?, ?, NOW())
+      ON CONFLICT (user_id, symbol)
+      DO UPDATE SET amount = EXCLUDED.amount, cost_basis = EXCLUDED.cost_basis, updated_at = NOW()
+      """;
+  private static final String INSERT_LEDGER = """
+      INSERT INTO transactions (user_id, symbol, type, quantity, price, total, balance_after, profit_loss, created_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, NOW())
+      """;
+  private static final int[] LEDGER_TYPES = { Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC,
+      Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC };
+  private static final String INSERT_DEAD_LETTER =
+      "INSERT INTO journal_dead_letters (user_id, entry, error) VALUES (?, ?, ?)";
+
+  private record PositionKey(int userId, String symbol) {
+  }
+
+  private final BlockingQueue<JournalEntry> queue;
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate transactions;
+  private final int maxBatch;
+  private final Thread writer;
+  private final Timer flushTimer;
+  private final DistributionSummary batchSize;
+  private final Counter failures;
+  private final Counter deadLetters;
+  private volatile boolean running = true;
+
+  WriteBehindJournal(JdbcTemplate jdbc, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+      int capacity, int maxBatch) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.jdbc = jdbc;
+    this.transactions = new TransactionTemplate(transactionManager);
+    this.maxBatch = maxBatch;
+    this.writer = Thread.ofPlatform().name("trade-journal").daemon().unstarted(this::run);
+    this.flushTimer = Timer.builder("trade.journal.flush").register(meterRegistry);
+    this.batchSize = DistributionSummary.builder("trade.journal.batch.size").register(meterRegistry);
+    this.failures = Counter.builder("trade.journal.failures").register(meterRegistry);
+    this.deadLetters = Counter.builder("trade.journal.dead-letters")
+        .description("Entries Postgres refused, moved to journal_dead_letters").register(meterRegistry);
+    Gauge.builder("trade.journal.pending", queue, BlockingQueue::size).register(meterRegistry);
+  }
+
+  void start() {
+    writer.start();
+  }
+
+  /**
+   * Queues an entry; blocks while the writer is a full queue behind, which
+   * slows the shards down to what Postgres can sustain.
+   */
+  void append(JournalEntry entry) {
+    try {
+      queue.put(entry);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while journaling an order", e);
+    }
+  }
+
+  /** Flushes what is queued and stops the writer, waiting at most {@code timeoutMillis}. */
+  void close(long timeoutMillis) throws InterruptedException {
+    running = false;
+    writer.join(timeoutMillis);
+    if (!queue.isEmpty()) {
+      log.error("Trade journal stopped with {} entries not persisted", queue.size());
+    }
+  }
+
+  private void run() {
+    List<JournalEntry> batch = new ArrayList<>(maxBatch);
+    while (running || !queue.isEmpty() || !batch.isEmpty()) {
+      try {
+        if (batch.isEmpty()) {
+          JournalEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+        }
+        queue.drainTo(batch, maxBatch - batch.size());
+        write(batch);
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        failures.increment();
+        log.warn("Trade journal flush of {} entries failed, retrying: {}", batch.size(), e.getMessage());
+        if (!running) {
+          log.error("Trade journal giving up on {} entries at shutdown", batch.size());
+          return;
+        }
+        try {
+          Thread.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException ie) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Flushes the batch, removing entries from it as they are written or
+   * dead-lettered; throws, leaving the rest, only if Postgres is unreachable.
+   */
+  private void write(List<JournalEntry> batch) {
+    int chunk = batch.size();
+    while (!batch.isEmpty()) {
+      List<JournalEntry> head = batch.subList(0, Math.min(chunk, batch.size()));
+      try {
+        flush(head);
+      } catch (RuntimeException e) {
+        if (unreachable(e)) {
+          throw e;
+        }
+        failures.increment();
+        if (head.size() > 1) {
+          chunk = (head.size() + 1) / 2;
+          continue;
+        }
+        deadLetter(head.get(0), e);
+      }
+      head.clear();
+      // Once past the refused entry, the rest goes in one flush again
+      chunk = batch.size();
+    }
+  }
+
+  private void deadLetter(JournalEntry entry, RuntimeException cause) {
+    deadLetters.increment();
+    log.error("Trade journal could not persist {}, moving it to journal_dead_letters: {}", entry,
+        cause.getMessage());
+    try {
+      jdbc.update(INSERT_DEAD_LETTER, entry.userId(), entry.toString(), cause.getMessage());
+    } catch (RuntimeException e) {
+      if (unreachable(e)) {
+        throw e;
+      }
+      // Logged above, which is then the only record of it
+      log.error("Could not dead-letter {} either: {}", entry, e.getMessage());
+    }
+  }
+
+  private static boolean unreachable(RuntimeException e) {
+    return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+        || e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException;
+  }
+
+  private void flush(List<JournalEntry> batch) {
+    Set<Integer> resets = new LinkedHashSet<>();
+    Map<Integer, BigDecimal> balances = new LinkedHashMap<>();
+    Map<PositionKey, Object[]> positions = new LinkedHashMap<>();
+    List<Object[]> ledger = new ArrayList<>(batch.size());
+    for (JournalEntry entry : batch) {
+      switch (entry) {
+        case JournalEntry.Reset reset -> {
+          resets.add(reset.userId());
+          balances.put(reset.userId(), reset.balance());
+          // Positions written before the reset are deleted with it
+          positions.keySet().removeIf(key -> key.userId() == reset.userId());
+        }
+        case JournalEntry.Fill fill -> {
+          balances.put(fill.userId(), fill.balanceAfter());
+          positions.put(new PositionKey(fill.userId(), fill.symbol()),
+              new Object[] { fill.userId(), fill.symbol(), fill.amountAfter(), fill.costBasisAfter() });
+          ledger.add(new Object[] { fill.userId(), fill.symbol(), fill.type(), fill.quantity(), fill.price(),
+              fill.total(), fill.balanceAfter(), fill.profitLoss() });
+        }
+      }
+    }
+
+    long start = System.nanoTime();
+    transactions.executeWithoutResult(status -> {
+      if (!resets.isEmpty()) {
+        jdbc.batchUpdate(DELETE_HOLDINGS, resets.stream().map(userId -> new Object[] { userId }).toList());
+      }
+      jdbc.batchUpdate(UPDATE_BALANCE, balances.entrySet().stream()
+          .map(balance -> new Object[] { balance.getValue(), balance.getKey() }).toList());
+      if (!positions.isEmpty()) {
+        jdbc.batchUpdate(UPSERT_HOLDING, new ArrayList<>(positions.values()));
+      }
+      if (!ledger.isEmpty()) {
+        jdbc.batchUpdate(INSERT_LEDGER, ledger, LEDGER_TYPES);
+      }
+    });
+    flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    batchSize.record(batch.size());
+  }
+}
@@ -0,0 +1,299 @@
+package com.trading212.api.ws;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.trading212.common.redis.TickStamps;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Outbound buffer of a single session. Frames are keyed (by symbol for
+ * ticks) and only the newest frame per key is kept, so a lagging client skips
+ * intermediate ticks instead of growing a backlog. At most one drain runs at a
+ * time, which also makes it the only writer to the session.
+ *
+ * A delta frame (see {@link TickStream}) that would replace a pending frame,
+ * or follow one that was dropped, is swapped for its tick's keyframe, since
+ * the client never sees what it was relative to. So is the first delta for a
+ * key since it was subscribed to, unless the subscribe snapshot got there
+ * first; a snapshot that loses that race is dropped, as the broadcast frame
+ * is newer and later deltas build on it.
+ */
+class SessionOutbox {
+
+  private static final Logger log = LoggerFactory.getLogger(SessionOutbox.class);
+
+  enum SlowConsumerPolicy {
+    /** Close sessions that overflow or block a send for too long. */
+    DISCONNECT,
+    /** Keep the session and drop frames for new keys while it is full. */
+    DROP
+  }
+
+  record Limits(int maxPending, long maxSendNanos, SlowConsumerPolicy policy) {
+  }
+
+  /**
+   * {@code fanout} times a tick from its receipt in the api to its write to
+   * this session, {@code endToEnd} from its receipt from Kraken in ingest.
+   */
+  record Meters(AtomicLong depth, Counter conflated, Counter dropped, Counter disconnects, Timer fanout,
+      Timer endToEnd) {
+  }
+
+  /**
+   * A frame with the times its tick was received from Kraken, in epoch
+   * micros, and by the api, in {@link System#nanoTime()}; zero when unknown,
+   * as for snapshots. One instance is shared by every session it goes to.
+   * Deltas carry their tick's keyframe, otherwise {@code keyframe} is null.
+   */
+  record Outbound(WebSocketMessage<?> message, long sourceReceivedAtMicros, long receivedAtNanos,
+      Supplier<Outbound> keyframe) {
+
+    Outbound(WebSocketMessage<?> message, long sourceReceivedAtMicros, long receivedAtNanos) {
+      this(message, sourceReceivedAtMicros, receivedAtNanos, null);
+    }
+  }
+
+  private final WebSocketSession session;
+  private final Executor sender;
+  private final Limits limits;
+  private final Meters meters;
+  private final Map<String, Outbound> pending = new ConcurrentHashMap<>();
+  private final Queue<String> order = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger depth = new AtomicInteger();
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  // Keys the client holds a current frame of, so a delta can follow
+  private final Map<String, Boolean> based = new ConcurrentHashMap<>();
+  private volatile StreamMode mode;
+  private volatile long sendStartedNanos;
+
+  SessionOutbox(WebSocketSession session, Executor sender, Limits limits, Meters meters) {
+    this.session = session;
+    this.sender = sender;
+    this.limits = limits;
+    this.meters = meters;
+  }
+
+  WebSocketSession session() {
+    return session;
+  }
+
+  int depth() {
+    return depth.get();
+  }
+
+  StreamMode mode() {
+    StreamMode current = mode;
+    return current == null ? StreamMode.FULL : current;
+  }
+
+  /** Sets the mode unless one is already set, and returns the mode in effect. */
+  synchronized StreamMode chooseMode(StreamMode requested) {
+    if (mode == null) {
+      mode = requested;
+    }
+    return mode;
+  }
+
+  void enqueue(String key, WebSocketMessage<?> message) {
+    enqueue(key, new Outbound(message, 0, 0));
+  }
+
+  void enqueue(String key, Outbound message) {
+    if (closed.get()) {
+      return;
+    }
+    if (limits.policy() == SlowConsumerPolicy.DISCONNECT && isSendStuck()) {
+      disconnect();
+      return;
+    }
+    // The key's first frame since it was subscribed to or dropped must stand on its own
+    if (based.get(key) == null && based.putIfAbsent(key, Boolean.TRUE) == null) {
+      message = whole(message);
+    }
+    boolean conflated;
+    if (message.keyframe() == null) {
+      conflated = pending.put(key, message) != null;
+    } else {
+      // A delta may only replace a frame the drain has not taken yet, and then as its keyframe
+      Outbound previous = pending.putIfAbsent(key, message);
+      while (previous != null && !pending.replace(key, previous, message.keyframe().get())) {
+        previous = pending.putIfAbsent(key, message);
+      }
+      conflated = previous != null;
+    }
+    if (conflated) {
+      meters.conflated().increment();
+    } else if (!admit(key)) {
+      based.remove(key);
+      return;
+    }
+    schedule();
+  }
+
+  /**
+   * Queues the latest known frame of a key just subscribed to, read after
+   * subscribing; dropped if a broadcast frame for the key got there first,
+   * as that one is newer and later deltas build on it.
+   */
+  void enqueueSnapshot(String key, WebSocketMessage<?> message) {
+    if (closed.get()) {
+      return;
+    }
+    Outbound snapshot = new Outbound(message, 0, 0);
+    boolean[] queued = new boolean[1];
+    // Claims the key and queues the snapshot in one step, so a broadcast
+    // frame for the key waits until the snapshot is in place
+    based.computeIfAbsent(key, k -> {
+      Outbound waiting = pending.putIfAbsent(k, snapshot);
+      if (waiting != null) {
+        // Left over from before the key was forgotten, and newer than the snapshot
+        pending.replace(k, waiting, whole(waiting));
+        return Boolean.TRUE;
+      }
+      queued[0] = admit(k);
+      return queued[0] ? Boolean.TRUE : null;
+    });
+    if (queued[0]) {
+      schedule();
+    }
+  }
+
+  /** Makes the next frame for the key a whole one, e.g. before subscribing to it again. */
+  void forget(String key) {
+    based.remove(key);
+  }
+
+  /** As {@link #forget}, for every key, e.g. before subscribing to every symbol. */
+  void forgetAll() {
+    based.clear();
+  }
+
+  /**
+   * Counts a frame just added under a new key, or drops it if the outbox is
+   * full, in which case the caller unclaims the key.
+   */
+  private boolean admit(String key) {
+    if (depth.incrementAndGet() > limits.maxPending()) {
+      // By key: another producer may have conflated the frame since, and would leave it unqueued
+      pending.remove(key);
+      depth.decrementAndGet();
+      meters.dropped().increment();
+      if (limits.policy() == SlowConsumerPolicy.DISCONNECT) {
+        disconnect();
+      }
+      return false;
+    }
+    meters.depth().incrementAndGet();
+    order.add(key);
+    return true;
+  }
+
+  private static Outbound whole(Outbound message) {
+    return message.keyframe() == null ? message : message.keyframe().get();
+  }
+
+  /** Drops everything still pending; called once the session is gone. */
+  void discard() {
+    closed.set(true);
+    String key;
+    while ((key = order.poll()) != null) {
+      if (pending.remove(key) != null) {
+        depth.decrementAndGet();
+        meters.depth().decrementAndGet();
+      }
+    }
+  }
+
+  private boolean isSendStuck() {
+    long started = sendStartedNanos;
+    return started != 0 && System.nanoTime() - started > limits.maxSendNanos();
+  }
+
+  private void schedule() {
+    if (draining.compareAndSet(false, true)) {
+      sender.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    try {
+      String key;
+      while (!closed.get() && (key = order.poll()) != null) {
+        Outbound message = pending.remove(key);
+        if (message == null) {
+          continue;
+        }
+        depth.decrementAndGet();
+        meters.depth().decrementAndGet();
+        send(message);
+      }
+    } finally {
+      draining.set(false);
+    }
+    // A producer may have added a key after the last poll but before the flag was cleared
+    if (!closed.get() && !order.isEmpty()) {
+      schedule();
+    }
+  }
+
+  private void send(Outbound message) {
+    if (!session.isOpen()) {
+      return;
+    }
+    WebSocketMessage<?> frame = message.message();
+    if (frame instanceof BinaryMessage binary) {
+      // Sending consumes the buffer, which every session of the mode shares
+      frame = new BinaryMessage(binary.getPayload().duplicate(), binary.isLast());
+    }
+    sendStartedNanos = System.nanoTime();
+    try {
+      session.sendMessage(frame);
+      if (message.receivedAtNanos() != 0) {
+        meters.fanout().record(System.nanoTime() - message.receivedAtNanos(), TimeUnit.NANOSECONDS);
+      }
+      if (message.sourceReceivedAtMicros() != 0) {
+        meters.endToEnd().record(TickStamps.nowMicros() - message.sourceReceivedAtMicros(), TimeUnit.MICROSECONDS);
+      }
+    } catch (IOException | IllegalStateException e) {
+      log.debug("Send to {} failed: {}", session.getId(), e.getMessage());
+    } finally {
+      sendStartedNanos = 0;
+    }
+  }
+
+  private void disconnect() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    meters.disconnects().increment();
+    // Closing writes a frame, which must not block the caller behind a stuck send
+    sender.execute(() -> {
+      try {
+        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+      } catch (IOException e) {
+        log.debug("Close of {} failed: {}", session.getId(), e.getMessage());
+      }
+    });
+  }
+}
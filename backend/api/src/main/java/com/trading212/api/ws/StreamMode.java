@@ -0,0 +1,25 @@
+package com.trading212.api.ws;
+
+/**
+ * How a session receives ticks, chosen by its first subscribe message.
+ * Frames other than ticks, such as portfolio valuations, are JSON in every
+ * mode.
+ */
+public enum StreamMode {
+  /** Every tick as the full ticker JSON ingest publishes. */
+  FULL,
+  /** A keyframe per symbol, then JSON deltas of the changed fields keyed by numeric symbol id. */
+  COMPACT,
+  /** As {@link #COMPACT}, in binary frames; see {@link TickStream}. */
+  BINARY;
+
+  /** Parses a subscribe message's {@code mode}; {@code null} when absent or unknown. */
+  static StreamMode parse(String mode) {
+    return switch (mode) {
+      case "full" -> FULL;
+      case "compact" -> COMPACT;
+      case "binary" -> BINARY;
+      default -> null;
+    };
+  }
+}
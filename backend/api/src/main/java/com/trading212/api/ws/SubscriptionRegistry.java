@@ -4,32 +4,250 @@ import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Which sessions are subscribed to which topics. Topic names are interned to
+ * small integer ids and every topic holds a copy-on-write array of its
+ * subscribers, so a broadcast is a walk over an array with no lookups per
+ * session; the copying is paid on subscribe and unsubscribe, which are rare
+ * next to ticks. A topic is dropped, and its id reused, once its last
+ * subscriber leaves.
+ *
+ * {@link #WILDCARD} subscribes a session to every symbol, meaning every topic
+ * outside a {@code prefix:} namespace such as {@code portfolio:<userId>}.
+ */
 @Component
 public class SubscriptionRegistry {
-  private final Map<String, Set<String>> tickerToSessions = new ConcurrentHashMap<>();
-  private final Map<String, Set<String>> sessionToTickers = new ConcurrentHashMap<>();
 
-  public void subscribe(String sessionId, String ticker) {
-    tickerToSessions.computeIfAbsent(ticker, _ -> ConcurrentHashMap.newKeySet()).add(sessionId);
-    sessionToTickers.computeIfAbsent(sessionId, _ -> ConcurrentHashMap.newKeySet()).add(ticker);
+  public static final String WILDCARD = "*";
+
+  /**
+   * Told whenever a session subscribes to or leaves a topic. Calls for the
+   * same topic can race, so a listener acting on {@code lastSubscriber}
+   * should re-check {@link #subscriberCount} before releasing anything.
+   */
+  public interface TopicListener {
+    void onSubscribe(String topic, boolean firstSubscriber);
+
+    void onUnsubscribe(String topic, boolean lastSubscriber);
+  }
+
+  /** A connected session as seen by the registry; changes to it are made under its monitor. */
+  public static final class Subscriber {
+
+    private final SessionOutbox outbox;
+    private final List<Topic> topics = new ArrayList<>(4);
+    // Ids of the topics above, replaced on every change so broadcasts can test them without locking
+    private volatile long[] topicIds = new long[1];
+    private boolean removed;
+
+    private Subscriber(SessionOutbox outbox) {
+      this.outbox = outbox;
+    }
+
+    SessionOutbox outbox() {
+      return outbox;
+    }
+
+    boolean holds(int topicId) {
+      long[] ids = topicIds;
+      int word = topicId >>> 6;
+      return word < ids.length && (ids[word] & (1L << topicId)) != 0;
+    }
+
+    private void mark(int topicId, boolean held) {
+      long[] ids = Arrays.copyOf(topicIds, Math.max(topicIds.length, (topicId >>> 6) + 1));
+      if (held) {
+        ids[topicId >>> 6] |= 1L << topicId;
+      } else {
+        ids[topicId >>> 6] &= ~(1L << topicId);
+      }
+      topicIds = ids;
+    }
+  }
+
+  /** An interned topic; its subscriber array is only changed inside the registry's map operations. */
+  static final class Topic {
+
+    private static final Subscriber[] NONE = new Subscriber[0];
+
+    private final String name;
+    private final int id;
+    private volatile Subscriber[] subscribers = NONE;
+
+    private Topic(String name, int id) {
+      this.name = name;
+      this.id = id;
+    }
+
+    String name() {
+      return name;
+    }
+
+    int id() {
+      return id;
+    }
+
+    /** The current subscribers; the array is never modified once published. */
+    Subscriber[] subscribers() {
+      return subscribers;
+    }
+
+    private boolean add(Subscriber subscriber) {
+      Subscriber[] current = subscribers;
+      for (Subscriber existing : current) {
+        if (existing == subscriber) {
+          return false;
+        }
+      }
+      Subscriber[] updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = subscriber;
+      subscribers = updated;
+      return true;
+    }
+
+    private boolean remove(Subscriber subscriber) {
+      Subscriber[] current = subscribers;
+      for (int i = 0; i < current.length; i++) {
+        if (current[i] == subscriber) {
+          Subscriber[] updated = new Subscriber[current.length - 1];
+          System.arraycopy(current, 0, updated, 0, i);
+          System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+          subscribers = updated;
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+  private final BitSet usedIds = new BitSet();
+  private final Topic wildcard;
+  private final List<TopicListener> listeners = new CopyOnWriteArrayList<>();
+
+  public SubscriptionRegistry() {
+    // The wildcard is looked up on every symbol broadcast, so it is never dropped
+    wildcard = new Topic(WILDCARD, allocateId());
+    topics.put(WILDCARD, wildcard);
   }
 
-  public void unsubscribe(String sessionId, String ticker) {
-    tickerToSessions.getOrDefault(ticker, Set.of()).remove(sessionId);
-    sessionToTickers.getOrDefault(sessionId, Set.of()).remove(ticker);
+  /** Whether the topic is a symbol, and so covered by {@link #WILDCARD}. */
+  public static boolean isSymbol(String topic) {
+    return topic.indexOf(':') < 0 && !WILDCARD.equals(topic);
   }
 
-  public void removeSession(String sessionId) {
-    Set<String> tickers = sessionToTickers.remove(sessionId);
-    if (tickers != null) {
-      for (String ticker : tickers) {
-        tickerToSessions.getOrDefault(ticker, Set.of()).remove(sessionId);
+  public void addListener(TopicListener listener) {
+    listeners.add(listener);
+  }
+
+  Subscriber register(SessionOutbox outbox) {
+    return new Subscriber(outbox);
+  }
+
+  public void subscribe(Subscriber subscriber, String name) {
+    boolean[] added = new boolean[1];
+    boolean[] first = new boolean[1];
+    synchronized (subscriber) {
+      if (subscriber.removed) {
+        return;
+      }
+      Topic topic = topics.compute(name, (_, existing) -> {
+        Topic joined = existing != null ? existing : new Topic(name, allocateId());
+        added[0] = joined.add(subscriber);
+        first[0] = joined.subscribers.length == 1;
+        return joined;
+      });
+      if (added[0]) {
+        subscriber.topics.add(topic);
+        subscriber.mark(topic.id, true);
       }
     }
+    if (added[0]) {
+      listeners.forEach(listener -> listener.onSubscribe(name, first[0]));
+    }
   }
 
-  public Set<String> getSubscribers(String ticker) {
-    return tickerToSessions.getOrDefault(ticker, Set.of());
+  public void unsubscribe(Subscriber subscriber, String name) {
+    Topic held = null;
+    synchronized (subscriber) {
+      for (Iterator<Topic> it = subscriber.topics.iterator(); it.hasNext();) {
+        Topic topic = it.next();
+        if (topic.name.equals(name)) {
+          it.remove();
+          held = topic;
+          break;
+        }
+      }
+      if (held != null) {
+        subscriber.mark(held.id, false);
+      }
+    }
+    if (held != null) {
+      leave(subscriber, held);
+    }
+  }
+
+  public void removeSession(Subscriber subscriber) {
+    List<Topic> held;
+    synchronized (subscriber) {
+      subscriber.removed = true;
+      held = List.copyOf(subscriber.topics);
+      subscriber.topics.clear();
+      subscriber.topicIds = new long[1];
+    }
+    for (Topic topic : held) {
+      leave(subscriber, topic);
+    }
+  }
+
+  /** The topic, or null if nobody is subscribed to it. */
+  Topic topic(String name) {
+    return topics.get(name);
+  }
+
+  Topic wildcard() {
+    return wildcard;
+  }
+
+  public int subscriberCount(String topic) {
+    Topic subscribed = topics.get(topic);
+    return subscribed == null ? 0 : subscribed.subscribers.length;
+  }
+
+  private void leave(Subscriber subscriber, Topic topic) {
+    boolean[] removed = new boolean[1];
+    boolean[] last = new boolean[1];
+    // Topics without subscribers are dropped so listeners see the last one leave
+    topics.computeIfPresent(topic.name, (_, current) -> {
+      if (current != topic) {
+        return current;
+      }
+      removed[0] = topic.remove(subscriber);
+      last[0] = topic.subscribers.length == 0;
+      if (last[0] && topic != wildcard) {
+        releaseId(topic.id);
+        return null;
+      }
+      return topic;
+    });
+    if (removed[0]) {
+      listeners.forEach(listener -> listener.onUnsubscribe(topic.name, last[0]));
+    }
+  }
+
+  private int allocateId() {
+    synchronized (usedIds) {
+      int id = usedIds.nextClearBit(0);
+      usedIds.set(id);
+      return id;
+    }
+  }
+
+  private void releaseId(int id) {
+    synchronized (usedIds) {
+      usedIds.clear(id);
+    }
   }
 }
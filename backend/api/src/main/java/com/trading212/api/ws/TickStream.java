@@ -0,0 +1,297 @@
+package com.trading212.api.ws;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.common.codec.TickerBinaryCodec;
+import com.trading212.common.model.FixedPointTicker;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+/**
+ * Encodes ticks for {@link StreamMode#COMPACT} and {@link StreamMode#BINARY}
+ * sessions. Each symbol gets a numeric id for the life of the process. A
+ * keyframe carries the id, the symbol and every field; a delta carries the id
+ * and only the fields that changed since the symbol's previous tick, and is
+ * not sent at all when none did. Compact frames are JSON with short names:
+ *
+ * <pre>
+ * {"f":3,"s":"BTC/USD","b":97000.1,"bq":0.5,"a":97000.2,"aq":1.25,"l":97000.1,"v":1234.5,"vw":96500.3,"lo":95000.0,"h":98000.0,"c":1500.1,"cp":1.57}
+ * {"d":3,"b":97000.2,"a":97000.3}
+ * </pre>
+ *
+ * Binary frames are
+ *
+ * <pre>
+ * u8      0xD1 for a keyframe, 0xD2 for a delta
+ * varint  zig-zag encoded symbol id
+ * u8      symbol length, followed by the UTF-8 symbol (keyframes only)
+ * u16     mask of the fields carried, bit 0 for bid to bit 10 for change_pct
+ * u8 x 3  price, quantity and change_pct scales of the tick
+ * varint  zig-zag encoded mantissa of every carried field
+ * </pre>
+ *
+ * A delta is only correct on top of the tick before it, so a session that
+ * misses one gets the tick's keyframe instead (see {@link SessionOutbox}). A
+ * symbol's previous tick is forgotten whenever a tick reaches no compact or
+ * binary session, and its next tick goes out as a keyframe. A tick that does
+ * not fit fixed point goes to binary sessions as a compact keyframe.
+ */
+final class TickStream {
+
+  static final byte BINARY_KEYFRAME = (byte) 0xD1;
+  static final byte BINARY_DELTA = (byte) 0xD2;
+
+  private static final String[] FIELDS = { "b", "bq", "a", "aq", "l", "v", "vw", "lo", "h", "c", "cp" };
+
+  private static final class SymbolState {
+    final int id;
+    final byte[] symbol;
+    // The last tick encoded, or null; only used on the broadcasting thread
+    Ticker last;
+
+    SymbolState(int id, String symbol) {
+      this.id = id;
+      this.symbol = symbol.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  private final Map<String, SymbolState> symbols = new ConcurrentHashMap<>();
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final JsonFactory jsonFactory;
+
+  TickStream(JsonFactory jsonFactory) {
+    this.jsonFactory = jsonFactory;
+  }
+
+  private SymbolState state(String symbol) {
+    return symbols.computeIfAbsent(symbol, s -> new SymbolState(nextId.getAndIncrement(), s));
+  }
+
+  /** The frames of a tick; {@code full} is what {@link StreamMode#FULL} sessions get. */
+  Frames frames(PriceBook.Quote quote, SessionOutbox.Outbound full) {
+    return new Frames(state(quote.symbol()), quote, full);
+  }
+
+  /** A keyframe of the quote for a single session, e.g. on subscribe. */
+  WebSocketMessage<?> keyframe(PriceBook.Quote quote, StreamMode mode) {
+    SymbolState state = state(quote.symbol());
+    Ticker ticker = quote.ticker();
+    return switch (mode) {
+      case FULL -> new TextMessage(quote.json());
+      case COMPACT -> new TextMessage(json(state, ticker, -1));
+      case BINARY -> binaryKeyframe(state, ticker);
+    };
+  }
+
+  private WebSocketMessage<?> binaryKeyframe(SymbolState state, Ticker ticker) {
+    try {
+      return new BinaryMessage(binary(state, FixedPointTicker.from(ticker), -1));
+    } catch (ArithmeticException e) {
+      return new TextMessage(json(state, ticker, -1));
+    }
+  }
+
+  /**
+   * The frames of one tick in every mode, each encoded on first use and then
+   * shared. Used by the broadcasting thread only, which must call
+   * {@link #finish} once the tick has been queued everywhere.
+   */
+  final class Frames {
+
+    private final SymbolState state;
+    private final PriceBook.Quote quote;
+    private final SessionOutbox.Outbound full;
+    private boolean prepared;
+    private Ticker ticker;
+    // Fields that differ from the previous tick; -1 when only a keyframe will do
+    private int changed;
+    private FixedPointTicker fixedPoint;
+    private SessionOutbox.Outbound compactKeyframe;
+    private SessionOutbox.Outbound compactDelta;
+    private SessionOutbox.Outbound binaryKeyframe;
+    private SessionOutbox.Outbound binaryDelta;
+
+    private Frames(SymbolState state, PriceBook.Quote quote, SessionOutbox.Outbound full) {
+      this.state = state;
+      this.quote = quote;
+      this.full = full;
+    }
+
+    /** The frame for sessions in the mode, or {@code null} if they need nothing. */
+    SessionOutbox.Outbound forMode(StreamMode mode) {
+      return switch (mode) {
+        case FULL -> full;
+        case COMPACT -> compactDelta();
+        case BINARY -> binaryDelta();
+      };
+    }
+
+    /** Forgets the symbol's previous tick if no session needed this one encoded. */
+    void finish() {
+      if (!prepared) {
+        state.last = null;
+      }
+    }
+
+    private void prepare() {
+      if (prepared) {
+        return;
+      }
+      prepared = true;
+      ticker = quote.ticker();
+      changed = changedFields(state.last, ticker);
+      state.last = ticker;
+    }
+
+    private SessionOutbox.Outbound compactKeyframe() {
+      prepare();
+      if (compactKeyframe == null) {
+        compactKeyframe = outbound(new TextMessage(json(state, ticker, -1)), false);
+      }
+      return compactKeyframe;
+    }
+
+    private SessionOutbox.Outbound compactDelta() {
+      prepare();
+      if (changed == -1) {
+        return compactKeyframe();
+      }
+      if (changed == 0) {
+        return null;
+      }
+      if (compactDelta == null) {
+        compactDelta = outbound(new TextMessage(json(state, ticker, changed)), true);
+      }
+      return compactDelta;
+    }
+
+    private SessionOutbox.Outbound binaryKeyframe() {
+      prepare();
+      if (binaryKeyframe == null) {
+        binaryKeyframe = fixedPoint() == null ? compactKeyframe()
+            : outbound(new BinaryMessage(binary(state, fixedPoint, -1)), false);
+      }
+      return binaryKeyframe;
+    }
+
+    private SessionOutbox.Outbound binaryDelta() {
+      prepare();
+      if (changed == -1 || fixedPoint() == null) {
+        return binaryKeyframe();
+      }
+      if (changed == 0) {
+        return null;
+      }
+      if (binaryDelta == null) {
+        binaryDelta = outbound(new BinaryMessage(binary(state, fixedPoint, changed)), true);
+      }
+      return binaryDelta;
+    }
+
+    private FixedPointTicker fixedPoint() {
+      if (fixedPoint == null) {
+        try {
+          fixedPoint = FixedPointTicker.from(ticker);
+        } catch (ArithmeticException e) {
+          return null;
+        }
+      }
+      return fixedPoint;
+    }
+
+    private SessionOutbox.Outbound outbound(WebSocketMessage<?> message, boolean delta) {
+      Supplier<SessionOutbox.Outbound> keyframe = !delta ? null
+          : message instanceof BinaryMessage ? this::binaryKeyframe : this::compactKeyframe;
+      return new SessionOutbox.Outbound(message, full.sourceReceivedAtMicros(), full.receivedAtNanos(), keyframe);
+    }
+  }
+
+  /** Mask of the fields that differ, or -1 if there is no previous tick or a field went missing. */
+  static int changedFields(Ticker previous, Ticker current) {
+    if (previous == null) {
+      return -1;
+    }
+    BigDecimal[] before = fields(previous);
+    BigDecimal[] after = fields(current);
+    int changed = 0;
+    for (int i = 0; i < after.length; i++) {
+      if (after[i] == null) {
+        if (before[i] != null) {
+          return -1;
+        }
+      } else if (before[i] == null || after[i].compareTo(before[i]) != 0) {
+        changed |= 1 << i;
+      }
+    }
+    return changed;
+  }
+
+  /** Compact JSON of the fields in {@code mask}, or a keyframe of every present field for -1. */
+  private byte[] json(SymbolState state, Ticker ticker, int mask) {
+    BigDecimal[] values = fields(ticker);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(mask == -1 ? 192 : 48);
+    try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+      generator.writeStartObject();
+      if (mask == -1) {
+        generator.writeNumberField("f", state.id);
+        generator.writeStringField("s", ticker.symbol());
+      } else {
+        generator.writeNumberField("d", state.id);
+      }
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != null && (mask == -1 || (mask & (1 << i)) != 0)) {
+          generator.writeFieldName(FIELDS[i]);
+          generator.writeNumber(values[i].toPlainString());
+        }
+      }
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not encode ticker for " + ticker.symbol(), e);
+    }
+    return out.toByteArray();
+  }
+
+  /** Binary frame of the fields in {@code mask}, or a keyframe of every present field for -1. */
+  private static byte[] binary(SymbolState state, FixedPointTicker ticker, int mask) {
+    boolean keyframe = mask == -1;
+    int carried = keyframe ? ticker.mask() : mask & ticker.mask();
+    ByteBuffer out = ByteBuffer.allocate(TickerBinaryCodec.MAX_SIZE + 10);
+    out.put(keyframe ? BINARY_KEYFRAME : BINARY_DELTA);
+    TickerBinaryCodec.writeVarLong(out, state.id);
+    if (keyframe) {
+      out.put((byte) state.symbol.length);
+      out.put(state.symbol);
+    }
+    out.putShort((short) carried);
+    out.put((byte) ticker.priceScale());
+    out.put((byte) ticker.qtyScale());
+    out.put((byte) ticker.pctScale());
+    for (int field = 0; field < FixedPointTicker.FIELD_COUNT; field++) {
+      if ((carried & (1 << field)) != 0) {
+        TickerBinaryCodec.writeVarLong(out, ticker.mantissa(field));
+      }
+    }
+    return Arrays.copyOf(out.array(), out.position());
+  }
+
+  private static BigDecimal[] fields(Ticker ticker) {
+    return new BigDecimal[] { ticker.bid(), ticker.bid_qty(), ticker.ask(), ticker.ask_qty(), ticker.last(),
+        ticker.volume(), ticker.vwap(), ticker.low(), ticker.high(), ticker.change(), ticker.change_pct() };
+  }
+}
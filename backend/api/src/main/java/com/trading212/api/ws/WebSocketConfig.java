@@ -1,24 +1,67 @@
 package com.trading212.api.ws;
 
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.server.ServerEndpointConfig;
 
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
   private final WebSocketHandler webSocketHandler;
+  private final boolean permessageDeflate;
 
-  public WebSocketConfig(WebSocketHandler webSocketHandler) {
+  public WebSocketConfig(WebSocketHandler webSocketHandler,
+      @Value("${ws.permessage-deflate.enabled:true}") boolean permessageDeflate) {
     this.webSocketHandler = webSocketHandler;
+    this.permessageDeflate = permessageDeflate;
   }
 
   @Override
   public void registerWebSocketHandlers(@NonNull WebSocketHandlerRegistry registry) {
     registry.addHandler(webSocketHandler, "/ws")
+        .setHandshakeHandler(permessageDeflate ? new DefaultHandshakeHandler()
+            : new DefaultHandshakeHandler(new NoExtensionsUpgradeStrategy()))
         .setAllowedOriginPatterns("*");
   }
-}
\ No newline at end of file
+
+  /**
+   * Declines every extension a client offers; permessage-deflate is the only
+   * one Tomcat has. Tomcat negotiates from the request header rather than
+   * from the extensions Spring selected, so the header is hidden from it.
+   */
+  private static final class NoExtensionsUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+        ServerEndpointConfig endpointConfig, Map<String, String> pathParams) throws Exception {
+      super.upgradeHttpToWebSocket(new HttpServletRequestWrapper(request) {
+        @Override
+        public String getHeader(String name) {
+          return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+          return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+      }, response, endpointConfig, pathParams);
+    }
+  }
+}
@@ -1,10 +1,17 @@
 package com.trading212.api.ws;
 
-import java.io.IOException;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
@@ -13,68 +20,220 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.prices.PriceBook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 
 @Component
 public class WebSocketHandler extends TextWebSocketHandler {
 
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(WebSocketHandler.class);
+    private static final String SUBSCRIBER = "subscriber";
+
+    private final AtomicInteger openSessions = new AtomicInteger();
     private final SubscriptionRegistry subscriptionRegistry;
     private final ObjectMapper objectMapper;
+    private final PriceBook priceBook;
+    private final TickStream tickStream;
+    // Sends block on slow clients, so each session drains on its own virtual thread
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final SessionOutbox.Limits outboxLimits;
+    private final SessionOutbox.Meters outboxMeters;
 
-    WebSocketHandler(SubscriptionRegistry subscriptionRegistry, ObjectMapper objectMapper) {
+    WebSocketHandler(SubscriptionRegistry subscriptionRegistry, ObjectMapper objectMapper, PriceBook priceBook,
+            MeterRegistry meterRegistry,
+            @Value("${ws.outbound.max-pending:256}") int maxPending,
+            @Value("${ws.outbound.max-send-time:5s}") Duration maxSendTime,
+            @Value("${ws.outbound.slow-consumer-policy:disconnect}") SessionOutbox.SlowConsumerPolicy policy) {
         this.subscriptionRegistry = subscriptionRegistry;
         this.objectMapper = objectMapper;
+        this.priceBook = priceBook;
+        this.tickStream = new TickStream(objectMapper.getFactory());
+        this.outboxLimits = new SessionOutbox.Limits(maxPending, maxSendTime.toNanos(), policy);
+        this.outboxMeters = new SessionOutbox.Meters(
+                new AtomicLong(),
+                Counter.builder("ws.outbound.conflated").register(meterRegistry),
+                Counter.builder("ws.outbound.dropped").register(meterRegistry),
+                Counter.builder("ws.outbound.slow.disconnects").register(meterRegistry),
+                Timer.builder("ticks.stage.latency").tag("stage", "fanout")
+                        .description("Receipt in the api to WebSocket write")
+                        .publishPercentileHistogram().register(meterRegistry),
+                Timer.builder("ticks.latency")
+                        .description("Kraken receive in ingest to WebSocket write")
+                        .publishPercentileHistogram().register(meterRegistry));
+        Gauge.builder("ws.outbound.depth", outboxMeters.depth(), AtomicLong::get).register(meterRegistry);
+        Gauge.builder("ws.sessions", openSessions, AtomicInteger::get).register(meterRegistry);
+        // Per-topic gauges only for priced symbols and the wildcard; clients pick topic names, which must not pick tags
+        subscriptionRegistry.addListener(new SubscriptionRegistry.TopicListener() {
+            @Override
+            public void onSubscribe(String topic, boolean firstSubscriber) {
+                if (firstSubscriber && (priceBook.contains(topic) || SubscriptionRegistry.WILDCARD.equals(topic))) {
+                    Gauge.builder("ws.subscriptions", subscriptionRegistry, r -> r.subscriberCount(topic))
+                            .tag("topic", topic).register(meterRegistry);
+                }
+            }
+
+            @Override
+            public void onUnsubscribe(String topic, boolean lastSubscriber) {
+            }
+        });
     }
 
     @Override
     public void afterConnectionEstablished(@NonNull WebSocketSession session) {
-        String clientId = UUID.randomUUID().toString();
-        session.getAttributes().put("clientId", clientId);
-        sessions.put(clientId, session);
-        System.out.println("Connected: " + clientId);
+        SessionOutbox outbox = new SessionOutbox(session, sender, outboxLimits, outboxMeters);
+        session.getAttributes().put(SUBSCRIBER, subscriptionRegistry.register(outbox));
+        openSessions.incrementAndGet();
+        log.debug("Connected: {}", session.getId());
     }
 
     @Override
     protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) throws Exception {
         // Expecting JSON like: { "type": "subscribe", "topic": "BTC/USD" }
-        // or { "type": "subscribe", "topics": ["BTC/USD", "ETH/USD"] }
+        // or { "type": "subscribe", "topics": ["BTC/USD", "ETH/USD"] }, and the same with "unsubscribe"
+        // "*" stands for every symbol; "portfolio:<userId>" topics carry that user's live portfolio valuation
+        // The first subscribe may add "mode": "full" (default), "compact" or "binary"; see StreamMode
         var msg = objectMapper.readTree(message.getPayload());
+        String type = msg.path("type").asText();
+        boolean subscribe = "subscribe".equals(type);
+        if (!subscribe && !"unsubscribe".equals(type)) {
+            return;
+        }
+        var subscriber = (SubscriptionRegistry.Subscriber) session.getAttributes().get(SUBSCRIBER);
+        StreamMode mode = subscriber.outbox().mode();
+        if (subscribe) {
+            StreamMode requested = StreamMode.parse(msg.path("mode").asText("full"));
+            mode = subscriber.outbox().chooseMode(requested != null ? requested : StreamMode.FULL);
+            if (requested != null && requested != mode) {
+                log.debug("{} keeps mode {}, ignoring {}", session.getId(), mode, requested);
+            }
+        }
 
-        if (msg.has("type") && "subscribe".equals(msg.get("type").asText())) {
-            String clientId = (String) session.getAttributes().get("clientId");
-
-            if (msg.has("topic")) {
-                String topic = msg.get("topic").asText();
-                subscriptionRegistry.subscribe(clientId, topic);
-                System.out.println(clientId + " subscribed to " + topic);
+        List<String> topics = new ArrayList<>();
+        if (msg.has("topic")) {
+            topics.add(msg.get("topic").asText());
+        }
+        if (msg.has("topics")) {
+            msg.get("topics").elements().forEachRemaining(topic -> topics.add(topic.asText()));
+        }
+        for (String topic : topics) {
+            if (subscribe && SubscriptionRegistry.isSymbol(topic) && !priceBook.isListed(topic)) {
+                // Every subscribed symbol costs a Redis subscription and price book state, so only real ones are
+                log.debug("{} ignored unknown symbol {}", session.getId(), topic);
+                continue;
             }
-            if (msg.has("topics")) {
-                msg.get("topics").elements().forEachRemaining(topic -> {
-                    subscriptionRegistry.subscribe(clientId, topic.asText());
-                    System.out.println(clientId + " subscribed to " + topic);
-                });
+            if (subscribe) {
+                // Before subscribing, so the first frame the session gets for the topic is a whole one
+                if (SubscriptionRegistry.WILDCARD.equals(topic)) {
+                    subscriber.outbox().forgetAll();
+                } else {
+                    subscriber.outbox().forget(topic);
+                }
+                subscriptionRegistry.subscribe(subscriber, topic);
+                sendSnapshot(subscriber.outbox(), topic, mode);
+            } else {
+                subscriptionRegistry.unsubscribe(subscriber, topic);
             }
+            log.debug("{} {}d {}", session.getId(), type, topic);
         }
     }
 
     public void broadcastToTopic(String topic, String message) {
-        subscriptionRegistry.getSubscribers(topic).forEach(clientId -> {
-            WebSocketSession session = sessions.get(clientId);
-            if (session != null && session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(message));
-                } catch (IOException e) {
-                    e.printStackTrace();
+        broadcastToTopic(topic, new TextMessage(message));
+    }
+
+    /**
+     * Queues the message for every subscriber; never blocks on the clients
+     * themselves. The same immutable message instance is shared by all of them.
+     */
+    public void broadcastToTopic(String topic, TextMessage message) {
+        broadcastToTopic(topic, message, 0, 0);
+    }
+
+    /**
+     * As {@link #broadcastToTopic(String, TextMessage)}, for a tick received
+     * from Kraken at the given epoch micros and by this process at the given
+     * {@link System#nanoTime()}, so that its writes feed the latency timers.
+     */
+    public void broadcastToTopic(String topic, TextMessage message, long sourceReceivedAtMicros,
+            long receivedAtNanos) {
+        var outbound = new SessionOutbox.Outbound(message, sourceReceivedAtMicros, receivedAtNanos);
+        fanOut(topic, mode -> outbound);
+    }
+
+    /**
+     * Broadcasts a tick from ingest to the symbol's subscribers in each
+     * session's {@link StreamMode}. Each mode's frame is encoded once and
+     * shared; ticks must be broadcast from a single thread, in order.
+     */
+    public void broadcastTick(PriceBook.Quote quote, long sourceReceivedAtMicros, long receivedAtNanos) {
+        var full = new SessionOutbox.Outbound(new TextMessage(quote.json()), sourceReceivedAtMicros,
+                receivedAtNanos);
+        TickStream.Frames frames = tickStream.frames(quote, full);
+        fanOut(quote.symbol(), frames::forMode);
+        frames.finish();
+    }
+
+    private void fanOut(String topic, Function<StreamMode, SessionOutbox.Outbound> frameForMode) {
+        SubscriptionRegistry.Topic subscribed = subscriptionRegistry.topic(topic);
+        if (subscribed != null) {
+            for (SubscriptionRegistry.Subscriber subscriber : subscribed.subscribers()) {
+                enqueue(subscriber.outbox(), topic, frameForMode);
+            }
+        }
+        if (SubscriptionRegistry.isSymbol(topic)) {
+            for (SubscriptionRegistry.Subscriber subscriber : subscriptionRegistry.wildcard().subscribers()) {
+                // Sessions that also named the symbol already have it
+                if (subscribed == null || !subscriber.holds(subscribed.id())) {
+                    enqueue(subscriber.outbox(), topic, frameForMode);
                 }
             }
-        });
+        }
+    }
+
+    private static void enqueue(SessionOutbox outbox, String topic,
+            Function<StreamMode, SessionOutbox.Outbound> frameForMode) {
+        SessionOutbox.Outbound outbound = frameForMode.apply(outbox.mode());
+        // Null when nothing the mode carries has changed
+        if (outbound != null) {
+            outbox.enqueue(topic, outbound);
+        }
+    }
+
+    private void sendSnapshot(SessionOutbox outbox, String topic, StreamMode mode) {
+        // Serve the latest known price straight away instead of waiting for the next tick;
+        // read after subscribing, so it is never older than a tick the session missed
+        if (SubscriptionRegistry.WILDCARD.equals(topic)) {
+            priceBook.quotes().forEach(
+                    quote -> outbox.enqueueSnapshot(quote.symbol(), tickStream.keyframe(quote, mode)));
+            return;
+        }
+        if (!SubscriptionRegistry.isSymbol(topic)) {
+            return;
+        }
+        PriceBook.Quote quote = priceBook.get(topic);
+        if (quote != null) {
+            outbox.enqueueSnapshot(topic, tickStream.keyframe(quote, mode));
+        }
     }
 
     @Override
     public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
-        String clientId = (String) session.getAttributes().get("clientId");
-        sessions.remove(clientId);
-        subscriptionRegistry.removeSession(clientId);
-        System.out.println("Disconnected: " + clientId);
+        var subscriber = (SubscriptionRegistry.Subscriber) session.getAttributes().remove(SUBSCRIBER);
+        if (subscriber != null) {
+            openSessions.decrementAndGet();
+            subscriber.outbox().discard();
+            subscriptionRegistry.removeSession(subscriber);
+        }
+        log.debug("Disconnected: {}", session.getId());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
     }
 }
\ No newline at end of file
@@ -19,6 +19,8 @@ CREATE TABLE IF NOT EXISTS holdings (
     user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     symbol VARCHAR(16) NOT NULL,
     amount NUMERIC(32, 12) NOT NULL DEFAULT 0,
+    -- Total purchase cost of the amount held; average cost is cost_basis / amount
+    cost_basis NUMERIC(32, 12) NOT NULL DEFAULT 0,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     UNIQUE(user_id, symbol)
 );
@@ -35,4 +37,61 @@ CREATE TABLE IF NOT EXISTS transactions (
     balance_after NUMERIC(20, 2) NOT NULL,
     profit_loss NUMERIC(20, 2),
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
-);
\ No newline at end of file
+);
+
+-- Serves history pages newest first and keyset cursors on (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_transactions_user_created ON transactions (user_id, created_at DESC, id DESC);
+
+-- Resting limit and stop orders; open ones are also held in memory, indexed by trigger price
+CREATE TABLE IF NOT EXISTS orders (
+    id SERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    symbol VARCHAR(16) NOT NULL,
+    side VARCHAR(4) NOT NULL CHECK (side IN ('BUY', 'SELL')),
+    type VARCHAR(8) NOT NULL CHECK (type IN ('LIMIT', 'STOP')),
+    quantity NUMERIC(32, 12) NOT NULL,
+    trigger_price NUMERIC(20, 8) NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'OPEN' CHECK (status IN ('OPEN', 'FILLED', 'REJECTED', 'CANCELLED')),
+    fill_price NUMERIC(20, 8),
+    reason VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_orders_user ON orders (user_id, id DESC);
+-- Startup only loads open orders
+CREATE INDEX IF NOT EXISTS idx_orders_open ON orders (id) WHERE status = 'OPEN';
+
+-- Changes of the in-memory account engine that Postgres refused; no foreign key, since the user may be the cause
+CREATE TABLE IF NOT EXISTS journal_dead_letters (
+    id SERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    entry TEXT NOT NULL,
+    error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Migration for databases created before holdings had a cost basis. Every step is skipped once the
+-- column is NOT NULL, so later startups take no lock on holdings and scan nothing. The block is quoted
+-- with '' rather than $$ because the script is split on semicolons outside single quotes.
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = ''holdings''
+                     AND column_name = ''cost_basis'') THEN
+        ALTER TABLE holdings ADD COLUMN cost_basis NUMERIC(32, 12);
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''holdings''
+                 AND column_name = ''cost_basis'' AND is_nullable = ''YES'') THEN
+        UPDATE holdings h
+        SET cost_basis = h.amount * COALESCE((
+            SELECT SUM(t.quantity * t.price) / NULLIF(SUM(t.quantity), 0)
+            FROM transactions t
+            WHERE t.user_id = h.user_id AND t.symbol = h.symbol AND t.type = ''BUY''
+        ), 0)
+        WHERE h.cost_basis IS NULL;
+        ALTER TABLE holdings ALTER COLUMN cost_basis SET DEFAULT 0;
+        ALTER TABLE holdings ALTER COLUMN cost_basis SET NOT NULL;
+    END IF;
+END';
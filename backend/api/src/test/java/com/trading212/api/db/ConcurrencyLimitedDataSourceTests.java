@@ -0,0 +1,75 @@
+package com.trading212.api.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConcurrencyLimitedDataSourceTests {
+
+	private final DataSource pool = mock(DataSource.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(pool, 1,
+			Duration.ofMillis(20), registry);
+
+	@Test
+	void rejectsOnceTheLimitIsReachedAndAdmitsAfterClose() throws Exception {
+		Connection target = mock(Connection.class);
+		when(pool.getConnection()).thenReturn(target);
+
+		Connection first = dataSource.getConnection();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(DatabaseBusyException.class);
+		assertThat(registry.counter("db.limiter.rejections").count()).isEqualTo(1);
+
+		first.close();
+		first.close();
+		verify(target).close();
+		Connection second = dataSource.getConnection();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(DatabaseBusyException.class);
+		second.close();
+	}
+
+	@Test
+	void queuesBackgroundWorkInsteadOfRejectingIt() throws Exception {
+		when(pool.getConnection()).thenReturn(mock(Connection.class));
+		Connection held = dataSource.getConnection();
+
+		CompletableFuture<Connection> queued = CompletableFuture.supplyAsync(
+				() -> ConcurrencyLimitedDataSource.queueing(() -> {
+					try {
+						return dataSource.getConnection();
+					} catch (SQLException e) {
+						throw new IllegalStateException(e);
+					}
+				}));
+		// Well past the 20ms budget that turns requests away
+		Thread.sleep(200);
+		assertThat(queued).isNotDone();
+		assertThatThrownBy(dataSource::getConnection).isInstanceOf(DatabaseBusyException.class);
+
+		held.close();
+		queued.get(5, TimeUnit.SECONDS).close();
+		assertThat(registry.counter("db.limiter.rejections").count()).isEqualTo(1);
+	}
+
+	@Test
+	void releasesThePermitWhenThePoolFails() throws Exception {
+		when(pool.getConnection()).thenThrow(new SQLException("down")).thenReturn(mock(Connection.class));
+
+		assertThatThrownBy(dataSource::getConnection).hasMessage("down");
+		assertThat(dataSource.getConnection()).isNotNull();
+	}
+}
@@ -0,0 +1,52 @@
+package com.trading212.api.orders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.trading212.api.orders.RestingOrder.Side;
+import com.trading212.api.orders.RestingOrder.Type;
+
+class TriggerBookTests {
+
+	@Test
+	void triggersOnlyCrossedOrdersOnTheirSideOfTheQuote() {
+		TriggerBook book = new TriggerBook();
+		book.add(order(1, Side.BUY, Type.LIMIT, "100"));
+		book.add(order(2, Side.BUY, Type.LIMIT, "90"));
+		book.add(order(3, Side.BUY, Type.STOP, "120"));
+		book.add(order(4, Side.SELL, Type.LIMIT, "110"));
+		book.add(order(5, Side.SELL, Type.STOP, "95"));
+
+		assertThat(trigger(book, "99", "101")).isEmpty();
+		assertThat(trigger(book, "98", "100")).containsExactly(1);
+		assertThat(trigger(book, "110", "121")).containsExactlyInAnyOrder(3, 4);
+		assertThat(trigger(book, "80", "81")).containsExactlyInAnyOrder(2, 5);
+		assertThat(book.isEmpty()).isTrue();
+	}
+
+	@Test
+	void removedOrdersNeverTrigger() {
+		TriggerBook book = new TriggerBook();
+		RestingOrder order = order(1, Side.SELL, Type.STOP, "95");
+		book.add(order);
+
+		assertThat(book.remove(order)).isTrue();
+		assertThat(book.remove(order)).isFalse();
+		assertThat(trigger(book, "1", "2")).isEmpty();
+	}
+
+	private static List<Integer> trigger(TriggerBook book, String bid, String ask) {
+		List<Integer> ids = new ArrayList<>();
+		book.trigger(new BigDecimal(bid), new BigDecimal(ask), order -> ids.add(order.id()));
+		return ids;
+	}
+
+	private static RestingOrder order(int id, Side side, Type type, String trigger) {
+		return new RestingOrder(id, 1, "BTC/USD", side, type, BigDecimal.ONE, new BigDecimal(trigger));
+	}
+}
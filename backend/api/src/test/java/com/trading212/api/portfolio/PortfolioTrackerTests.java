@@ -0,0 +1,90 @@
+package com.trading212.api.portfolio;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.api.trade.AccountView;
+import com.trading212.api.trade.TradeExecutor;
+import com.trading212.api.ws.SubscriptionRegistry;
+import com.trading212.api.ws.WebSocketHandler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PortfolioTrackerTests {
+
+	private static final AccountView HOLDS_BTC = new AccountView(BigDecimal.TEN,
+			List.of(new AccountView.Position("BTC/USD", BigDecimal.ONE, new BigDecimal("90000"))));
+
+	private final SubscriptionRegistry registry = mock(SubscriptionRegistry.class);
+	private final TradeExecutor tradeExecutor = mock(TradeExecutor.class);
+	private final PriceBook priceBook = mock(PriceBook.class);
+	private final TickerDemand.Listener listener = mock(TickerDemand.Listener.class);
+	private final TickerDemand tickerDemand = new TickerDemand(registry, priceBook, false);
+	private final PortfolioTracker tracker = new PortfolioTracker(registry, mock(WebSocketHandler.class),
+			tradeExecutor, priceBook, tickerDemand, new ObjectMapper(), new SimpleMeterRegistry(),
+			Duration.ofMillis(250));
+
+	@AfterEach
+	void shutdown() {
+		tracker.shutdown();
+	}
+
+	@Test
+	void dropsALoadThatReadTheAccountAfterTheLastUnsubscribe() {
+		tickerDemand.bind(listener);
+		when(tradeExecutor.account(1)).thenAnswer(call -> {
+			tracker.onUnsubscribe("portfolio:1", true);
+			return HOLDS_BTC;
+		});
+
+		tracker.onSubscribe("portfolio:1", true);
+
+		verifyNoInteractions(listener);
+	}
+
+	@Test
+	void releasesTheSymbolsALoadIndexedAfterTheLastUnsubscribe() {
+		tickerDemand.bind(listener);
+		when(tradeExecutor.account(1)).thenReturn(new AccountView(BigDecimal.TEN,
+				List.of(new AccountView.Position("BTC/USD", BigDecimal.ONE, new BigDecimal("90000")),
+						new AccountView.Position("ETH/USD", BigDecimal.ONE, new BigDecimal("3000")))));
+		// The last subscriber leaves after the load indexed BTC/USD and before it indexes ETH/USD
+		when(priceBook.get("BTC/USD")).thenAnswer(call -> {
+			tracker.onUnsubscribe("portfolio:1", true);
+			return null;
+		});
+
+		tracker.onSubscribe("portfolio:1", true);
+
+		InOrder order = inOrder(listener);
+		order.verify(listener).onStart("BTC/USD");
+		order.verify(listener).onStop("BTC/USD");
+		order.verify(listener).onStart("ETH/USD");
+		order.verify(listener).onStop("ETH/USD");
+		order.verifyNoMoreInteractions();
+	}
+
+	@Test
+	void ignoresTheSamePriceAtAnotherScale() {
+		Portfolio portfolio = new Portfolio(1, "portfolio:1");
+		portfolio.load(HOLDS_BTC);
+
+		assertThat(portfolio.reprice("BTC/USD", new BigDecimal("97000.0"))).isTrue();
+		assertThat(portfolio.reprice("BTC/USD", new BigDecimal("97000.00"))).isFalse();
+		assertThat(portfolio.reprice("BTC/USD", new BigDecimal("97000.01"))).isTrue();
+	}
+}
@@ -0,0 +1,92 @@
+package com.trading212.api.prices;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import com.trading212.api.ws.SubscriptionRegistry;
+
+class TickerDemandTests {
+
+	private final SubscriptionRegistry registry = mock(SubscriptionRegistry.class);
+	private final PriceBook priceBook = mock(PriceBook.class);
+	private final TickerDemand.Listener listener = mock(TickerDemand.Listener.class);
+	private final TickerDemand demand = new TickerDemand(registry, priceBook, false);
+
+	@Test
+	void startsOnTheFirstReasonAndStopsAfterTheLast() {
+		demand.bind(listener);
+
+		when(registry.subscriberCount("BTC/USD")).thenReturn(1);
+		demand.onSubscribe("BTC/USD", true);
+		demand.reconcile(TickerDemand.Source.ORDERS, "BTC/USD", () -> true);
+		when(registry.subscriberCount("BTC/USD")).thenReturn(0);
+		demand.onUnsubscribe("BTC/USD", true);
+		demand.reconcile(TickerDemand.Source.ORDERS, "BTC/USD", () -> false);
+
+		InOrder order = inOrder(listener, priceBook);
+		order.verify(listener).onStart("BTC/USD");
+		order.verify(priceBook).streaming("BTC/USD", true);
+		order.verify(priceBook).streaming("BTC/USD", false);
+		order.verify(listener).onStop("BTC/USD");
+		verifyNoMoreInteractions(listener);
+	}
+
+	@Test
+	void settlesOnTheSubscriberCountWhenEventsRace() {
+		demand.bind(listener);
+		when(registry.subscriberCount("BTC/USD")).thenReturn(1);
+
+		// The last subscriber left and a new one arrived before the first event was handled
+		demand.onSubscribe("BTC/USD", true);
+		demand.onUnsubscribe("BTC/USD", true);
+
+		verify(listener).onStart("BTC/USD");
+		verifyNoMoreInteractions(listener);
+	}
+
+	@Test
+	void startsOneSymbolWhileAnotherIsStillStarting() throws InterruptedException {
+		demand.bind(listener);
+		CountDownLatch subscribing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(call -> {
+			subscribing.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return null;
+		}).when(listener).onStart("BTC/USD");
+		Thread slow = Thread.ofPlatform()
+				.start(() -> demand.reconcile(TickerDemand.Source.ORDERS, "BTC/USD", () -> true));
+
+		assertThat(subscribing.await(5, TimeUnit.SECONDS)).isTrue();
+		demand.reconcile(TickerDemand.Source.ORDERS, "ETH/USD", () -> true);
+		verify(priceBook).streaming("ETH/USD", true);
+
+		release.countDown();
+		slow.join();
+		verify(priceBook).streaming("BTC/USD", true);
+	}
+
+	@Test
+	void ignoresPrivateTopicsAndReplaysDemandOnBind() {
+		when(registry.subscriberCount("portfolio:1")).thenReturn(1);
+		when(registry.subscriberCount(SubscriptionRegistry.WILDCARD)).thenReturn(1);
+		demand.onSubscribe("portfolio:1", true);
+		demand.onSubscribe(SubscriptionRegistry.WILDCARD, true);
+
+		demand.bind(listener);
+
+		verify(listener).onStart(SubscriptionRegistry.WILDCARD);
+		verifyNoMoreInteractions(listener);
+	}
+}
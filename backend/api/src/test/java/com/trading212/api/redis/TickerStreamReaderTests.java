@@ -0,0 +1,75 @@
+package com.trading212.api.redis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.common.redis.RedisKeys;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TickerStreamReaderTests {
+
+	private final RedisSubscriber subscriber = mock(RedisSubscriber.class);
+	private final PriceBook priceBook = mock(PriceBook.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final TickerStreamReader reader = new TickerStreamReader(mock(RedisConnectionFactory.class), subscriber,
+			priceBook, mock(TickerDemand.class), meterRegistry, 500, Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+	@Test
+	void handsOnlyDemandedSymbolsToTheSubscriber() {
+		reader.onStart("BTC/USD");
+		reader.handle(List.of(entry(1, "BTC/USD", "a", 0), entry(2, "ETH/USD", "a", 1), entry(3, "BTC/USD", "a", 2)));
+
+		verify(subscriber, times(2)).onTick(eq("BTC/USD"), any(), anyLong());
+		verify(subscriber, never()).onTick(eq("ETH/USD"), any(), anyLong());
+		verify(priceBook, never()).resync();
+		assertThat(meterRegistry.get("ticks.stream.read").counter().count()).isEqualTo(3);
+	}
+
+	@Test
+	void resyncsPricesAfterAGapInAProducersSequence() {
+		reader.onStart("*");
+		reader.handle(List.of(entry(1, "BTC/USD", "a", 0), entry(2, "BTC/USD", "b", 7)));
+		verify(priceBook, never()).resync();
+
+		reader.handle(List.of(entry(3, "BTC/USD", "a", 4), entry(4, "BTC/USD", "b", 8)));
+
+		verify(subscriber, times(4)).onTick(eq("BTC/USD"), any(), anyLong());
+		verify(priceBook).resync();
+		assertThat(meterRegistry.get("ticks.stream.gaps").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("ticks.stream.missed").counter().count()).isEqualTo(3);
+	}
+
+	private static ByteRecord entry(long id, String symbol, String producer, long sequence) {
+		return StreamRecords.rawBytes(Map.of(
+				bytes(RedisKeys.TICKER_STREAM_SYMBOL), bytes(symbol),
+				bytes(RedisKeys.TICKER_STREAM_FRAME), bytes("{\"symbol\":\"" + symbol + "\"}"),
+				bytes(RedisKeys.TICKER_STREAM_PRODUCER), bytes(producer),
+				bytes(RedisKeys.TICKER_STREAM_SEQUENCE), bytes(Long.toString(sequence))))
+				.withStreamKey(bytes(RedisKeys.TICKER_STREAM))
+				.withId(RecordId.of(id, 0));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
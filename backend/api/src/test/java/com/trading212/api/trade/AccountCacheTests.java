@@ -0,0 +1,83 @@
+package com.trading212.api.trade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.trading212.api.portfolio.PortfolioTracker;
+import com.trading212.common.redis.RedisKeys;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AccountCacheTests {
+
+	private final TradeExecutor tradeExecutor = mock(TradeExecutor.class);
+	private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+	private final PortfolioTracker portfolioTracker = mock(PortfolioTracker.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AccountCache cache = new AccountCache(tradeExecutor, redis, portfolioTracker,
+			mock(RedisMessageListenerContainer.class), meterRegistry, 100, Duration.ofMinutes(1));
+
+	@Test
+	void servesRepeatedReadsUntilTheAccountChanges() {
+		AccountView before = new AccountView(new BigDecimal("10000.00"), List.of());
+		AccountView after = new AccountView(new BigDecimal("9000.00"), List.of());
+		when(tradeExecutor.account(1)).thenReturn(before, after);
+
+		assertThat(cache.get(1)).isSameAs(before);
+		assertThat(cache.get(1)).isSameAs(before);
+		cache.invalidate(1);
+		assertThat(cache.get(1)).isSameAs(after);
+
+		verify(tradeExecutor, times(2)).account(1);
+		assertThat(published()).endsWith(":1");
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "accounts").tag("result", "hit")
+				.functionCounter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void dropsAccountsOtherNodesChangedButNotItsOwn() {
+		when(tradeExecutor.account(1)).thenReturn(new AccountView(BigDecimal.TEN, List.of()));
+		cache.get(1);
+		cache.invalidate(2);
+		String published = published();
+		String node = published.substring(0, published.indexOf(':'));
+
+		cache.onMessage(message(node + ":1"), null);
+		cache.get(1);
+		verify(tradeExecutor, times(1)).account(1);
+		verify(portfolioTracker, never()).refreshLater(1);
+
+		cache.onMessage(message("elsewhere:1"), null);
+		cache.get(1);
+		verify(tradeExecutor, times(2)).account(1);
+		verify(portfolioTracker).refreshLater(1);
+		assertThat(meterRegistry.get("accounts.cache.remote-invalidations").counter().count()).isEqualTo(1);
+	}
+
+	private String published() {
+		ArgumentCaptor<Object> message = ArgumentCaptor.forClass(Object.class);
+		verify(redis).convertAndSend(eq(RedisKeys.ACCOUNT_INVALIDATIONS), message.capture());
+		return (String) message.getValue();
+	}
+
+	private static DefaultMessage message(String body) {
+		return new DefaultMessage(RedisKeys.ACCOUNT_INVALIDATIONS.getBytes(StandardCharsets.UTF_8),
+				body.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,62 @@
+package com.trading212.api.trade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class WriteBehindJournalTests {
+
+	private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final WriteBehindJournal journal = new WriteBehindJournal(jdbc, mock(PlatformTransactionManager.class),
+			meterRegistry, 100, 100);
+
+	@Test
+	void deadLettersTheEntryPostgresRefusesAndWritesTheRest() throws Exception {
+		BigDecimal poison = new BigDecimal("13");
+		List<Object> written = new CopyOnWriteArrayList<>();
+		when(jdbc.batchUpdate(contains("INSERT INTO transactions"), anyList(), any(int[].class))).thenAnswer(call -> {
+			List<Object[]> rows = call.getArgument(1);
+			if (rows.stream().anyMatch(row -> poison.equals(row[4]))) {
+				throw new DataIntegrityViolationException("price out of range");
+			}
+			rows.forEach(row -> written.add(row[4]));
+			return new int[rows.size()];
+		});
+
+		for (int i = 10; i < 16; i++) {
+			journal.append(fill(1, new BigDecimal(i)));
+		}
+		journal.start();
+		journal.close(5000);
+
+		verify(jdbc, timeout(5000)).update(contains("journal_dead_letters"), eq(1), anyString(),
+				eq("price out of range"));
+		assertThat(written).containsExactly(new BigDecimal("10"), new BigDecimal("11"), new BigDecimal("12"),
+				new BigDecimal("14"), new BigDecimal("15"));
+		assertThat(meterRegistry.get("trade.journal.dead-letters").counter().count()).isEqualTo(1);
+	}
+
+	private static JournalEntry.Fill fill(int userId, BigDecimal price) {
+		return new JournalEntry.Fill(userId, "BTC/USD", "BUY", BigDecimal.ONE, price, price,
+				BigDecimal.TEN, null, BigDecimal.ONE, price);
+	}
+}
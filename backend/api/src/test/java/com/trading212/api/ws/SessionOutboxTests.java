@@ -0,0 +1,184 @@
+package com.trading212.api.ws;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SessionOutboxTests {
+
+	private final Queue<Runnable> tasks = new ArrayDeque<>();
+	private final WebSocketSession session = mock(WebSocketSession.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final SessionOutbox.Meters meters = new SessionOutbox.Meters(new AtomicLong(),
+			Counter.builder("conflated").register(registry),
+			Counter.builder("dropped").register(registry),
+			Counter.builder("disconnects").register(registry),
+			Timer.builder("fanout").register(registry),
+			Timer.builder("end-to-end").register(registry));
+
+	@Test
+	void keepsOnlyTheNewestFramePerKey() throws Exception {
+		when(session.isOpen()).thenReturn(true);
+		SessionOutbox outbox = outbox(16, SessionOutbox.SlowConsumerPolicy.DISCONNECT);
+		TextMessage btc1 = new TextMessage("btc-1");
+		TextMessage btc2 = new TextMessage("btc-2");
+		TextMessage eth1 = new TextMessage("eth-1");
+
+		outbox.enqueue("BTC/USD", btc1);
+		outbox.enqueue("ETH/USD", eth1);
+		outbox.enqueue("BTC/USD", btc2);
+		runTasks();
+
+		InOrder order = inOrder(session);
+		order.verify(session).sendMessage(btc2);
+		order.verify(session).sendMessage(eth1);
+		verify(session, never()).sendMessage(btc1);
+		assertThat(meters.conflated().count()).isEqualTo(1);
+		assertThat(meters.depth().get()).isEqualTo(0);
+	}
+
+	@Test
+	void disconnectsWhenFull() throws Exception {
+		when(session.isOpen()).thenReturn(true);
+		SessionOutbox outbox = outbox(1, SessionOutbox.SlowConsumerPolicy.DISCONNECT);
+
+		outbox.enqueue("BTC/USD", new TextMessage("btc"));
+		outbox.enqueue("ETH/USD", new TextMessage("eth"));
+		runTasks();
+
+		verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+		assertThat(meters.dropped().count()).isEqualTo(1);
+		assertThat(meters.disconnects().count()).isEqualTo(1);
+	}
+
+	@Test
+	void dropsOverflowWithoutDisconnecting() throws Exception {
+		when(session.isOpen()).thenReturn(true);
+		SessionOutbox outbox = outbox(1, SessionOutbox.SlowConsumerPolicy.DROP);
+		TextMessage btc = new TextMessage("btc");
+
+		outbox.enqueue("BTC/USD", btc);
+		outbox.enqueue("ETH/USD", new TextMessage("eth"));
+		runTasks();
+
+		verify(session).sendMessage(btc);
+		verify(session, never()).close(CloseStatus.SESSION_NOT_RELIABLE);
+		assertThat(meters.dropped().count()).isEqualTo(1);
+	}
+
+	@Test
+	void sendsTheKeyframeForADeltaThatReplacesAPendingFrame() throws Exception {
+		when(session.isOpen()).thenReturn(true);
+		SessionOutbox outbox = outbox(16, SessionOutbox.SlowConsumerPolicy.DISCONNECT);
+		TextMessage keyframe = new TextMessage("keyframe-2");
+
+		outbox.enqueue("BTC/USD", delta("delta-1", new TextMessage("keyframe-1")));
+		outbox.enqueue("BTC/USD", delta("delta-2", keyframe));
+		runTasks();
+
+		verify(session).sendMessage(keyframe);
+		verify(session, times(1)).sendMessage(any());
+	}
+
+	@Test
+	void sendsTheKeyframeForTheDeltaAfterADroppedOne() throws Exception {
+		when(session.isOpen()).thenReturn(true);
+		SessionOutbox outbox = outbox(1, SessionOutbox.SlowConsumerPolicy.DROP);
+		outbox.chooseMode(StreamMode.COMPACT);
+		TextMessage btc = new TextMessage("btc");
+		TextMessage ethKeyframe = new TextMessage("eth-keyframe-2");
+
+		outbox.enqueue("BTC/USD", btc);
+		outbox.enqueue("ETH/USD", delta("eth-delta-1", new TextMessage("eth-keyframe-1")));
+		runTasks();
+		outbox.enqueue("ETH/USD", delta("eth-delta-2", ethKeyframe));
+		runTasks();
+
+		InOrder order = inOrder(session);
+		order.verify(session).sendMessage(btc);
+		order.verify(session).sendMessage(ethKeyframe);
+		assertThat(meters.dropped().count()).isEqualTo(1);
+	}
+
+	@Test
+	void dropsASnapshotOlderThanATickAlreadyQueuedOrSent() throws Exception {
+		when(session.isOpen()).thenReturn(true);
+		SessionOutbox outbox = outbox(16, SessionOutbox.SlowConsumerPolicy.DISCONNECT);
+		outbox.chooseMode(StreamMode.COMPACT);
+		TextMessage keyframe2 = new TextMessage("keyframe-2");
+		TextMessage keyframe3 = new TextMessage("keyframe-3");
+
+		// The broadcast thread queues tick 2 while the subscribing thread still holds tick 1
+		outbox.enqueue("BTC/USD", delta("delta-2", keyframe2));
+		outbox.enqueueSnapshot("BTC/USD", new TextMessage("snapshot-1"));
+		runTasks();
+		outbox.forget("BTC/USD");
+		outbox.enqueue("BTC/USD", delta("delta-3", keyframe3));
+		runTasks();
+		outbox.enqueueSnapshot("BTC/USD", new TextMessage("snapshot-2"));
+		runTasks();
+
+		InOrder order = inOrder(session);
+		order.verify(session).sendMessage(keyframe2);
+		order.verify(session).sendMessage(keyframe3);
+		verify(session, times(2)).sendMessage(any());
+	}
+
+	@Test
+	void sendsDeltasAfterASnapshotThatGotThereFirst() throws Exception {
+		when(session.isOpen()).thenReturn(true);
+		SessionOutbox outbox = outbox(16, SessionOutbox.SlowConsumerPolicy.DISCONNECT);
+		outbox.chooseMode(StreamMode.COMPACT);
+		TextMessage snapshot = new TextMessage("snapshot-1");
+		TextMessage keyframe2 = new TextMessage("keyframe-2");
+		SessionOutbox.Outbound delta3 = delta("delta-3", new TextMessage("keyframe-3"));
+
+		outbox.enqueueSnapshot("BTC/USD", snapshot);
+		// Tick 2 arrives before the snapshot is sent, so it takes its place whole
+		outbox.enqueue("BTC/USD", delta("delta-2", keyframe2));
+		runTasks();
+		outbox.enqueue("BTC/USD", delta3);
+		runTasks();
+
+		InOrder order = inOrder(session);
+		order.verify(session).sendMessage(keyframe2);
+		order.verify(session).sendMessage(delta3.message());
+		verify(session, never()).sendMessage(snapshot);
+	}
+
+	private static SessionOutbox.Outbound delta(String delta, TextMessage keyframe) {
+		SessionOutbox.Outbound key = new SessionOutbox.Outbound(keyframe, 0, 0);
+		return new SessionOutbox.Outbound(new TextMessage(delta), 0, 0, () -> key);
+	}
+
+	private SessionOutbox outbox(int maxPending, SessionOutbox.SlowConsumerPolicy policy) {
+		return new SessionOutbox(session, tasks::add,
+				new SessionOutbox.Limits(maxPending, 1_000_000_000L, policy), meters);
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			task.run();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.trading212.api.ws;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class SubscriptionRegistryTests {
+
+	private final SubscriptionRegistry registry = new SubscriptionRegistry();
+	private final SubscriptionRegistry.TopicListener listener = mock(SubscriptionRegistry.TopicListener.class);
+
+	@Test
+	void dropsTopicsOnceTheLastSubscriberLeaves() {
+		registry.addListener(listener);
+		SubscriptionRegistry.Subscriber first = subscriber();
+		SubscriptionRegistry.Subscriber second = subscriber();
+
+		registry.subscribe(first, "BTC/USD");
+		registry.subscribe(first, "BTC/USD");
+		registry.subscribe(second, "BTC/USD");
+		SubscriptionRegistry.Topic topic = registry.topic("BTC/USD");
+		assertThat(topic.subscribers()).containsExactly(first, second);
+		assertThat(first.holds(topic.id())).isTrue();
+
+		registry.unsubscribe(first, "BTC/USD");
+		assertThat(first.holds(topic.id())).isFalse();
+		registry.removeSession(second);
+		assertThat(registry.topic("BTC/USD")).isNull();
+		assertThat(registry.subscriberCount("BTC/USD")).isZero();
+
+		InOrder order = inOrder(listener);
+		order.verify(listener).onSubscribe("BTC/USD", true);
+		order.verify(listener).onSubscribe("BTC/USD", false);
+		order.verify(listener).onUnsubscribe("BTC/USD", false);
+		order.verify(listener).onUnsubscribe("BTC/USD", true);
+		verifyNoMoreInteractions(listener);
+	}
+
+	@Test
+	void reusesTheIdsOfDroppedTopics() {
+		SubscriptionRegistry.Subscriber first = subscriber();
+		SubscriptionRegistry.Subscriber second = subscriber();
+		registry.subscribe(first, "BTC/USD");
+		int id = registry.topic("BTC/USD").id();
+
+		registry.unsubscribe(first, "BTC/USD");
+		registry.subscribe(second, "ETH/USD");
+
+		assertThat(registry.topic("ETH/USD").id()).isEqualTo(id);
+		assertThat(first.holds(id)).isFalse();
+		assertThat(second.holds(id)).isTrue();
+	}
+
+	@Test
+	void keepsTheWildcardAndIgnoresSessionsThatLeft() {
+		SubscriptionRegistry.Subscriber subscriber = subscriber();
+		registry.subscribe(subscriber, SubscriptionRegistry.WILDCARD);
+		assertThat(registry.wildcard().subscribers()).containsExactly(subscriber);
+
+		registry.removeSession(subscriber);
+		registry.subscribe(subscriber, "BTC/USD");
+
+		assertThat(registry.topic(SubscriptionRegistry.WILDCARD)).isSameAs(registry.wildcard());
+		assertThat(registry.wildcard().subscribers()).isEmpty();
+		assertThat(registry.topic("BTC/USD")).isNull();
+	}
+
+	@Test
+	void wildcardCoversSymbolsOnly() {
+		assertThat(SubscriptionRegistry.isSymbol("BTC/USD")).isTrue();
+		assertThat(SubscriptionRegistry.isSymbol("portfolio:1")).isFalse();
+		assertThat(SubscriptionRegistry.isSymbol(SubscriptionRegistry.WILDCARD)).isFalse();
+	}
+
+	private SubscriptionRegistry.Subscriber subscriber() {
+		return registry.register(mock(SessionOutbox.class));
+	}
+}
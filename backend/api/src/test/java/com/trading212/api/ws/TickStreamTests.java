@@ -0,0 +1,82 @@
+package com.trading212.api.ws;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.common.codec.TickerBinaryCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TickStreamTests {
+
+	private static final String TICK = """
+			{"symbol":"BTC/USD","bid":%s,"bid_qty":0.5,"ask":%s,"ask_qty":1.25,"last":97000.1,
+			"volume":1234.5,"vwap":96500.3,"low":95000.0,"high":98000.0,"change":1500.1,"change_pct":1.57}""";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final PriceBook priceBook = new PriceBook(null, null, objectMapper, new SimpleMeterRegistry(),
+			Duration.ofMinutes(2), Duration.ofSeconds(1));
+	private final TickStream stream = new TickStream(objectMapper.getFactory());
+
+	@Test
+	void sendsAKeyframeThenOnlyTheChangedFields() {
+		assertThat(compact(tick("97000.1", "97000.2"))).isEqualTo(
+				"{\"f\":0,\"s\":\"BTC/USD\",\"b\":97000.1,\"bq\":0.5,\"a\":97000.2,\"aq\":1.25,\"l\":97000.1,"
+						+ "\"v\":1234.5,\"vw\":96500.3,\"lo\":95000.0,\"h\":98000.0,\"c\":1500.1,\"cp\":1.57}");
+		assertThat(compact(tick("97000.1", "97000.30"))).isEqualTo("{\"d\":0,\"a\":97000.30}");
+		// Same values at another scale are no change
+		assertThat(compact(tick("97000.10", "97000.3"))).isNull();
+	}
+
+	@Test
+	void sharesOneFramePerModeAndFallsBackToAKeyframe() {
+		compact(tick("97000.1", "97000.2"));
+		TickStream.Frames frames = stream.frames(tick("97000.2", "97000.2"), full());
+
+		SessionOutbox.Outbound delta = frames.forMode(StreamMode.BINARY);
+		assertThat(frames.forMode(StreamMode.BINARY)).isSameAs(delta);
+		ByteBuffer binary = ((BinaryMessage) delta.message()).getPayload();
+		assertThat(binary.get()).isEqualTo(TickStream.BINARY_DELTA);
+		assertThat(TickerBinaryCodec.readVarLong(binary)).isZero();
+		assertThat(binary.getShort()).isEqualTo((short) 1);
+		binary.get(new byte[3]);
+		assertThat(TickerBinaryCodec.readVarLong(binary)).isEqualTo(970002);
+		assertThat(binary.hasRemaining()).isFalse();
+
+		ByteBuffer keyframe = ((BinaryMessage) delta.keyframe().get().message()).getPayload();
+		assertThat(keyframe.get()).isEqualTo(TickStream.BINARY_KEYFRAME);
+		frames.finish();
+	}
+
+	@Test
+	void forgetsTheLastTickWhenNoSessionNeededIt() {
+		compact(tick("97000.1", "97000.2"));
+		stream.frames(tick("97000.2", "97000.2"), full()).finish();
+
+		assertThat(compact(tick("97000.2", "97000.3"))).startsWith("{\"f\":0,");
+	}
+
+	private PriceBook.Quote tick(String bid, String ask) {
+		return priceBook.update("BTC/USD", TICK.formatted(bid, ask).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private SessionOutbox.Outbound full() {
+		return new SessionOutbox.Outbound(new TextMessage("full"), 0, 0);
+	}
+
+	private String compact(PriceBook.Quote quote) {
+		TickStream.Frames frames = stream.frames(quote, full());
+		SessionOutbox.Outbound outbound = frames.forMode(StreamMode.COMPACT);
+		frames.finish();
+		return outbound == null ? null : ((TextMessage) outbound.message()).getPayload();
+	}
+}
@@ -0,0 +1,132 @@
+package com.trading212.api.redis;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.orders.RestingOrderBook;
+import com.trading212.api.portfolio.PortfolioTracker;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.api.ws.SubscriptionRegistry;
+import com.trading212.api.ws.WebSocketFixtures;
+import com.trading212.api.ws.WebSocketHandler;
+import com.trading212.benchmarks.Fixtures;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.model.KrakenModel.TickerResponse;
+import com.trading212.common.redis.RedisKeys;
+import com.trading212.common.redis.TickStamps;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * One published ticker from the moment the Redis listener receives it: price
+ * book update, fan-out to subscribed sessions, portfolio revaluation and
+ * order trigger check. Messages cycle through the 20 pairs of the snapshot
+ * fixture; every session subscribes to all of them.
+ *
+ * {@link #decodeAndEncode} is the listener as it was before ingest published
+ * ready-made frames: every message held a Kraken ticker response, which was
+ * decoded and each ticker encoded again for the sessions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisSubscriberBenchmark {
+
+  @Param({ "0", "100" })
+  public int sessions;
+
+  private ObjectMapper objectMapper;
+  private WebSocketHandler handler;
+  private PriceBook priceBook;
+  private PortfolioTracker portfolioTracker;
+  private RestingOrderBook restingOrderBook;
+  private RedisSubscriber subscriber;
+  private Message[] messages;
+  private Message[] responses;
+  private int next;
+
+  @Setup
+  public void setUp() throws Exception {
+    objectMapper = new ObjectMapper();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SubscriptionRegistry registry = new SubscriptionRegistry();
+    priceBook = new PriceBook(null, null, objectMapper, meterRegistry, Duration.ofMinutes(2),
+        Duration.ofSeconds(1));
+    handler = WebSocketFixtures.handler(registry, objectMapper, priceBook, meterRegistry);
+    // Ticks are published straight to the subscriber, so no channels need opening
+    TickerDemand tickerDemand = mock(TickerDemand.class, withSettings().stubOnly());
+    portfolioTracker = new PortfolioTracker(registry, handler, null, priceBook, tickerDemand,
+        objectMapper, meterRegistry, Duration.ofMillis(250));
+    // Resting orders need Postgres; with none resting the real book is one map lookup, and so is the stub
+    restingOrderBook = mock(RestingOrderBook.class, withSettings().stubOnly());
+    subscriber = new RedisSubscriber(handler, priceBook, portfolioTracker, Optional.of(restingOrderBook), meterRegistry);
+
+    List<Ticker> tickers = Fixtures.snapshotTickers(objectMapper);
+    String[] symbols = tickers.stream().map(Ticker::symbol).toArray(String[]::new);
+    for (int i = 0; i < sessions; i++) {
+      WebSocketFixtures.connect(handler, registry, symbols);
+    }
+    // Stamped as ingest publishes them; the stamps are fixed, so only their cost is measured
+    long stampedAt = TickStamps.nowMicros();
+    messages = new Message[tickers.size()];
+    responses = new Message[tickers.size()];
+    for (int i = 0; i < messages.length; i++) {
+      messages[i] = new DefaultMessage(
+          RedisKeys.tickerChannel(symbols[i]).getBytes(StandardCharsets.UTF_8),
+          TickStamps.stamp(objectMapper.writeValueAsBytes(tickers.get(i)), stampedAt, stampedAt));
+      responses[i] = new DefaultMessage(
+          RedisKeys.tickerChannel(symbols[i]).getBytes(StandardCharsets.UTF_8),
+          objectMapper.writeValueAsBytes(new TickerResponse("ticker", "update", List.of(tickers.get(i)))));
+    }
+  }
+
+  @Benchmark
+  public void onMessage() {
+    subscriber.onMessage(messages[next], null);
+    next = next + 1 == messages.length ? 0 : next + 1;
+  }
+
+  @Benchmark
+  public void decodeAndEncode() throws Exception {
+    String payload = new String(responses[next].getBody(), StandardCharsets.UTF_8);
+    for (Ticker ticker : objectMapper.readValue(payload, TickerResponse.class).data()) {
+      String json = objectMapper.writeValueAsString(ticker);
+      priceBook.update(ticker.symbol(), json.getBytes(StandardCharsets.UTF_8));
+      handler.broadcastToTopic(ticker.symbol(), json);
+      portfolioTracker.onPrice(ticker.symbol());
+      restingOrderBook.onPrice(ticker.symbol());
+    }
+    next = next + 1 == responses.length ? 0 : next + 1;
+  }
+
+  @TearDown
+  public void tearDown() {
+    WebSocketFixtures.close(handler);
+  }
+}
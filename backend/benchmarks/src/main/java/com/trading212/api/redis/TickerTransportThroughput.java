@@ -0,0 +1,156 @@
+package com.trading212.api.redis;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.orders.RestingOrderBook;
+import com.trading212.api.portfolio.PortfolioTracker;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.api.prices.TickerDemand;
+import com.trading212.api.ws.SubscriptionRegistry;
+import com.trading212.api.ws.WebSocketFixtures;
+import com.trading212.api.ws.WebSocketHandler;
+import com.trading212.benchmarks.Fixtures;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.RedisKeys;
+import com.trading212.ingest.redis.TickerPublisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Ticks per second from ingest's publisher to the api's subscriber over each
+ * transport, through a real Redis, which JMH cannot drive meaningfully. One
+ * thread publishes {@code ticks} tickers as fast as Redis takes them, in
+ * frames of {@code frameSize} tickers from the snapshot fixture (one pipeline
+ * each, so small frames measure round trips); the api side is either the
+ * listener container on the channel pattern or {@link TickerStreamReader},
+ * both handing every tick to a {@link RedisSubscriber} with no sessions. A run
+ * ends once every tick has arrived or none has for five seconds.
+ *
+ * Overwrites the fixture's ticker keys and deletes the stream, so point it at
+ * a Redis nothing else uses:
+ *
+ * <pre>
+ * REDIS_HOST=localhost java -cp benchmarks.jar com.trading212.api.redis.TickerTransportThroughput [ticks] [frameSize] [rounds]
+ * </pre>
+ */
+public final class TickerTransportThroughput {
+
+  private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(5);
+
+  private TickerTransportThroughput() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int frameSize = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    var redis = new RedisStandaloneConfiguration(System.getenv().getOrDefault("REDIS_HOST", "localhost"),
+        Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379")));
+    LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(redis);
+    connectionFactory.afterPropertiesSet();
+    connectionFactory.start();
+    try {
+      for (int round = 1; round <= rounds; round++) {
+        for (String transport : List.of("pubsub", "stream")) {
+          run(connectionFactory, transport, ticks, frameSize, round);
+        }
+      }
+    } finally {
+      connectionFactory.destroy();
+    }
+  }
+
+  private static void run(LettuceConnectionFactory connectionFactory, String transport, int ticks, int frameSize,
+      int round) throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+    template.delete(RedisKeys.TICKER_STREAM);
+    RedisSerializer<Ticker> json = new Jackson2JsonRedisSerializer<>(objectMapper, Ticker.class);
+    TickerPublisher publisher = new TickerPublisher(template, json, json, meterRegistry, true, transport, 100_000);
+    // Without a template, resyncing after a gap only logs that Redis could not be read
+    PriceBook priceBook = new PriceBook(null, null, objectMapper, meterRegistry, Duration.ofMinutes(2),
+        Duration.ofSeconds(1));
+    RedisSubscriber subscriber = subscriber(priceBook, objectMapper, meterRegistry);
+
+    RedisMessageListenerContainer container = null;
+    TickerStreamReader reader = null;
+    if (transport.equals("pubsub")) {
+      container = new RedisConfig().redisContainer(connectionFactory);
+      container.afterPropertiesSet();
+      container.start();
+      container.addMessageListener(subscriber, new PatternTopic(RedisKeys.TICKER_CHANNEL_PATTERN));
+    } else {
+      reader = new TickerStreamReader(connectionFactory, subscriber, priceBook,
+          mock(TickerDemand.class, withSettings().stubOnly()), meterRegistry, 500, Duration.ofMillis(100),
+          Duration.ZERO);
+      reader.onStart(SubscriptionRegistry.WILDCARD);
+      reader.start();
+    }
+    // Lets the subscription or the first read settle before anything is published
+    Thread.sleep(500);
+
+    List<Ticker> tickers = Fixtures.snapshotTickers(objectMapper);
+    List<Ticker> frame = new ArrayList<>(frameSize);
+    for (int i = 0; i < frameSize; i++) {
+      frame.add(tickers.get(i % tickers.size()));
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ticks; i += frameSize) {
+      publisher.publish(i + frameSize <= ticks ? frame : frame.subList(0, ticks - i), 0);
+    }
+    long published = System.nanoTime();
+
+    long delivered = 0;
+    long lastArrival = published;
+    while (delivered < ticks && System.nanoTime() - lastArrival < IDLE_TIMEOUT.toNanos()) {
+      Thread.sleep(10);
+      long now = received(meterRegistry);
+      if (now > delivered) {
+        delivered = now;
+        lastArrival = System.nanoTime();
+      }
+    }
+
+    if (container != null) {
+      container.destroy();
+    } else {
+      reader.stop();
+    }
+    double publishSeconds = (published - start) / 1e9;
+    double deliverSeconds = (lastArrival - start) / 1e9;
+    System.out.printf("round %d %-6s published %,d in %.2fs (%,.0f/s), delivered %,d (%,.0f/s)%n", round,
+        transport, ticks, publishSeconds, ticks / publishSeconds, delivered, delivered / deliverSeconds);
+  }
+
+  private static RedisSubscriber subscriber(PriceBook priceBook, ObjectMapper objectMapper,
+      SimpleMeterRegistry meterRegistry) {
+    SubscriptionRegistry registry = new SubscriptionRegistry();
+    WebSocketHandler handler = WebSocketFixtures.handler(registry, objectMapper, priceBook, meterRegistry);
+    TickerDemand tickerDemand = mock(TickerDemand.class, withSettings().stubOnly());
+    PortfolioTracker portfolioTracker = new PortfolioTracker(registry, handler, null, priceBook, tickerDemand,
+        objectMapper, meterRegistry, Duration.ofMillis(250));
+    RestingOrderBook restingOrderBook = mock(RestingOrderBook.class, withSettings().stubOnly());
+    return new RedisSubscriber(handler, priceBook, portfolioTracker, Optional.of(restingOrderBook), meterRegistry);
+  }
+
+  private static long received(SimpleMeterRegistry meterRegistry) {
+    return (long) meterRegistry.find("ticks.received").counters().stream().mapToDouble(Counter::count).sum();
+  }
+}
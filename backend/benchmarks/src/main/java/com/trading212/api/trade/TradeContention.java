@@ -0,0 +1,214 @@
+package com.trading212.api.trade;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Market order latency under contention, through a real Postgres, for the
+ * statements the trade endpoints used to run (four auto-committed statements
+ * per buy, six per sell) and for {@link SqlTradeExecutor}'s single statement.
+ * {@code threads} clients share {@code users} accounts, so most orders wait on
+ * another order's row lock, and each alternates a buy and a sell of the same
+ * pair for {@code seconds}. Every order is timed, including rejections.
+ *
+ * Creates the api's schema if needed and replaces the accounts of the
+ * {@code contention-<n>} users each run, so point it at a database nothing
+ * else uses:
+ *
+ * <pre>
+ * POSTGRES_DB=contention java -cp benchmarks.jar com.trading212.api.trade.TradeContention [threads] [users] [seconds] [rounds]
+ * </pre>
+ */
+public final class TradeContention {
+
+  private static final String SYMBOL = "BTC/USD";
+  private static final BigDecimal QUANTITY = new BigDecimal("0.001");
+  private static final BigDecimal PRICE = new BigDecimal("97000.00");
+  private static final BigDecimal BALANCE = new BigDecimal("1000000000.00");
+  // Latencies in microseconds, up to ten seconds
+  private static final long MAX_LATENCY = TimeUnit.SECONDS.toMicros(10);
+
+  private TradeContention() {
+  }
+
+  /** One way of running a market order; true if it filled. */
+  private interface Path {
+    boolean buy(int userId);
+
+    boolean sell(int userId);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+    int users = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl("jdbc:postgresql://" + env("POSTGRES_HOST", "localhost") + ":" + env("POSTGRES_PORT", "5432")
+        + "/" + env("POSTGRES_DB", "postgres"));
+    config.setUsername(env("POSTGRES_USER", "postgres"));
+    config.setPassword(env("POSTGRES_PASSWORD", "postgres"));
+    // A connection per client, so orders queue on row locks rather than on the pool
+    config.setMaximumPoolSize(threads);
+    try (HikariDataSource dataSource = new HikariDataSource(config)) {
+      new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+      JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+      int[] userIds = users(jdbc, users);
+      SqlTradeExecutor executor = new SqlTradeExecutor(new NamedParameterJdbcTemplate(jdbc),
+          new SimpleMeterRegistry());
+      Path statements = statements(jdbc);
+      Path statement = new Path() {
+        @Override
+        public boolean buy(int userId) {
+          return executor.buy(userId, SYMBOL, QUANTITY, PRICE).isFilled();
+        }
+
+        @Override
+        public boolean sell(int userId) {
+          return executor.sell(userId, SYMBOL, QUANTITY, PRICE).isFilled();
+        }
+      };
+      for (int round = 1; round <= rounds; round++) {
+        run(jdbc, "statements", statements, userIds, threads, seconds, round);
+        run(jdbc, "cte", statement, userIds, threads, seconds, round);
+      }
+    }
+  }
+
+  private static void run(JdbcTemplate jdbc, String name, Path path, int[] userIds, int threads, int seconds,
+      int round) throws InterruptedException {
+    for (int userId : userIds) {
+      jdbc.update("DELETE FROM transactions WHERE user_id = ?", userId);
+      jdbc.update("DELETE FROM holdings WHERE user_id = ?", userId);
+      jdbc.update("UPDATE account_balance SET balance = ? WHERE user_id = ?", BALANCE, userId);
+    }
+    Recorder recorder = new Recorder(MAX_LATENCY, 3);
+    LongAdder filled = new LongAdder();
+    LongAdder rejected = new LongAdder();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<Thread> clients = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      int userId = userIds[i % userIds.length];
+      clients.add(Thread.ofPlatform().name("client-" + i).start(() -> {
+        boolean buy = true;
+        while (System.nanoTime() < deadline) {
+          long start = System.nanoTime();
+          boolean done = buy ? path.buy(userId) : path.sell(userId);
+          recorder.recordValue(Math.min((System.nanoTime() - start) / 1_000, MAX_LATENCY));
+          (done ? filled : rejected).increment();
+          buy = !buy;
+        }
+      }));
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+    Histogram latency = recorder.getIntervalHistogram();
+    System.out.printf("round %d %-10s %,7d filled (%,5.0f/s) %,5d rejected  p50 %7.2f  p99 %7.2f  p99.9 %7.2f"
+        + "  max %7.2f ms%n", round, name, filled.sum(), filled.sum() / (double) seconds, rejected.sum(),
+        millis(latency, 50), millis(latency, 99), millis(latency, 99.9), latency.getMaxValue() / 1000.0);
+  }
+
+  /** The trade endpoints' statements before they became one, each committed on its own. */
+  private static Path statements(JdbcTemplate jdbc) {
+    return new Path() {
+      @Override
+      public boolean buy(int userId) {
+        BigDecimal balance = jdbc.queryForObject(
+            "SELECT balance FROM account_balance WHERE user_id = ?", BigDecimal.class, userId);
+        BigDecimal totalCost = QUANTITY.multiply(PRICE);
+        if (balance == null || balance.compareTo(totalCost) < 0) {
+          return false;
+        }
+        jdbc.update("UPDATE account_balance SET balance = balance - ?, updated_at = NOW() WHERE user_id = ?",
+            totalCost, userId);
+        jdbc.update("""
+            INSERT INTO holdings (user_id, symbol, amount, updated_at)
+            VALUES (?, ?, ?, NOW())
+            ON CONFLICT (user_id, symbol)
+            DO UPDATE SET amount = holdings.amount + EXCLUDED.amount, updated_at = NOW()
+            """, userId, SYMBOL, QUANTITY);
+        jdbc.update("""
+            INSERT INTO transactions (user_id, symbol, type, quantity, price, total, balance_after, created_at)
+            VALUES (?, ?, 'BUY', ?, ?, ?, ?, NOW())
+            """, userId, SYMBOL, QUANTITY, PRICE, totalCost, balance.subtract(totalCost));
+        return true;
+      }
+
+      @Override
+      public boolean sell(int userId) {
+        BigDecimal holdings;
+        try {
+          holdings = jdbc.queryForObject(
+              "SELECT amount FROM holdings WHERE user_id = ? AND symbol = ?", BigDecimal.class, userId, SYMBOL);
+        } catch (EmptyResultDataAccessException e) {
+          holdings = BigDecimal.ZERO;
+        }
+        if (holdings == null || holdings.compareTo(QUANTITY) < 0) {
+          return false;
+        }
+        BigDecimal avgBuyPrice = jdbc.queryForObject("""
+            SELECT
+                CASE WHEN SUM(quantity) = 0 THEN 0
+                ELSE SUM(CASE WHEN type = 'BUY' THEN quantity * price ELSE 0 END) / NULLIF(SUM(CASE WHEN type = 'BUY' THEN quantity ELSE 0 END), 0)
+                END as avg_buy_price
+            FROM transactions
+            WHERE user_id = ? AND symbol = ?
+            """, BigDecimal.class, userId, SYMBOL);
+        BigDecimal profitLoss = PRICE.subtract(avgBuyPrice == null ? BigDecimal.ZERO : avgBuyPrice)
+            .multiply(QUANTITY);
+        jdbc.update("UPDATE account_balance SET balance = balance + ?, updated_at = NOW() WHERE user_id = ?",
+            QUANTITY.multiply(PRICE), userId);
+        jdbc.update("""
+            UPDATE holdings SET amount = amount - ?, updated_at = NOW()
+            WHERE user_id = ? AND symbol = ?
+            """, QUANTITY, userId, SYMBOL);
+        BigDecimal balanceAfter = jdbc.queryForObject(
+            "SELECT balance FROM account_balance WHERE user_id = ?", BigDecimal.class, userId);
+        jdbc.update("""
+            INSERT INTO transactions (user_id, symbol, type, quantity, price, total, balance_after, profit_loss, created_at)
+            VALUES (?, ?, 'SELL', ?, ?, ?, ?, ?, NOW())
+            """, userId, SYMBOL, QUANTITY.negate(), PRICE, QUANTITY.multiply(PRICE).negate(), balanceAfter,
+            profitLoss);
+        return true;
+      }
+    };
+  }
+
+  /** Ids of the contention users, created with an account on first use. */
+  private static int[] users(JdbcTemplate jdbc, int count) {
+    int[] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      String username = "contention-" + i;
+      jdbc.update("INSERT INTO users (username) VALUES (?) ON CONFLICT (username) DO NOTHING", username);
+      ids[i] = jdbc.queryForObject("SELECT id FROM users WHERE username = ?", Integer.class, username);
+      jdbc.update("INSERT INTO account_balance (user_id, balance) VALUES (?, ?) ON CONFLICT (user_id) DO NOTHING",
+          ids[i], BALANCE);
+    }
+    return ids;
+  }
+
+  private static double millis(Histogram histogram, double percentile) {
+    return histogram.getValueAtPercentile(percentile) / 1000.0;
+  }
+
+  private static String env(String name, String fallback) {
+    return System.getenv().getOrDefault(name, fallback);
+  }
+}
@@ -0,0 +1,75 @@
+package com.trading212.api.ws;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.benchmarks.Fixtures;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cost on the publishing thread of fanning one tick out to every subscribed
+ * session. Sessions discard what they are sent; their outboxes still drain
+ * on the handler's sender threads, so conflation and scheduling are included.
+ * With {@code subscription=wildcard} the sessions subscribe to {@code *}
+ * instead of the symbol.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastBenchmark {
+
+  @Param({ "1", "100", "1000" })
+  public int sessions;
+
+  @Param({ "topic", "wildcard" })
+  public String subscription;
+
+  private WebSocketHandler handler;
+  private TextMessage message;
+
+  @Setup
+  public void setUp() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SubscriptionRegistry registry = new SubscriptionRegistry();
+    PriceBook priceBook = new PriceBook(null, null, objectMapper, meterRegistry, Duration.ofMinutes(2),
+        Duration.ofSeconds(1));
+    handler = WebSocketFixtures.handler(registry, objectMapper, priceBook, meterRegistry);
+    for (int i = 0; i < sessions; i++) {
+      WebSocketFixtures.connect(handler, registry,
+          "wildcard".equals(subscription) ? SubscriptionRegistry.WILDCARD : "BTC/USD");
+    }
+    // The frame clients receive: one ticker, as ingest publishes it
+    message = new TextMessage(objectMapper.writeValueAsBytes(Fixtures.snapshotTickers(objectMapper).get(0)));
+  }
+
+  @Benchmark
+  public void broadcastToTopic() {
+    handler.broadcastToTopic("BTC/USD", message);
+  }
+
+  @TearDown
+  public void tearDown() {
+    WebSocketFixtures.close(handler);
+  }
+}
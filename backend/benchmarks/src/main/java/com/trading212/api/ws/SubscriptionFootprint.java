@@ -0,0 +1,70 @@
+package com.trading212.api.ws;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Retained heap per subscription, which JMH does not measure. Subscribes
+ * {@code sessions} sessions to five pairs each, as in
+ * {@link SubscriptionRegistryBenchmark}, and prints the heap growth after a
+ * full GC divided by the number of subscriptions. The registry's per-session
+ * state is included; the sessions and their outboxes are created beforehand
+ * and are not. Run with a fixed heap for stable
+ * numbers:
+ *
+ * <pre>
+ * java -Xms1g -Xmx1g -cp benchmarks.jar com.trading212.api.ws.SubscriptionFootprint [sessions]
+ * </pre>
+ */
+public final class SubscriptionFootprint {
+
+  private static final String[] TOPICS = { "BTC/USD", "USDT/USD", "ETH/USD", "XRP/USD", "ADA/USD", "SOL/USD",
+      "DOGE/USD", "DOT/USD", "LTC/USD", "LINK/USD", "BCH/USD", "XLM/USD", "FIL/USD", "EOS/USD", "TRX/USD",
+      "ETC/USD", "UNI/USD", "MATIC/USD", "AAVE/USD", "ALGO/USD" };
+  private static final int ROUNDS = 5;
+
+  // Keeps the registry and its sessions reachable until after the second heap reading
+  private static volatile Object[] retained;
+
+  private SubscriptionFootprint() {
+  }
+
+  public static void main(String[] args) {
+    int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+    double[] bytes = new double[ROUNDS];
+    for (int round = 0; round < ROUNDS; round++) {
+      retained = null;
+      bytes[round] = measure(sessions);
+    }
+    Arrays.sort(bytes);
+    System.out.printf("%d sessions x 5 subscriptions: median %.1f bytes retained per subscription (min %.1f, max %.1f)%n",
+        sessions, bytes[ROUNDS / 2], bytes[0], bytes[ROUNDS - 1]);
+  }
+
+  private static double measure(int sessions) {
+    SessionOutbox[] outboxes = new SessionOutbox[sessions];
+    for (int i = 0; i < sessions; i++) {
+      outboxes[i] = WebSocketFixtures.outbox();
+    }
+    long before = usedAfterGc();
+    SubscriptionRegistry registry = new SubscriptionRegistry();
+    for (int i = 0; i < sessions; i++) {
+      SubscriptionRegistry.Subscriber subscriber = registry.register(outboxes[i]);
+      for (int j = 0; j < 5; j++) {
+        registry.subscribe(subscriber, TOPICS[(i + j * j) % TOPICS.length]);
+      }
+    }
+    retained = new Object[] { registry, outboxes };
+    return (double) (usedAfterGc() - before) / (sessions * 5L);
+  }
+
+  private static long usedAfterGc() {
+    // A single collection does not always free the previous round, so take the lowest of several
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+}
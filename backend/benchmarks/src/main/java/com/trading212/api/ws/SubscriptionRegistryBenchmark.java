@@ -0,0 +1,94 @@
+package com.trading212.api.ws;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Subscription churn against the per-tick subscriber lookup. The {@code mixed}
+ * group models the live service: one thread subscribing and leaving while
+ * others, standing in for the Redis listener and snapshot sends, look up
+ * topics. {@code churn} puts all threads on the write path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubscriptionRegistryBenchmark {
+
+  private static final String[] TOPICS = { "BTC/USD", "USDT/USD", "ETH/USD", "XRP/USD", "ADA/USD", "SOL/USD",
+      "DOGE/USD", "DOT/USD", "LTC/USD", "LINK/USD", "BCH/USD", "XLM/USD", "FIL/USD", "EOS/USD", "TRX/USD",
+      "ETC/USD", "UNI/USD", "MATIC/USD", "AAVE/USD", "ALGO/USD" };
+
+  @Param({ "1000" })
+  public int sessions;
+
+  private SubscriptionRegistry registry;
+
+  @State(Scope.Thread)
+  public static class Churner {
+    SubscriptionRegistry.Subscriber subscriber;
+
+    @Setup
+    public void setUp(SubscriptionRegistryBenchmark benchmark) {
+      subscriber = WebSocketFixtures.subscriber(benchmark.registry);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    registry = new SubscriptionRegistry();
+    for (int i = 0; i < sessions; i++) {
+      SubscriptionRegistry.Subscriber subscriber = WebSocketFixtures.subscriber(registry);
+      // Every session watches a few pairs, skewed towards the first ones like real clients
+      for (int j = 0; j < 5; j++) {
+        registry.subscribe(subscriber, TOPICS[(i + j * j) % TOPICS.length]);
+      }
+    }
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public void mixedChurn(Churner churner) {
+    churn(churner);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public void mixedLookup(Blackhole blackhole) {
+    for (SubscriptionRegistry.Subscriber subscriber : registry.topic(topic()).subscribers()) {
+      blackhole.consume(subscriber.outbox());
+    }
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void churn(Churner churner) {
+    String topic = topic();
+    registry.subscribe(churner.subscriber, topic);
+    registry.unsubscribe(churner.subscriber, topic);
+  }
+
+  private static String topic() {
+    return TOPICS[ThreadLocalRandom.current().nextInt(TOPICS.length)];
+  }
+}
@@ -0,0 +1,82 @@
+package com.trading212.api.ws;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.benchmarks.Fixtures;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cost on the publishing thread of broadcasting ticks to sessions in one
+ * {@link StreamMode}. Ticks alternate between two quotes whose bid and ask
+ * differ, so compact and binary sessions get a two-field delta each time,
+ * encoded once per tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickStreamBenchmark {
+
+  @Param({ "100", "1000" })
+  public int sessions;
+
+  @Param({ "full", "compact", "binary" })
+  public String mode;
+
+  private WebSocketHandler handler;
+  private PriceBook.Quote[] quotes;
+  private int next;
+
+  @Setup
+  public void setUp() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SubscriptionRegistry registry = new SubscriptionRegistry();
+    PriceBook priceBook = new PriceBook(null, null, objectMapper, meterRegistry, Duration.ofMinutes(2),
+        Duration.ofSeconds(1));
+    handler = WebSocketFixtures.handler(registry, objectMapper, priceBook, meterRegistry);
+    Ticker ticker = Fixtures.snapshotTickers(objectMapper).get(0);
+    for (int i = 0; i < sessions; i++) {
+      SubscriptionRegistry.Subscriber subscriber = WebSocketFixtures.connect(handler, registry);
+      subscriber.outbox().chooseMode(StreamMode.parse(mode));
+      registry.subscribe(subscriber, ticker.symbol());
+    }
+    Ticker moved = new Ticker(ticker.symbol(), ticker.bid().add(BigDecimal.ONE), ticker.bid_qty(),
+        ticker.ask().add(BigDecimal.ONE), ticker.ask_qty(), ticker.last(), ticker.volume(), ticker.vwap(),
+        ticker.low(), ticker.high(), ticker.change(), ticker.change_pct(), ticker.timestamp());
+    quotes = new PriceBook.Quote[] {
+        priceBook.update(ticker.symbol(), objectMapper.writeValueAsBytes(ticker)),
+        priceBook.update(ticker.symbol(), objectMapper.writeValueAsBytes(moved)) };
+  }
+
+  @Benchmark
+  public void broadcastTick() {
+    handler.broadcastTick(quotes[next++ & 1], 0, 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    WebSocketFixtures.close(handler);
+  }
+}
@@ -0,0 +1,61 @@
+package com.trading212.api.ws;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.api.prices.PriceBook;
+import com.trading212.benchmarks.NoopWebSocketSession;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** Builds the WebSocket layer outside Spring, with the default outbound limits. */
+public final class WebSocketFixtures {
+
+  private static final SessionOutbox.Limits LIMITS = new SessionOutbox.Limits(256, Duration.ofSeconds(5).toNanos(),
+      SessionOutbox.SlowConsumerPolicy.DISCONNECT);
+  private static final SessionOutbox.Meters UNUSED_METERS = meters(new SimpleMeterRegistry());
+
+  private WebSocketFixtures() {
+  }
+
+  public static WebSocketHandler handler(SubscriptionRegistry registry, ObjectMapper objectMapper,
+      PriceBook priceBook, MeterRegistry meterRegistry) {
+    return new WebSocketHandler(registry, objectMapper, priceBook, meterRegistry, LIMITS.maxPending(),
+        Duration.ofNanos(LIMITS.maxSendNanos()), LIMITS.policy());
+  }
+
+  /** Connects a session and subscribes it to the topics. */
+  public static SubscriptionRegistry.Subscriber connect(WebSocketHandler handler, SubscriptionRegistry registry,
+      String... topics) {
+    NoopWebSocketSession session = new NoopWebSocketSession();
+    handler.afterConnectionEstablished(session);
+    var subscriber = (SubscriptionRegistry.Subscriber) session.getAttributes().get("subscriber");
+    for (String topic : topics) {
+      registry.subscribe(subscriber, topic);
+    }
+    return subscriber;
+  }
+
+  /** A subscriber for registry-only benchmarks; its outbox is never written to. */
+  public static SubscriptionRegistry.Subscriber subscriber(SubscriptionRegistry registry) {
+    return registry.register(outbox());
+  }
+
+  static SessionOutbox outbox() {
+    return new SessionOutbox(new NoopWebSocketSession(), Runnable::run, LIMITS, UNUSED_METERS);
+  }
+
+  public static void close(WebSocketHandler handler) {
+    handler.shutdown();
+  }
+
+  private static SessionOutbox.Meters meters(MeterRegistry meterRegistry) {
+    return new SessionOutbox.Meters(new AtomicLong(), Counter.builder("conflated").register(meterRegistry),
+        Counter.builder("dropped").register(meterRegistry), Counter.builder("disconnects").register(meterRegistry),
+        Timer.builder("fanout").register(meterRegistry), Timer.builder("end-to-end").register(meterRegistry));
+  }
+}
@@ -0,0 +1,65 @@
+package com.trading212.benchmarks;
+
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, adding what every run
+ * should have unless overridden: the GC profiler for allocation rates, and
+ * JSON results under the module's {@code results/} named by start time, so
+ * runs can be compared side by side (e.g. with a JMH visualizer).
+ */
+public final class BenchmarkMain {
+
+  private BenchmarkMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cli = new CommandLineOptions(args);
+    if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams() || cli.shouldListProfilers()
+        || cli.shouldListResultFormats()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+    boolean gcRequested = cli.getProfilers().stream()
+        .anyMatch(profiler -> profiler.getKlass().equals("gc")
+            || profiler.getKlass().equals(GCProfiler.class.getName()));
+    if (!gcRequested) {
+      options.addProfiler(GCProfiler.class);
+    }
+    if (!cli.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!cli.getResult().hasValue()) {
+      Path results = Files.createDirectories(resultsDirectory());
+      String started = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+      options.result(results.resolve("jmh-" + started + ".json").toString());
+    }
+    new Runner(options.build()).run();
+  }
+
+  /**
+   * {@code benchmarks/results}, wherever the run starts from: the jar and the
+   * compiled classes both sit one level below the module, in {@code target}.
+   */
+  private static Path resultsDirectory() throws URISyntaxException {
+    CodeSource source = BenchmarkMain.class.getProtectionDomain().getCodeSource();
+    if (source == null) {
+      return Path.of("results");
+    }
+    return Path.of(source.getLocation().toURI()).getParent().getParent().resolve("results");
+  }
+}
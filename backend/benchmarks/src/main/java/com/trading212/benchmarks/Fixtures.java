@@ -0,0 +1,43 @@
+package com.trading212.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.model.KrakenModel.TickerResponse;
+
+/** Kraken v2 ticker frames as received on the wire, recorded for the 20 pairs ingest subscribes to. */
+public final class Fixtures {
+
+  /** One update frame carrying a single BTC/USD ticker, the common case once subscribed. */
+  public static final String TICKER_UPDATE = read("fixtures/kraken-ticker-update.json");
+
+  /** The snapshot frame sent after subscribing, one ticker per pair. */
+  public static final String TICKER_SNAPSHOT = read("fixtures/kraken-ticker-snapshot.json");
+
+  private Fixtures() {
+  }
+
+  public static List<Ticker> snapshotTickers(ObjectMapper objectMapper) {
+    try {
+      return objectMapper.readValue(TICKER_SNAPSHOT, TickerResponse.class).data();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String read(String resource) {
+    try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing fixture " + resource);
+      }
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8).strip();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
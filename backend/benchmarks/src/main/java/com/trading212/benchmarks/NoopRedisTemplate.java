@@ -0,0 +1,18 @@
+package com.trading212.benchmarks;
+
+import java.util.List;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Drops pipelines without running them, so benchmarks measure everything a
+ * publisher does up to the network and nothing of Redis itself.
+ */
+public class NoopRedisTemplate extends StringRedisTemplate {
+
+  @Override
+  public List<Object> executePipelined(RedisCallback<?> action) {
+    return List.of();
+  }
+}
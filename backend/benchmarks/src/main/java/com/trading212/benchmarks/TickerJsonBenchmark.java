@@ -0,0 +1,65 @@
+package com.trading212.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.model.KrakenModel.TickerResponse;
+
+/** Jackson encoding and decoding of Kraken ticker frames with the mapper configuration ingest and api use. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickerJsonBenchmark {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private Ticker ticker;
+  private byte[] tickerJson;
+  private TickerResponse snapshot;
+
+  @Setup
+  public void setUp() throws Exception {
+    snapshot = objectMapper.readValue(Fixtures.TICKER_SNAPSHOT, TickerResponse.class);
+    ticker = snapshot.data().get(0);
+    tickerJson = objectMapper.writeValueAsBytes(ticker);
+  }
+
+  @Benchmark
+  public byte[] encodeTicker() throws Exception {
+    return objectMapper.writeValueAsBytes(ticker);
+  }
+
+  @Benchmark
+  public Ticker decodeTicker() throws Exception {
+    return objectMapper.readValue(tickerJson, Ticker.class);
+  }
+
+  @Benchmark
+  public TickerResponse decodeUpdateFrame() throws Exception {
+    return objectMapper.readValue(Fixtures.TICKER_UPDATE, TickerResponse.class);
+  }
+
+  @Benchmark
+  public TickerResponse decodeSnapshotFrame() throws Exception {
+    return objectMapper.readValue(Fixtures.TICKER_SNAPSHOT, TickerResponse.class);
+  }
+
+  @Benchmark
+  public String encodeSnapshotFrame() throws Exception {
+    return objectMapper.writeValueAsString(snapshot);
+  }
+}
@@ -0,0 +1,96 @@
+package com.trading212.ingest.kraken.client;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.benchmarks.Fixtures;
+import com.trading212.benchmarks.NoopRedisTemplate;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.BinaryTickerRedisSerializer;
+import com.trading212.common.redis.TickStamps;
+import com.trading212.ingest.candles.CandleAggregator;
+import com.trading212.ingest.journal.TickJournal;
+import com.trading212.ingest.redis.TickerPublisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Everything ingest does with a Kraken frame short of the network: decoding,
+ * journaling, encoding the Redis frames and values, and candle aggregation.
+ * Redis pipelines are built by the callers but not sent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KrakenFrameBenchmark {
+
+  @Param({ "json", "binary" })
+  public String codec;
+
+  @Param({ "false", "true" })
+  public boolean journal;
+
+  private Path journalDirectory;
+  private KrakenClient client;
+
+  @Setup
+  public void setUp() throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    RedisSerializer<Ticker> json = new Jackson2JsonRedisSerializer<>(objectMapper, Ticker.class);
+    RedisSerializer<Ticker> values = codec.equals("binary") ? new BinaryTickerRedisSerializer(json) : json;
+    NoopRedisTemplate redis = new NoopRedisTemplate();
+    journalDirectory = Files.createTempDirectory("tick-journal");
+    TickJournal tickJournal = new TickJournal(json, journal, journalDirectory, DataSize.ofMegabytes(64),
+        DataSize.ofMegabytes(256), Duration.ofDays(1));
+    CandleAggregator candleAggregator = new CandleAggregator(redis, Duration.ofSeconds(1));
+    client = new KrakenClient(new TickerPublisher(redis, json, values, new SimpleMeterRegistry(), true, "pubsub", 100_000), candleAggregator, tickJournal,
+        new KrakenFrameDecoder(objectMapper), objectMapper, new SimpleMeterRegistry(), "ws://unused",
+        List.of("BTC/USD"), 1, Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30));
+  }
+
+  @Benchmark
+  public void updateFrame() {
+    client.onFrame(Fixtures.TICKER_UPDATE, TickStamps.nowMicros());
+  }
+
+  @Benchmark
+  public void snapshotFrame() {
+    client.onFrame(Fixtures.TICKER_SNAPSHOT, TickStamps.nowMicros());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    // The aggregator's flush thread is a daemon and dies with the fork
+    try (Stream<Path> files = Files.walk(journalDirectory)) {
+      for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.trading212.common.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.trading212.common.model.FixedPointTicker;
+
+/**
+ * Compact binary form of a {@link FixedPointTicker}:
+ *
+ * <pre>
+ * u8      magic (0xB1), never '{', so JSON values can be told apart
+ * u8      symbol length, followed by the UTF-8 symbol
+ * u16     presence mask
+ * u8 x 3  price, quantity and change_pct scales
+ * varint  zig-zag encoded mantissa for every present field
+ * </pre>
+ *
+ * A BTC/USD tick takes about 55 bytes against roughly 230 as JSON.
+ */
+public final class TickerBinaryCodec {
+
+  public static final byte MAGIC = (byte) 0xB1;
+
+  public static final int MAX_SIZE = 1 + 1 + 255 + 2 + 3 + FixedPointTicker.FIELD_COUNT * 10;
+
+  private TickerBinaryCodec() {
+  }
+
+  public static boolean isBinary(byte[] bytes) {
+    return bytes != null && bytes.length > 0 && bytes[0] == MAGIC;
+  }
+
+  public static byte[] encode(FixedPointTicker ticker) {
+    ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+    encode(ticker, buffer);
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  public static void encode(FixedPointTicker ticker, ByteBuffer out) {
+    byte[] symbol = ticker.symbol().getBytes(StandardCharsets.UTF_8);
+    if (symbol.length > 255) {
+      throw new IllegalArgumentException("Symbol too long: " + ticker.symbol());
+    }
+    out.put(MAGIC);
+    out.put((byte) symbol.length);
+    out.put(symbol);
+    out.putShort((short) ticker.mask());
+    out.put((byte) ticker.priceScale());
+    out.put((byte) ticker.qtyScale());
+    out.put((byte) ticker.pctScale());
+    for (int field = 0; field < FixedPointTicker.FIELD_COUNT; field++) {
+      if (ticker.has(field)) {
+        writeVarLong(out, ticker.mantissa(field));
+      }
+    }
+  }
+
+  public static FixedPointTicker decode(byte[] bytes) {
+    return decode(ByteBuffer.wrap(bytes));
+  }
+
+  public static FixedPointTicker decode(ByteBuffer in) {
+    if (in.get() != MAGIC) {
+      throw new IllegalArgumentException("Not a binary ticker");
+    }
+    byte[] symbol = new byte[in.get() & 0xFF];
+    in.get(symbol);
+    int mask = in.getShort() & 0xFFFF;
+    int priceScale = in.get();
+    int qtyScale = in.get();
+    int pctScale = in.get();
+    long[] mantissas = new long[FixedPointTicker.FIELD_COUNT];
+    for (int field = 0; field < mantissas.length; field++) {
+      if ((mask & (1 << field)) != 0) {
+        mantissas[field] = readVarLong(in);
+      }
+    }
+    return new FixedPointTicker(new String(symbol, StandardCharsets.UTF_8), mask, priceScale, qtyScale, pctScale,
+        mantissas[0], mantissas[1], mantissas[2], mantissas[3], mantissas[4], mantissas[5], mantissas[6],
+        mantissas[7], mantissas[8], mantissas[9], mantissas[10]);
+  }
+
+  public static void writeVarLong(ByteBuffer out, long value) {
+    long zigZag = (value << 1) ^ (value >> 63);
+    while ((zigZag & ~0x7FL) != 0) {
+      out.put((byte) ((zigZag & 0x7F) | 0x80));
+      zigZag >>>= 7;
+    }
+    out.put((byte) zigZag);
+  }
+
+  public static long readVarLong(ByteBuffer in) {
+    long zigZag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.get();
+      zigZag |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+}
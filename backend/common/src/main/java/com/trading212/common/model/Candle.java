@@ -0,0 +1,24 @@
+package com.trading212.common.model;
+
+/**
+ * One OHLCV bar, {@code time} being its open time in epoch millis. Prices are
+ * doubles: candles are for charts, not for settling trades. Volume is derived
+ * from changes in Kraken's rolling 24h volume and is therefore approximate.
+ */
+public record Candle(long time, double open, double high, double low, double close, double volume) {
+
+  /** Compact text form stored as the sorted-set member; the open time is the score. */
+  public String encode() {
+    return time + "," + open + "," + high + "," + low + "," + close + "," + volume;
+  }
+
+  /** @throws IllegalArgumentException if the text was not produced by {@link #encode()} */
+  public static Candle decode(String encoded) {
+    String[] parts = encoded.split(",");
+    if (parts.length != 6) {
+      throw new IllegalArgumentException("Malformed candle: " + encoded);
+    }
+    return new Candle(Long.parseLong(parts[0]), Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+        Double.parseDouble(parts[3]), Double.parseDouble(parts[4]), Double.parseDouble(parts[5]));
+  }
+}
@@ -0,0 +1,47 @@
+package com.trading212.common.model;
+
+/** Bar lengths ticks are aggregated into, with how many completed bars of each are kept. */
+public enum CandleInterval {
+  S1("1s", 1_000L, 3_600),
+  M1("1m", 60_000L, 10_080),
+  M5("5m", 300_000L, 8_640),
+  H1("1h", 3_600_000L, 8_760);
+
+  private final String label;
+  private final long millis;
+  private final int retained;
+
+  CandleInterval(String label, long millis, int retained) {
+    this.label = label;
+    this.millis = millis;
+    this.retained = retained;
+  }
+
+  public String label() {
+    return label;
+  }
+
+  public long millis() {
+    return millis;
+  }
+
+  /** Completed bars kept in Redis: an hour of 1s bars, a week of 1m, a month of 5m and a year of 1h. */
+  public int retained() {
+    return retained;
+  }
+
+  /** Open time of the bar containing {@code epochMillis}. */
+  public long barStart(long epochMillis) {
+    return epochMillis - Math.floorMod(epochMillis, millis);
+  }
+
+  /** @throws IllegalArgumentException for anything but 1s, 1m, 5m or 1h */
+  public static CandleInterval fromLabel(String label) {
+    for (CandleInterval interval : values()) {
+      if (interval.label.equals(label)) {
+        return interval;
+      }
+    }
+    throw new IllegalArgumentException("Unknown candle interval: " + label);
+  }
+}
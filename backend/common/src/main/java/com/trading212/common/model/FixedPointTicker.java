@@ -0,0 +1,127 @@
+package com.trading212.common.model;
+
+import java.math.BigDecimal;
+
+import com.trading212.common.model.KrakenModel.Ticker;
+
+/**
+ * A {@link Ticker} held as scaled {@code long} mantissas instead of
+ * {@code BigDecimal}s. Prices (bid, ask, last, vwap, low, high, change) share
+ * one scale, quantities (bid_qty, ask_qty, volume) another, and change_pct has
+ * its own; each is the largest scale of its group for the symbol's tick, so
+ * the conversion is lossless. {@link #mask} marks which fields are present.
+ * The ticker's timestamp is not kept.
+ */
+public record FixedPointTicker(
+    String symbol,
+    int mask,
+    int priceScale,
+    int qtyScale,
+    int pctScale,
+    long bid,
+    long bidQty,
+    long ask,
+    long askQty,
+    long last,
+    long volume,
+    long vwap,
+    long low,
+    long high,
+    long change,
+    long changePct) {
+
+  public static final int FIELD_COUNT = 11;
+
+  /**
+   * @throws ArithmeticException if a mantissa does not fit in a {@code long}
+   */
+  public static FixedPointTicker from(Ticker ticker) {
+    int priceScale = scale(ticker.bid(), ticker.ask(), ticker.last(), ticker.vwap(), ticker.low(), ticker.high(),
+        ticker.change());
+    int qtyScale = scale(ticker.bid_qty(), ticker.ask_qty(), ticker.volume());
+    int pctScale = scale(ticker.change_pct());
+    BigDecimal[] values = values(ticker);
+    int mask = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        mask |= 1 << i;
+      }
+    }
+    return new FixedPointTicker(ticker.symbol(), mask, priceScale, qtyScale, pctScale,
+        mantissa(ticker.bid(), priceScale),
+        mantissa(ticker.bid_qty(), qtyScale),
+        mantissa(ticker.ask(), priceScale),
+        mantissa(ticker.ask_qty(), qtyScale),
+        mantissa(ticker.last(), priceScale),
+        mantissa(ticker.volume(), qtyScale),
+        mantissa(ticker.vwap(), priceScale),
+        mantissa(ticker.low(), priceScale),
+        mantissa(ticker.high(), priceScale),
+        mantissa(ticker.change(), priceScale),
+        mantissa(ticker.change_pct(), pctScale));
+  }
+
+  public Ticker toTicker() {
+    return new Ticker(symbol,
+        decimal(0, bid, priceScale),
+        decimal(1, bidQty, qtyScale),
+        decimal(2, ask, priceScale),
+        decimal(3, askQty, qtyScale),
+        decimal(4, last, priceScale),
+        decimal(5, volume, qtyScale),
+        decimal(6, vwap, priceScale),
+        decimal(7, low, priceScale),
+        decimal(8, high, priceScale),
+        decimal(9, change, priceScale),
+        decimal(10, changePct, pctScale),
+        null);
+  }
+
+  public boolean has(int field) {
+    return (mask & (1 << field)) != 0;
+  }
+
+  /** Mantissa of the field at the given position, in {@link Ticker} component order after the symbol. */
+  public long mantissa(int field) {
+    return switch (field) {
+      case 0 -> bid;
+      case 1 -> bidQty;
+      case 2 -> ask;
+      case 3 -> askQty;
+      case 4 -> last;
+      case 5 -> volume;
+      case 6 -> vwap;
+      case 7 -> low;
+      case 8 -> high;
+      case 9 -> change;
+      case 10 -> changePct;
+      default -> throw new IndexOutOfBoundsException(field);
+    };
+  }
+
+  private static BigDecimal[] values(Ticker ticker) {
+    return new BigDecimal[] { ticker.bid(), ticker.bid_qty(), ticker.ask(), ticker.ask_qty(), ticker.last(),
+        ticker.volume(), ticker.vwap(), ticker.low(), ticker.high(), ticker.change(), ticker.change_pct() };
+  }
+
+  private static int scale(BigDecimal... values) {
+    int scale = 0;
+    for (BigDecimal value : values) {
+      if (value != null) {
+        scale = Math.max(scale, value.scale());
+      }
+    }
+    if (scale > Byte.MAX_VALUE) {
+      throw new ArithmeticException("Scale too large: " + scale);
+    }
+    return scale;
+  }
+
+  private static long mantissa(BigDecimal value, int scale) {
+    return value == null ? 0 : value.setScale(scale).unscaledValue().longValueExact();
+  }
+
+  private BigDecimal decimal(int field, long mantissa, int scale) {
+    return has(field) ? BigDecimal.valueOf(mantissa, scale) : null;
+  }
+}
@@ -11,6 +11,10 @@ public class KrakenModel {
       List<Ticker> data) {
   };
 
+  /**
+   * One pair's ticker. {@code timestamp} is the RFC 3339 time Kraken produced
+   * it, when the feed sends one; the fixed-point encodings do not carry it.
+   */
   public static record Ticker(
       String symbol,
       BigDecimal bid,
@@ -23,7 +27,8 @@ public class KrakenModel {
       BigDecimal low,
       BigDecimal high,
       BigDecimal change,
-      BigDecimal change_pct) {
+      BigDecimal change_pct,
+      String timestamp) {
   }
 
   public static record SubscribeEvent(String method, SubscribeParams params) {
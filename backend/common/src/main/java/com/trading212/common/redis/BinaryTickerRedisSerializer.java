@@ -0,0 +1,51 @@
+package com.trading212.common.redis;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.trading212.common.codec.TickerBinaryCodec;
+import com.trading212.common.model.FixedPointTicker;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+/**
+ * Stores tickers in the compact {@link TickerBinaryCodec} form. Values that
+ * are not in that form, such as JSON written before the switch, and tickers
+ * that do not fit fixed point are handled by the fallback serializer.
+ */
+public class BinaryTickerRedisSerializer implements RedisSerializer<Ticker> {
+
+  private final RedisSerializer<Ticker> fallback;
+
+  public BinaryTickerRedisSerializer(RedisSerializer<Ticker> fallback) {
+    this.fallback = fallback;
+  }
+
+  @Override
+  public byte[] serialize(Ticker ticker) throws SerializationException {
+    if (ticker == null) {
+      return null;
+    }
+    try {
+      return TickerBinaryCodec.encode(FixedPointTicker.from(ticker));
+    } catch (ArithmeticException e) {
+      return fallback.serialize(ticker);
+    }
+  }
+
+  @Override
+  public Ticker deserialize(byte[] bytes) throws SerializationException {
+    if (!TickerBinaryCodec.isBinary(bytes)) {
+      return fallback.deserialize(bytes);
+    }
+    try {
+      return TickerBinaryCodec.decode(bytes).toTicker();
+    } catch (RuntimeException e) {
+      throw new SerializationException("Could not read binary ticker", e);
+    }
+  }
+
+  @Override
+  public Class<?> getTargetType() {
+    return Ticker.class;
+  }
+}
@@ -0,0 +1,50 @@
+package com.trading212.common.redis;
+
+import com.trading212.common.model.CandleInterval;
+
+public final class RedisKeys {
+
+  /** Ticks are published per symbol on this prefix, e.g. {@code ticker:updates:BTC/USD}. */
+  public static final String TICKER_CHANNEL_PREFIX = "ticker:updates:";
+
+  public static final String TICKER_CHANNEL_PATTERN = TICKER_CHANNEL_PREFIX + "*";
+
+  /**
+   * Capped stream of every tick, the alternative to the channels. Each entry
+   * holds the symbol ({@code s}), the frame as published on the channel
+   * ({@code f}), the publishing producer ({@code p}) and its sequence number
+   * ({@code n}), which readers use to detect entries they missed.
+   */
+  public static final String TICKER_STREAM = "ticker:stream";
+
+  public static final String TICKER_STREAM_SYMBOL = "s";
+
+  public static final String TICKER_STREAM_FRAME = "f";
+
+  public static final String TICKER_STREAM_PRODUCER = "p";
+
+  public static final String TICKER_STREAM_SEQUENCE = "n";
+
+  /** Api nodes publish {@code <node>:<userId>} here after changing an account, so the others drop their copy. */
+  public static final String ACCOUNT_INVALIDATIONS = "accounts:invalidate";
+
+  /** Api nodes publish {@code <node>:<orderId>} here when a resting order fills, is rejected or is cancelled. */
+  public static final String ORDER_CLOSURES = "orders:closed";
+
+  /** Hash of every symbol ingest has stored, mapped to its last update time in epoch millis. */
+  public static final String SYMBOLS = "ticker:symbols";
+
+  /** Sorted sets of completed candles scored by open time, e.g. {@code candles:1m:BTC/USD}. */
+  public static final String CANDLES_PREFIX = "candles:";
+
+  private RedisKeys() {
+  }
+
+  public static String tickerChannel(String symbol) {
+    return TICKER_CHANNEL_PREFIX + symbol;
+  }
+
+  public static String candles(CandleInterval interval, String symbol) {
+    return CANDLES_PREFIX + interval.label() + ":" + symbol;
+  }
+}
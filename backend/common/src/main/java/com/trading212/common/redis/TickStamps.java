@@ -0,0 +1,57 @@
+package com.trading212.common.redis;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Stage timestamps carried in front of a ticker frame on its Redis channel,
+ * so the api can tell how long a tick spent in ingest and in transit:
+ *
+ * <pre>
+ * u8   magic (0xB5), never '{', so unstamped frames can be told apart
+ * i64  epoch micros at which ingest received the tick from Kraken
+ * i64  epoch micros at which ingest published it to Redis
+ * ...  the client frame
+ * </pre>
+ *
+ * The stamps are wall-clock times taken in another process, so stages that
+ * cross processes are only as accurate as the hosts' clock sync.
+ */
+public final class TickStamps {
+
+  public static final byte MAGIC = (byte) 0xB5;
+
+  public static final int HEADER_SIZE = 1 + 2 * Long.BYTES;
+
+  private TickStamps() {
+  }
+
+  public static byte[] stamp(byte[] frame, long receivedAtMicros, long publishedAtMicros) {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + frame.length);
+    buffer.put(MAGIC).putLong(receivedAtMicros).putLong(publishedAtMicros).put(frame);
+    return buffer.array();
+  }
+
+  public static boolean isStamped(byte[] message) {
+    return message != null && message.length >= HEADER_SIZE && message[0] == MAGIC;
+  }
+
+  public static long receivedAt(byte[] message) {
+    return ByteBuffer.wrap(message).getLong(1);
+  }
+
+  public static long publishedAt(byte[] message) {
+    return ByteBuffer.wrap(message).getLong(1 + Long.BYTES);
+  }
+
+  /** The client frame of a stamped message, copied out of it. */
+  public static byte[] frame(byte[] message) {
+    return Arrays.copyOfRange(message, HEADER_SIZE, message.length);
+  }
+
+  public static long nowMicros() {
+    Instant now = Instant.now();
+    return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+  }
+}
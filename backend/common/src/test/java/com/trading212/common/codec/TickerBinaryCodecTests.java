@@ -0,0 +1,120 @@
+package com.trading212.common.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.trading212.common.model.FixedPointTicker;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+class TickerBinaryCodecTests {
+
+	@Test
+	void roundTripsMixedScalesWithinAFieldGroup() {
+		Ticker ticker = new Ticker("BTC/USD", d("97000.1"), d("0.5"), d("97000.12345"), d("12.25"), d("97000"),
+				d("1234.56789012"), d("96500.5"), d("95000"), d("98000.25"), d("1500.1"), d("1.57"), null);
+
+		FixedPointTicker fixed = FixedPointTicker.from(ticker);
+
+		assertThat(fixed.priceScale()).isEqualTo(5);
+		assertThat(fixed.qtyScale()).isEqualTo(8);
+		assertThat(fixed.pctScale()).isEqualTo(2);
+		assertSameValues(roundTrip(ticker), ticker);
+	}
+
+	@Test
+	void roundTripsNegativeChanges() {
+		Ticker ticker = new Ticker("ETH/USD", d("3000.5"), d("1"), d("3001"), d("2"), d("3000.75"), d("100"),
+				d("3050"), d("2990"), d("3100"), d("-152.25"), d("-4.83"), null);
+
+		Ticker decoded = roundTrip(ticker);
+
+		assertThat(decoded.change()).isEqualByComparingTo("-152.25");
+		assertThat(decoded.change_pct()).isEqualByComparingTo("-4.83");
+		assertSameValues(decoded, ticker);
+	}
+
+	@Test
+	void keepsAbsentFieldsAbsent() {
+		Ticker ticker = new Ticker("SOL/USD", d("190.1"), null, null, d("3"), d("0"), null, null, null, null, null,
+				d("0.01"), "2026-01-01T00:00:00Z");
+
+		FixedPointTicker fixed = FixedPointTicker.from(ticker);
+		Ticker decoded = roundTrip(ticker);
+
+		assertThat(fixed.mask()).isEqualTo(0b100_0001_1001);
+		assertThat(decoded.bid_qty()).isNull();
+		assertThat(decoded.ask()).isNull();
+		assertThat(decoded.change()).isNull();
+		// A present zero is not an absent field
+		assertThat(decoded.last()).isEqualByComparingTo("0");
+		assertSameValues(decoded, ticker);
+		// The timestamp is not carried
+		assertThat(decoded.timestamp()).isNull();
+	}
+
+	@Test
+	void roundTripsNegativeScaleDecimals() {
+		Ticker ticker = new Ticker("SHIB/USD", new BigDecimal("1E+3"), new BigDecimal("2.5E+9"), d("1000.5"),
+				new BigDecimal("-3E+2"), null, null, null, null, null, new BigDecimal("-1E+1"), null, null);
+
+		FixedPointTicker fixed = FixedPointTicker.from(ticker);
+
+		assertThat(fixed.priceScale()).isEqualTo(1);
+		assertThat(fixed.qtyScale()).isZero();
+		assertSameValues(roundTrip(ticker), ticker);
+	}
+
+	@Test
+	void rejectsMantissasThatDoNotFitALong() {
+		Ticker tooLarge = new Ticker("BTC/USD", new BigDecimal("1E+30"), null, null, null, null, null, null, null,
+				null, null, null, null);
+		Ticker tooPrecise = new Ticker("BTC/USD", d("97000.1"), null, d("0.000000000000000000001"), null, null, null,
+				null, null, null, null, null, null);
+
+		assertThatThrownBy(() -> FixedPointTicker.from(tooLarge)).isInstanceOf(ArithmeticException.class);
+		assertThatThrownBy(() -> FixedPointTicker.from(tooPrecise)).isInstanceOf(ArithmeticException.class);
+	}
+
+	@Test
+	void roundTripsExtremeMantissas() {
+		FixedPointTicker fixed = new FixedPointTicker("X/Y", 0b111, 0, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE, -1, 0,
+				0, 0, 0, 0, 0, 0, 0);
+
+		assertThat(TickerBinaryCodec.decode(TickerBinaryCodec.encode(fixed))).isEqualTo(fixed);
+	}
+
+	@Test
+	void tellsBinaryValuesFromJson() {
+		byte[] binary = TickerBinaryCodec.encode(FixedPointTicker.from(new Ticker("BTC/USD", d("1"), null, null,
+				null, null, null, null, null, null, null, null, null)));
+
+		assertThat(TickerBinaryCodec.isBinary(binary)).isTrue();
+		assertThat(TickerBinaryCodec.isBinary("{\"symbol\":\"BTC/USD\"}".getBytes(StandardCharsets.UTF_8))).isFalse();
+		assertThat(TickerBinaryCodec.isBinary(new byte[0])).isFalse();
+		assertThat(TickerBinaryCodec.isBinary(null)).isFalse();
+		assertThatThrownBy(() -> TickerBinaryCodec.decode("{}".getBytes(StandardCharsets.UTF_8)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static Ticker roundTrip(Ticker ticker) {
+		return TickerBinaryCodec.decode(TickerBinaryCodec.encode(FixedPointTicker.from(ticker))).toTicker();
+	}
+
+	/** Equal numbers, not equal representations: each group comes back at its shared scale. */
+	private static void assertSameValues(Ticker actual, Ticker expected) {
+		assertThat(actual.symbol()).isEqualTo(expected.symbol());
+		assertThat(actual).usingRecursiveComparison()
+				.withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+				.ignoringFields("timestamp")
+				.isEqualTo(expected);
+	}
+
+	private static BigDecimal d(String value) {
+		return new BigDecimal(value);
+	}
+}
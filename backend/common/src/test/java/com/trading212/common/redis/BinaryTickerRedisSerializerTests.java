@@ -0,0 +1,64 @@
+package com.trading212.common.redis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.common.codec.TickerBinaryCodec;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+class BinaryTickerRedisSerializerTests {
+
+	private final BinaryTickerRedisSerializer serializer = new BinaryTickerRedisSerializer(
+			new Jackson2JsonRedisSerializer<>(new ObjectMapper(), Ticker.class));
+
+	@Test
+	void writesFixedPointTickersAsBinary() {
+		Ticker ticker = ticker(new BigDecimal("97000.12"));
+
+		byte[] bytes = serializer.serialize(ticker);
+
+		assertThat(TickerBinaryCodec.isBinary(bytes)).isTrue();
+		assertThat(serializer.deserialize(bytes).bid()).isEqualByComparingTo("97000.12");
+	}
+
+	@Test
+	void fallsBackToJsonForTickersThatDoNotFitFixedPoint() {
+		Ticker ticker = ticker(new BigDecimal("1E+30"));
+
+		byte[] bytes = serializer.serialize(ticker);
+
+		assertThat(bytes[0]).isEqualTo((byte) '{');
+		assertThat(serializer.deserialize(bytes)).isEqualTo(ticker);
+	}
+
+	@Test
+	void readsJsonWrittenBeforeTheSwitch() {
+		byte[] json = "{\"symbol\":\"BTC/USD\",\"bid\":97000.5,\"change_pct\":-1.25}".getBytes(StandardCharsets.UTF_8);
+
+		Ticker decoded = serializer.deserialize(json);
+
+		assertThat(decoded.bid()).isEqualByComparingTo("97000.5");
+		assertThat(decoded.change_pct()).isEqualByComparingTo("-1.25");
+	}
+
+	@Test
+	void reportsTruncatedBinaryValues() {
+		byte[] bytes = serializer.serialize(ticker(new BigDecimal("97000.12")));
+		byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+
+		assertThatThrownBy(() -> serializer.deserialize(truncated)).isInstanceOf(SerializationException.class);
+	}
+
+	private static Ticker ticker(BigDecimal bid) {
+		return new Ticker("BTC/USD", bid, BigDecimal.ONE, null, null, null, null, null, null, null, null, null, null);
+	}
+}
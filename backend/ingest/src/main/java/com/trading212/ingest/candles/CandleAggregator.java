@@ -0,0 +1,166 @@
+package com.trading212.ingest.candles;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.trading212.common.model.Candle;
+import com.trading212.common.model.CandleInterval;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.RedisKeys;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Aggregates ticks into 1s, 1m, 5m and 1h OHLCV bars per symbol. Bars are
+ * built from the last trade price (mid price if there is none yet) at the
+ * time ticks arrive. Kraken only reports a rolling 24h volume, so a bar's
+ * volume is the sum of that figure's increases during the bar, an
+ * approximation that misses volume offset by trades leaving the window.
+ *
+ * Completed bars are written to Redis sorted sets in one pipeline per flush,
+ * and each set is trimmed to its interval's retention.
+ */
+@Component
+public class CandleAggregator {
+
+  private static final Logger log = LoggerFactory.getLogger(CandleAggregator.class);
+
+  private static final CandleInterval[] INTERVALS = CandleInterval.values();
+  // Completed bars a series can hold between flushes before the oldest are lost
+  private static final int RING_CAPACITY = 64;
+
+  private static final class SymbolCandles {
+    final byte[][] keys = new byte[INTERVALS.length][];
+    final CandleSeries[] series = new CandleSeries[INTERVALS.length];
+    double lastVolume = Double.NaN;
+
+    SymbolCandles(String symbol) {
+      for (int i = 0; i < INTERVALS.length; i++) {
+        keys[i] = RedisKeys.candles(INTERVALS[i], symbol).getBytes(StandardCharsets.UTF_8);
+        series[i] = new CandleSeries(INTERVALS[i].millis(), RING_CAPACITY);
+      }
+    }
+  }
+
+  private final Map<String, SymbolCandles> symbols = new ConcurrentHashMap<>();
+  private final StringRedisTemplate stringRedisTemplate;
+  private final ScheduledExecutorService flusher;
+
+  public CandleAggregator(StringRedisTemplate stringRedisTemplate,
+      @Value("${candles.flush-interval:1s}") Duration flushInterval) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("candle-flush").daemon().factory());
+    flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  public void onTickers(List<Ticker> tickers) {
+    long now = System.currentTimeMillis();
+    for (Ticker ticker : tickers) {
+      BigDecimal price = ticker.last() != null ? ticker.last()
+          : ticker.bid() != null && ticker.ask() != null ? ticker.bid().add(ticker.ask()).divide(BigDecimal.TWO)
+          : null;
+      if (price == null) {
+        continue;
+      }
+      SymbolCandles candles = symbols.computeIfAbsent(ticker.symbol(), SymbolCandles::new);
+      double volumeDelta = 0;
+      if (ticker.volume() != null) {
+        double volume = ticker.volume().doubleValue();
+        synchronized (candles) {
+          if (volume > candles.lastVolume) {
+            volumeDelta = volume - candles.lastVolume;
+          }
+          candles.lastVolume = volume;
+        }
+      }
+      double value = price.doubleValue();
+      for (CandleSeries series : candles.series) {
+        series.update(now, value, volumeDelta);
+      }
+    }
+  }
+
+  /**
+   * Forgets the last 24h volume of the symbols, so the first tick after a gap
+   * in the feed sets a new baseline instead of adding the gap's volume to the
+   * current bar.
+   */
+  public void resync(Collection<String> symbols) {
+    for (String symbol : symbols) {
+      SymbolCandles candles = this.symbols.get(symbol);
+      if (candles != null) {
+        synchronized (candles) {
+          candles.lastVolume = Double.NaN;
+        }
+      }
+    }
+  }
+
+  void flush() {
+    long now = System.currentTimeMillis();
+    List<Candle> drained = new ArrayList<>();
+    List<byte[]> keys = new ArrayList<>();
+    List<List<Candle>> bars = new ArrayList<>();
+    List<CandleInterval> intervals = new ArrayList<>();
+    long lost = 0;
+    int count = 0;
+    for (SymbolCandles candles : symbols.values()) {
+      for (int i = 0; i < INTERVALS.length; i++) {
+        candles.series[i].closeIfDue(now);
+        lost += candles.series[i].drain(drained);
+        if (!drained.isEmpty()) {
+          count += drained.size();
+          keys.add(candles.keys[i]);
+          bars.add(drained);
+          intervals.add(INTERVALS[i]);
+          drained = new ArrayList<>();
+        }
+      }
+    }
+    if (lost > 0) {
+      log.warn("Lost {} candles that could not be persisted in time", lost);
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+    try {
+      stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+        for (int k = 0; k < keys.size(); k++) {
+          byte[] key = keys.get(k);
+          for (Candle candle : bars.get(k)) {
+            // A bar reopened after a restart replaces the partial one stored before it
+            connection.zSetCommands().zRemRangeByScore(key, candle.time(), candle.time());
+            connection.zSetCommands().zAdd(key, candle.time(), candle.encode().getBytes(StandardCharsets.UTF_8));
+          }
+          connection.zSetCommands().zRemRange(key, 0, -intervals.get(k).retained() - 1L);
+        }
+        return null;
+      });
+    } catch (Exception e) {
+      log.warn("Could not persist {} candles: {}", count, e.getMessage());
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    flusher.shutdownNow();
+  }
+}
@@ -0,0 +1,93 @@
+package com.trading212.ingest.candles;
+
+import java.util.List;
+
+import com.trading212.common.model.Candle;
+
+/**
+ * Bars of one symbol at one interval: the bar currently open plus a ring of
+ * completed bars waiting to be persisted. Updating from a tick only touches
+ * primitive fields, so the hot path allocates nothing; {@link Candle}s are
+ * only created when a flush drains the ring. If flushes fall more than a ring
+ * behind, the oldest completed bars are overwritten and counted as lost.
+ */
+final class CandleSeries {
+
+  private final long intervalMillis;
+  private final int capacity;
+  private final long[] times;
+  private final double[] opens;
+  private final double[] highs;
+  private final double[] lows;
+  private final double[] closes;
+  private final double[] volumes;
+  private long completed;
+  private long drained;
+
+  private long openTime = -1;
+  private double open;
+  private double high;
+  private double low;
+  private double close;
+  private double volume;
+
+  CandleSeries(long intervalMillis, int capacity) {
+    this.intervalMillis = intervalMillis;
+    this.capacity = capacity;
+    this.times = new long[capacity];
+    this.opens = new double[capacity];
+    this.highs = new double[capacity];
+    this.lows = new double[capacity];
+    this.closes = new double[capacity];
+    this.volumes = new double[capacity];
+  }
+
+  synchronized void update(long now, double price, double volumeDelta) {
+    long barStart = now - Math.floorMod(now, intervalMillis);
+    if (barStart > openTime) {
+      closeOpenBar();
+      openTime = barStart;
+      open = high = low = close = price;
+      volume = volumeDelta;
+      return;
+    }
+    // Same bar, or the clock stepped back: fold the tick into the open bar
+    high = Math.max(high, price);
+    low = Math.min(low, price);
+    close = price;
+    volume += volumeDelta;
+  }
+
+  /** Completes the open bar once its interval is over, even if no further tick arrives. */
+  synchronized void closeIfDue(long now) {
+    if (openTime >= 0 && now >= openTime + intervalMillis) {
+      closeOpenBar();
+    }
+  }
+
+  /** Moves completed bars into {@code out}; returns how many were lost to overflow. */
+  synchronized long drain(List<Candle> out) {
+    long lost = Math.max(0, completed - drained - capacity);
+    for (long i = drained + lost; i < completed; i++) {
+      int slot = (int) (i % capacity);
+      out.add(new Candle(times[slot], opens[slot], highs[slot], lows[slot], closes[slot], volumes[slot]));
+    }
+    drained = completed;
+    return lost;
+  }
+
+  private void closeOpenBar() {
+    if (openTime < 0) {
+      return;
+    }
+    int slot = (int) (completed % capacity);
+    times[slot] = openTime;
+    opens[slot] = open;
+    highs[slot] = high;
+    lows[slot] = low;
+    closes[slot] = close;
+    volumes[slot] = volume;
+    completed++;
+    openTime = -1;
+  }
+}
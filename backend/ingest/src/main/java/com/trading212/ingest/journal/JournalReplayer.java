@@ -0,0 +1,106 @@
+package com.trading212.ingest.journal;
+
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.TickStamps;
+import com.trading212.ingest.candles.CandleAggregator;
+import com.trading212.ingest.redis.TickerPublisher;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Feeds a recorded {@link TickJournal} through the normal publishing path
+ * instead of connecting to Kraken, for reproducible load tests and for
+ * rebuilding Redis state. Frames keep their original spacing divided by
+ * {@code ingest.replay.speed}; a speed of 0 replays as fast as Redis accepts.
+ */
+@Component
+@ConditionalOnProperty(name = "ingest.source", havingValue = "replay")
+public class JournalReplayer {
+
+  private static final Logger log = LoggerFactory.getLogger(JournalReplayer.class);
+
+  private final TickJournalReader reader;
+  private final TickerPublisher tickerPublisher;
+  private final CandleAggregator candleAggregator;
+  private final double speed;
+  private final boolean loop;
+  private Thread worker;
+
+  public JournalReplayer(TickerPublisher tickerPublisher, CandleAggregator candleAggregator,
+      RedisSerializer<Ticker> tickerJsonSerializer,
+      @Value("${ingest.replay.dir:${ingest.journal.dir:journal}}") Path directory,
+      @Value("${ingest.replay.speed:1}") double speed,
+      @Value("${ingest.replay.loop:false}") boolean loop) {
+    if (speed < 0) {
+      throw new IllegalArgumentException("ingest.replay.speed must not be negative: " + speed);
+    }
+    this.reader = new TickJournalReader(directory, tickerJsonSerializer);
+    this.tickerPublisher = tickerPublisher;
+    this.candleAggregator = candleAggregator;
+    this.speed = speed;
+    this.loop = loop;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    worker = Thread.ofPlatform().name("journal-replay").daemon().start(this::run);
+  }
+
+  private void run() {
+    try {
+      do {
+        long frames = replayOnce();
+        log.info("Replayed {} frames from the tick journal", frames);
+        if (frames == 0) {
+          return;
+        }
+      } while (loop);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.error("Tick journal replay failed", e);
+    }
+  }
+
+  private long replayOnce() throws Exception {
+    long[] frames = new long[1];
+    long[] firstRecorded = { -1 };
+    long started = System.nanoTime();
+    reader.read((receivedAt, tickers) -> {
+      if (firstRecorded[0] < 0) {
+        firstRecorded[0] = receivedAt;
+      }
+      if (speed > 0) {
+        long dueNanos = started + (long) ((receivedAt - firstRecorded[0]) * 1_000_000 / speed);
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+          Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+      }
+      tickerPublisher.publish(tickers, TickStamps.nowMicros());
+      candleAggregator.onTickers(tickers);
+      frames[0]++;
+      return !Thread.currentThread().isInterrupted();
+    });
+    return frames[0];
+  }
+
+  @PreDestroy
+  synchronized void stop() throws InterruptedException {
+    if (worker != null) {
+      worker.interrupt();
+      worker.join(5_000);
+    }
+  }
+}
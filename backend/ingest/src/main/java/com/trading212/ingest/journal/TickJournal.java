@@ -0,0 +1,171 @@
+package com.trading212.ingest.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.BinaryTickerRedisSerializer;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only journal of every ticker received from Kraken, kept on local
+ * disk so ticks survive restarts of ingest or Redis and can be replayed.
+ *
+ * The journal is a directory of segments. Each segment is preallocated and
+ * memory-mapped, so an append is a copy into the page cache and survives a
+ * crash of the process (not of the machine). Entries are
+ *
+ * <pre>
+ * u32     payload length, 0 marks the end of a segment
+ * i64     receive time in epoch millis, shared by the tickers of one frame
+ * bytes   the ticker in {@link com.trading212.common.codec.TickerBinaryCodec} form,
+ *         or JSON for the rare ticker that does not fit fixed point
+ * </pre>
+ *
+ * When a segment is full it is flushed, truncated to its content and a new
+ * one is started. Old segments are deleted once the journal exceeds its size
+ * limit or they exceed the age limit.
+ */
+@Component
+public class TickJournal {
+
+  private static final Logger log = LoggerFactory.getLogger(TickJournal.class);
+
+  static final String SEGMENT_PREFIX = "ticks-";
+  static final String SEGMENT_SUFFIX = ".journal";
+  static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+  private final boolean enabled;
+  private final Path directory;
+  private final int segmentSize;
+  private final long maxBytes;
+  private final Duration maxAge;
+  private final RedisSerializer<Ticker> codec;
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+
+  public TickJournal(RedisSerializer<Ticker> tickerJsonSerializer,
+      @Value("${ingest.journal.enabled:true}") boolean enabled,
+      @Value("${ingest.journal.dir:journal}") Path directory,
+      @Value("${ingest.journal.segment-size:64MB}") DataSize segmentSize,
+      @Value("${ingest.journal.max-size:1GB}") DataSize maxSize,
+      @Value("${ingest.journal.max-age:7d}") Duration maxAge) {
+    this.enabled = enabled;
+    this.directory = directory;
+    this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+    this.maxBytes = maxSize.toBytes();
+    this.maxAge = maxAge;
+    this.codec = new BinaryTickerRedisSerializer(tickerJsonSerializer);
+  }
+
+  /** Appends the tickers of one frame; failures are logged and never reach the caller. */
+  public synchronized void append(List<Ticker> tickers, long receivedAt) {
+    if (!enabled) {
+      return;
+    }
+    try {
+      for (Ticker ticker : tickers) {
+        byte[] payload = codec.serialize(ticker);
+        if (segment == null || segment.remaining() < HEADER_SIZE + payload.length + Integer.BYTES) {
+          roll();
+        }
+        segment.putInt(payload.length);
+        segment.putLong(receivedAt);
+        segment.put(payload);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not journal ticks: {}", e.getMessage());
+    }
+  }
+
+  private void roll() throws IOException {
+    closeSegment();
+    Files.createDirectories(directory);
+    long now = System.currentTimeMillis();
+    Path path = directory.resolve(segmentName(now));
+    for (long suffix = now + 1; Files.exists(path); suffix++) {
+      path = directory.resolve(segmentName(suffix));
+    }
+    channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    enforceRetention(path);
+  }
+
+  private void closeSegment() throws IOException {
+    if (segment == null) {
+      return;
+    }
+    int written = segment.position();
+    segment.force();
+    segment = null;
+    // Trim the unused preallocation so retention sees real sizes; the buffer is never touched again
+    channel.truncate(written);
+    channel.close();
+    channel = null;
+  }
+
+  private void enforceRetention(Path current) throws IOException {
+    List<Path> segments = segments(directory);
+    long total = 0;
+    for (Path path : segments) {
+      total += Files.size(path);
+    }
+    long oldest = System.currentTimeMillis() - maxAge.toMillis();
+    for (Path path : segments) {
+      if (path.equals(current)) {
+        break;
+      }
+      if (total <= maxBytes && Files.getLastModifiedTime(path).toMillis() >= oldest) {
+        break;
+      }
+      total -= Files.size(path);
+      Files.delete(path);
+    }
+  }
+
+  /** Segments in the order they were written. */
+  static List<Path> segments(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (var files = Files.list(directory)) {
+      return files
+          .filter(path -> {
+            String name = path.getFileName().toString();
+            return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+          })
+          .sorted()
+          .toList();
+    }
+  }
+
+  private static String segmentName(long millis) {
+    // Zero padded so lexical order is write order
+    return SEGMENT_PREFIX + String.format("%015d", millis) + SEGMENT_SUFFIX;
+  }
+
+  @PreDestroy
+  synchronized void close() {
+    try {
+      closeSegment();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
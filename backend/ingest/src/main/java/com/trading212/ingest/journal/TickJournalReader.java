@@ -0,0 +1,73 @@
+package com.trading212.ingest.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.BinaryTickerRedisSerializer;
+
+/**
+ * Reads a {@link TickJournal} directory back, oldest segment first, grouping
+ * the tickers that were received together into one frame again.
+ */
+public class TickJournalReader {
+
+  /** Receives each frame in journal order; returning {@code false} stops the read. */
+  @FunctionalInterface
+  public interface FrameHandler {
+    boolean onFrame(long receivedAt, List<Ticker> tickers) throws InterruptedException;
+  }
+
+  private final Path directory;
+  private final RedisSerializer<Ticker> codec;
+
+  public TickJournalReader(Path directory, RedisSerializer<Ticker> tickerJsonSerializer) {
+    this.directory = directory;
+    this.codec = new BinaryTickerRedisSerializer(tickerJsonSerializer);
+  }
+
+  /** Returns {@code false} if the handler stopped the read early. */
+  public boolean read(FrameHandler handler) throws IOException, InterruptedException {
+    for (Path segment : TickJournal.segments(directory)) {
+      if (!readSegment(segment, handler)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean readSegment(Path path, FrameHandler handler) throws IOException, InterruptedException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    List<Ticker> frame = new ArrayList<>();
+    long frameTime = 0;
+    while (buffer.remaining() >= TickJournal.HEADER_SIZE) {
+      int length = buffer.getInt();
+      long receivedAt = buffer.getLong();
+      // A zero length is the unwritten tail of a segment; an oversized one a torn last write
+      if (length <= 0 || length > buffer.remaining()) {
+        break;
+      }
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+      if (receivedAt != frameTime && !frame.isEmpty()) {
+        if (!handler.onFrame(frameTime, frame)) {
+          return false;
+        }
+        frame = new ArrayList<>();
+      }
+      frameTime = receivedAt;
+      frame.add(codec.deserialize(payload));
+    }
+    return frame.isEmpty() || handler.onFrame(frameTime, frame);
+  }
+}
@@ -1,98 +1,133 @@
 package com.trading212.ingest.kraken.client;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.lang.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import org.springframework.web.socket.TextMessage;
-import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import com.fasterxml.jackson.core.JacksonException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.trading212.common.model.KrakenModel.SubscribeEvent;
-import com.trading212.common.model.KrakenModel.SubscribeParams;
 import com.trading212.common.model.KrakenModel.Ticker;
-import com.trading212.common.model.KrakenModel.TickerResponse;
+import com.trading212.ingest.candles.CandleAggregator;
+import com.trading212.ingest.journal.TickJournal;
+import com.trading212.ingest.redis.TickerPublisher;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+/**
+ * Streams the configured pairs from Kraken over {@code kraken.connections}
+ * WebSockets, dealing the pairs out round-robin. Each {@link KrakenConnection}
+ * parses on its own thread and heals itself; this class owns the shared
+ * watchdog and turns frames into journal entries, Redis updates and candles.
+ */
 @Component
+@ConditionalOnProperty(name = "ingest.source", havingValue = "kraken", matchIfMissing = true)
 public class KrakenClient {
 
-    private final RedisTemplate<String, TickerResponse> pubSubRedisTemplate;
-    private final RedisTemplate<String, Ticker> simpleRedisTemplate;
-    private final ObjectMapper objectMapper;
-    private final ConcurrentHashMap<String, String> cryptoPairs = new ConcurrentHashMap<>() {
-        {
-            put("Bitcoin", "BTC/USD");
-            put("Tether", "USDT/USD");
-            put("Ethereum", "ETH/USD");
-            put("Ripple", "XRP/USD");
-            put("Cardano", "ADA/USD");
-            put("Solana", "SOL/USD");
-            put("Dogecoin", "DOGE/USD");
-            put("Polkadot", "DOT/USD");
-            put("Litecoin", "LTC/USD");
-            put("Chainlink", "LINK/USD");
-            put("Bitcoin Cash", "BCH/USD");
-            put("Stellar", "XLM/USD");
-            put("Filecoin", "FIL/USD");
-            put("EOS", "EOS/USD");
-            put("TRON", "TRX/USD");
-            put("Ethereum Classic", "ETC/USD");
-            put("Uniswap", "UNI/USD");
-            put("Polygon", "MATIC/USD");
-            put("Aave", "AAVE/USD");
-            put("Algorand", "ALGO/USD");
+    private static final Logger log = LoggerFactory.getLogger(KrakenClient.class);
+
+    static final String DEFAULT_PAIRS = "BTC/USD,USDT/USD,ETH/USD,XRP/USD,ADA/USD,SOL/USD,DOGE/USD,DOT/USD,"
+            + "LTC/USD,LINK/USD,BCH/USD,XLM/USD,FIL/USD,EOS/USD,TRX/USD,ETC/USD,UNI/USD,MATIC/USD,AAVE/USD,ALGO/USD";
+
+    private final TickerPublisher tickerPublisher;
+    private final CandleAggregator candleAggregator;
+    private final TickJournal tickJournal;
+    private final KrakenFrameDecoder frameDecoder;
+    private final List<KrakenConnection> connections = new ArrayList<>();
+    private final ScheduledExecutorService watchdog;
+
+    public KrakenClient(TickerPublisher tickerPublisher, CandleAggregator candleAggregator,
+            TickJournal tickJournal, KrakenFrameDecoder frameDecoder, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${kraken.ws-url:wss://ws.kraken.com/v2}") String url,
+            @Value("${kraken.pairs:" + DEFAULT_PAIRS + "}") List<String> pairs,
+            @Value("${kraken.connections:2}") int connectionCount,
+            @Value("${kraken.stale-after:10s}") Duration staleAfter,
+            @Value("${kraken.reconnect.min-backoff:1s}") Duration minBackoff,
+            @Value("${kraken.reconnect.max-backoff:30s}") Duration maxBackoff) {
+        if (connectionCount < 1) {
+            throw new IllegalArgumentException("kraken.connections must be at least 1: " + connectionCount);
+        }
+        List<String> symbols = pairs.stream().map(String::trim).filter(pair -> !pair.isEmpty()).distinct().toList();
+        if (symbols.isEmpty()) {
+            throw new IllegalArgumentException("kraken.pairs must name at least one pair");
         }
-    };
+        this.tickerPublisher = tickerPublisher;
+        this.candleAggregator = candleAggregator;
+        this.tickJournal = tickJournal;
+        this.frameDecoder = frameDecoder;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("kraken-watchdog").daemon().factory());
 
-    public KrakenClient(RedisTemplate<String, TickerResponse> pubSubRedisTemplate,
-            RedisTemplate<String, Ticker> simpleRedisTemplate, ObjectMapper objectMapper) {
-        this.pubSubRedisTemplate = pubSubRedisTemplate;
-        this.simpleRedisTemplate = simpleRedisTemplate;
-        this.objectMapper = objectMapper;
+        int shards = Math.min(connectionCount, symbols.size());
+        List<List<String>> shardPairs = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            shardPairs.add(new ArrayList<>());
+        }
+        for (int i = 0; i < symbols.size(); i++) {
+            shardPairs.get(i % shards).add(symbols.get(i));
+        }
+        var settings = new KrakenConnection.Settings(url, staleAfter, minBackoff, maxBackoff);
+        var webSocketClient = new StandardWebSocketClient();
+        for (int i = 0; i < shards; i++) {
+            connections.add(new KrakenConnection(i, shardPairs.get(i), this, webSocketClient, objectMapper,
+                    watchdog, settings, meterRegistry));
+        }
     }
 
     @PostConstruct
     public void connect() {
-        StandardWebSocketClient client = new StandardWebSocketClient();
-        client.execute(new TextWebSocketHandler() {
-            @Override
-            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
-                var subscriptionMessage = new SubscribeEvent("subscribe",
-                        new SubscribeParams("ticker", new ArrayList<>(cryptoPairs.values())));
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(subscriptionMessage)));
-            }
+        log.info("Streaming {} pairs from Kraken over {} connections", connections.stream()
+                .mapToInt(connection -> connection.pairs().size()).sum(), connections.size());
+        connections.forEach(KrakenConnection::connect);
+        watchdog.scheduleWithFixedDelay(() -> connections.forEach(KrakenConnection::check), 1, 1, TimeUnit.SECONDS);
+    }
+
+    List<KrakenConnection> connections() {
+        return connections;
+    }
 
-            @Override
-            public void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) {
-                try {
-                    var payload = objectMapper.readTree(message.getPayload());
-                    if (payload.has("channel") && payload.has("type")
-                            && "ticker".equals(payload.get("channel").asText())
-                            && ("update".equals(payload.get("type").asText())
-                                    || "snapshot".equals(payload.get("type").asText()))) {
-                        System.out.println(message.getPayload());
-                        var tickerResponse = objectMapper.readValue(message.getPayload(), TickerResponse.class);
-                        pubSubRedisTemplate.convertAndSend("ticker:updates", tickerResponse); // augment the response
-                                                                                              // with names of
-                                                                                              // cryptoPairs
-                        tickerResponse.data().forEach(ticker -> {
-                            simpleRedisTemplate.boundValueOps(ticker.symbol()).set(ticker); // listing the name of
-                                                                                            // crypto
-                        });
-                    }
-                } catch (JacksonException e) {
-                    System.err.println("Ignored or unsupported response from Kraken: " + message.getPayload());
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+    /**
+     * Handles one frame received from Kraken at the given epoch micros and
+     * returns its tickers; never throws.
+     */
+    public List<Ticker> onFrame(String payload, long receivedAt) {
+        try {
+            var tickers = frameDecoder.decodeTickers(payload);
+            if (!tickers.isEmpty()) {
+                // Journal first, so a tick that reached clients can always be replayed
+                tickJournal.append(tickers, receivedAt / 1_000);
+                tickerPublisher.publish(tickers, receivedAt);
+                candleAggregator.onTickers(tickers);
             }
-        }, "wss://ws.kraken.com/v2");
+            return tickers;
+        } catch (JacksonException e) {
+            log.warn("Ignored or unsupported response from Kraken: {}", payload);
+        } catch (Exception e) {
+            log.error("Could not handle Kraken frame", e);
+        }
+        return List.of();
+    }
+
+    /** Forgets per-pair state that a gap in the feed would corrupt, before the pairs resubscribe. */
+    void resync(List<String> pairs) {
+        candleAggregator.resync(pairs);
+    }
+
+    @PreDestroy
+    void stop() {
+        watchdog.shutdownNow();
+        connections.forEach(KrakenConnection::close);
     }
 }
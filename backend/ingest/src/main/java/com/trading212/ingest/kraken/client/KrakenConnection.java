@@ -0,0 +1,308 @@
+package com.trading212.ingest.kraken.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.common.model.KrakenModel.SubscribeEvent;
+import com.trading212.common.model.KrakenModel.SubscribeParams;
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.TickStamps;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * One WebSocket to Kraken carrying a fixed share of the pairs. Frames are
+ * stamped on the socket thread and parsed on the connection's own thread, so
+ * a burst on one connection does not hold up the others. Frames are parsed
+ * strictly in arrival order: once the parser falls too far behind, the
+ * socket thread waits for room instead of reading on.
+ *
+ * Kraken sends a heartbeat every second once subscribed, so a socket that has
+ * been silent for {@code staleAfter} is dropped, as is a handshake that takes
+ * that long. Reconnects wait an exponentially growing, jittered delay, which
+ * resets once a connection has resubscribed. Every subscription asks for a
+ * snapshot; the snapshot goes through the normal publishing path and
+ * overwrites whatever Redis kept from before the gap.
+ */
+final class KrakenConnection {
+
+  enum State {
+    CONNECTING, SUBSCRIBING, STREAMING, WAITING, CLOSED
+  }
+
+  record Settings(String url, Duration staleAfter, Duration minBackoff, Duration maxBackoff) {
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(KrakenConnection.class);
+
+  // Frames waiting for the parsing thread; beyond this the socket thread waits, slowing its reads
+  static final int MAX_QUEUED_FRAMES = 4_096;
+
+  private final String name;
+  private final List<String> pairs;
+  private final KrakenClient client;
+  private final WebSocketClient webSocketClient;
+  private final ScheduledExecutorService scheduler;
+  private final Settings settings;
+  private final String subscribeMessage;
+  private final ThreadPoolExecutor parser;
+  private final Counter reconnects;
+
+  private volatile State state = State.WAITING;
+  private long stateSince = System.nanoTime();
+  private WebSocketSession session;
+  private Set<String> awaitingSnapshot = Set.of();
+  private int failures;
+  private int attempt;
+  private volatile long lastFrameAt = System.nanoTime();
+
+  KrakenConnection(int index, List<String> pairs, KrakenClient client, WebSocketClient webSocketClient,
+      ObjectMapper objectMapper, ScheduledExecutorService scheduler, Settings settings,
+      MeterRegistry meterRegistry) {
+    this.name = "kraken-" + index;
+    this.pairs = List.copyOf(pairs);
+    this.client = client;
+    this.webSocketClient = webSocketClient;
+    this.scheduler = scheduler;
+    this.settings = settings;
+    try {
+      this.subscribeMessage = objectMapper.writeValueAsString(
+          new SubscribeEvent("subscribe", new SubscribeParams("ticker", this.pairs)));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    this.parser = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES),
+        Thread.ofPlatform().name(name + "-parse").daemon().factory(),
+        KrakenConnection::awaitRoom);
+    this.reconnects = Counter.builder("kraken.reconnects").tag("connection", name)
+        .description("Kraken connections dropped and retried").register(meterRegistry);
+    Gauge.builder("kraken.connection.lag", this, connection -> connection.lag().toNanos() / 1e9)
+        .tag("connection", name).baseUnit("seconds")
+        .description("Time since the connection last received a frame").register(meterRegistry);
+    Gauge.builder("kraken.connection.queued", parser, executor -> executor.getQueue().size())
+        .tag("connection", name).description("Frames waiting for the parsing thread").register(meterRegistry);
+  }
+
+  String name() {
+    return name;
+  }
+
+  List<String> pairs() {
+    return pairs;
+  }
+
+  State state() {
+    return state;
+  }
+
+  /** Time since the last frame, heartbeats included. */
+  Duration lag() {
+    return Duration.ofNanos(System.nanoTime() - lastFrameAt);
+  }
+
+  int queuedFrames() {
+    return parser.getQueue().size();
+  }
+
+  double reconnects() {
+    return reconnects.count();
+  }
+
+  synchronized void connect() {
+    if (state == State.CLOSED) {
+      return;
+    }
+    state(State.CONNECTING);
+    int current = ++attempt;
+    webSocketClient.execute(new Handler(), settings.url()).whenComplete((opened, e) -> {
+      if (e != null) {
+        connectFailed(current, e);
+      }
+    });
+  }
+
+  private synchronized void connectFailed(int failed, Throwable e) {
+    // A handshake that timed out may fail long after its retry started connecting
+    if (failed == attempt && state == State.CONNECTING) {
+      retry("connect failed: " + e.getMessage());
+    }
+  }
+
+  private synchronized void opened(WebSocketSession session) throws IOException {
+    if (state != State.CONNECTING) {
+      // Closed, or the handshake outlived its timeout and a retry is already scheduled
+      session.close();
+      return;
+    }
+    this.session = session;
+    lastFrameAt = System.nanoTime();
+    awaitingSnapshot = new HashSet<>(pairs);
+    client.resync(pairs);
+    state(State.SUBSCRIBING);
+    session.sendMessage(new TextMessage(subscribeMessage));
+  }
+
+  private void received(String payload) {
+    long receivedAt = TickStamps.nowMicros();
+    lastFrameAt = System.nanoTime();
+    parser.execute(() -> {
+      List<Ticker> tickers = client.onFrame(payload, receivedAt);
+      if (state == State.SUBSCRIBING && !tickers.isEmpty()) {
+        snapshotsReceived(tickers);
+      }
+    });
+  }
+
+  /**
+   * Queues a frame behind those already waiting rather than parsing it on
+   * the socket thread, where it would overtake them.
+   */
+  private static void awaitRoom(Runnable frame, ThreadPoolExecutor parser) {
+    if (parser.isShutdown()) {
+      // Closed; its frames no longer matter
+      return;
+    }
+    try {
+      parser.getQueue().put(frame);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // Fails the socket, and the reconnect's snapshots replace the dropped frame
+      throw new RejectedExecutionException("Interrupted while waiting to queue a frame", e);
+    }
+  }
+
+  /** The first ticker of each pair after subscribing is its snapshot. */
+  private synchronized void snapshotsReceived(List<Ticker> tickers) {
+    if (state != State.SUBSCRIBING) {
+      return;
+    }
+    tickers.forEach(ticker -> awaitingSnapshot.remove(ticker.symbol()));
+    if (awaitingSnapshot.isEmpty()) {
+      log.info("{} streaming {} pairs", name, pairs.size());
+      failures = 0;
+      state(State.STREAMING);
+    }
+  }
+
+  private synchronized void closed(WebSocketSession session, String reason) {
+    if (session == this.session) {
+      this.session = null;
+      retry(reason);
+    }
+  }
+
+  /** Drops a connection that has gone quiet; run by the watchdog every second. */
+  synchronized void check() {
+    long now = System.nanoTime();
+    long staleAfter = settings.staleAfter().toNanos();
+    switch (state) {
+      case CONNECTING -> {
+        if (now - stateSince > staleAfter) {
+          retry("connect timed out");
+        }
+      }
+      case SUBSCRIBING, STREAMING -> {
+        if (now - lastFrameAt > staleAfter) {
+          WebSocketSession stale = session;
+          session = null;
+          retry("no frames for " + settings.staleAfter().toSeconds() + "s");
+          closeQuietly(stale);
+        } else if (state == State.SUBSCRIBING && now - stateSince > staleAfter && parser.getQueue().isEmpty()) {
+          // Alive and caught up, but some pairs never got a snapshot: most likely pairs Kraken does not list
+          log.warn("{} got no snapshot for {}", name, awaitingSnapshot);
+          failures = 0;
+          state(State.STREAMING);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  private void retry(String reason) {
+    if (state == State.CLOSED || state == State.WAITING) {
+      return;
+    }
+    long delay = backoffMillis(failures++);
+    log.warn("{} lost ({}), reconnecting in {} ms", name, reason, delay);
+    reconnects.increment();
+    state(State.WAITING);
+    scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /** Half the capped exponential delay, plus up to as much again at random, so shards do not retry in step. */
+  private long backoffMillis(int failures) {
+    long min = settings.minBackoff().toMillis();
+    long cap = Math.min(settings.maxBackoff().toMillis(), min << Math.min(failures, 20));
+    return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+  }
+
+  private void state(State state) {
+    this.state = state;
+    this.stateSince = System.nanoTime();
+  }
+
+  synchronized void close() {
+    state(State.CLOSED);
+    closeQuietly(session);
+    session = null;
+    parser.shutdown();
+  }
+
+  private void closeQuietly(WebSocketSession session) {
+    if (session == null) {
+      return;
+    }
+    try {
+      session.close();
+    } catch (IOException e) {
+      log.debug("{} close failed: {}", name, e.getMessage());
+    }
+  }
+
+  private final class Handler extends TextWebSocketHandler {
+
+    @Override
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws IOException {
+      opened(session);
+    }
+
+    @Override
+    public void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message) {
+      received(message.getPayload());
+    }
+
+    @Override
+    public void handleTransportError(@NonNull WebSocketSession session, @NonNull Throwable exception) {
+      closed(session, exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
+      closed(session, status.toString());
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.trading212.ingest.kraken.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+/**
+ * Streams a Kraken v2 frame once, routing on {@code channel} and {@code type}
+ * as they are read and binding {@code data} straight to tickers. Frames of any
+ * other channel are abandoned as soon as the channel is known.
+ */
+@Component
+public class KrakenFrameDecoder {
+
+  private final ObjectMapper objectMapper;
+  private final ObjectReader tickerReader;
+
+  public KrakenFrameDecoder(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    this.tickerReader = objectMapper.readerFor(Ticker.class);
+  }
+
+  /** Returns the tickers of a ticker snapshot or update, or an empty list for anything else. */
+  public List<Ticker> decodeTickers(String frame) throws IOException {
+    try (JsonParser parser = objectMapper.getFactory().createParser(frame)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return List.of();
+      }
+      boolean tickerChannel = false;
+      boolean tickerType = false;
+      List<Ticker> tickers = null;
+      JsonNode deferred = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        parser.nextToken();
+        switch (field) {
+          case "channel" -> {
+            tickerChannel = "ticker".equals(parser.getText());
+            if (!tickerChannel) {
+              return List.of();
+            }
+          }
+          case "type" -> {
+            tickerType = "update".equals(parser.getText()) || "snapshot".equals(parser.getText());
+            if (!tickerType) {
+              return List.of();
+            }
+          }
+          case "data" -> {
+            if (tickerChannel && tickerType) {
+              tickers = readTickers(parser);
+            } else {
+              // Kraken sends channel and type first; keep the data just in case it did not
+              deferred = parser.readValueAsTree();
+            }
+          }
+          default -> parser.skipChildren();
+        }
+      }
+      if (!tickerChannel || !tickerType) {
+        return List.of();
+      }
+      if (tickers == null && deferred != null) {
+        tickers = new ArrayList<>(deferred.size());
+        for (JsonNode node : deferred) {
+          tickers.add(tickerReader.readValue(node));
+        }
+      }
+      return tickers == null ? List.of() : tickers;
+    }
+  }
+
+  private List<Ticker> readTickers(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return List.of();
+    }
+    List<Ticker> tickers = new ArrayList<>();
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      tickers.add(tickerReader.readValue(parser));
+    }
+    return tickers;
+  }
+}
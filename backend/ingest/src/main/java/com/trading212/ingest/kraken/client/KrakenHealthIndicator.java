@@ -0,0 +1,43 @@
+package com.trading212.ingest.kraken.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports each Kraken connection's state, pairs, lag since its last frame,
+ * parse backlog and reconnects under {@code /actuator/health}. Ingest is down
+ * while any connection is not streaming, since its pairs are then frozen.
+ */
+@Component
+@ConditionalOnProperty(name = "ingest.source", havingValue = "kraken", matchIfMissing = true)
+public class KrakenHealthIndicator implements HealthIndicator {
+
+  private final KrakenClient krakenClient;
+
+  public KrakenHealthIndicator(KrakenClient krakenClient) {
+    this.krakenClient = krakenClient;
+  }
+
+  @Override
+  public Health health() {
+    boolean streaming = true;
+    Map<String, Object> details = new LinkedHashMap<>();
+    for (KrakenConnection connection : krakenClient.connections()) {
+      KrakenConnection.State state = connection.state();
+      streaming &= state == KrakenConnection.State.STREAMING;
+      Map<String, Object> detail = new LinkedHashMap<>();
+      detail.put("state", state);
+      detail.put("pairs", connection.pairs());
+      detail.put("lagMillis", connection.lag().toMillis());
+      detail.put("queuedFrames", connection.queuedFrames());
+      detail.put("reconnects", (long) connection.reconnects());
+      details.put(connection.name(), detail);
+    }
+    return (streaming ? Health.up() : Health.down()).withDetails(details).build();
+  }
+}
@@ -0,0 +1,158 @@
+package com.trading212.ingest.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import com.trading212.common.model.KrakenModel.Ticker;
+import com.trading212.common.redis.RedisKeys;
+import com.trading212.common.redis.TickStamps;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Stores and publishes tickers. Each ticker is encoded once, into exactly the
+ * JSON WebSocket clients receive, and that frame is the message on the
+ * symbol's channel, so the api can forward it as is. With the JSON codec it is
+ * also the stored value; the binary codec stores a compact form instead.
+ * All commands for one Kraken frame go to Redis as a single pipeline.
+ *
+ * Published frames are prefixed with {@link TickStamps} unless that is
+ * disabled; the stored values never are.
+ *
+ * {@code ticker.transport} picks where frames go: the per-symbol channels, the
+ * capped {@link RedisKeys#TICKER_STREAM}, or both while api nodes move from
+ * one to the other. Every publishing thread is a producer of its own on the
+ * stream, numbering its entries from 0, so the numbers follow the order in
+ * which the thread's pipelines land.
+ */
+@Component
+public class TickerPublisher {
+
+  private static final byte[] SYMBOLS_KEY = RedisKeys.SYMBOLS.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] STREAM_KEY = RedisKeys.TICKER_STREAM.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] STREAM_SYMBOL = RedisKeys.TICKER_STREAM_SYMBOL.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] STREAM_FRAME = RedisKeys.TICKER_STREAM_FRAME.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] STREAM_PRODUCER = RedisKeys.TICKER_STREAM_PRODUCER.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] STREAM_SEQUENCE = RedisKeys.TICKER_STREAM_SEQUENCE.getBytes(StandardCharsets.UTF_8);
+
+  private final StringRedisTemplate stringRedisTemplate;
+  private final RedisSerializer<Ticker> tickerJsonSerializer;
+  private final RedisSerializer<Ticker> tickerValueSerializer;
+  private final Map<String, SymbolKeys> symbolKeys = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+  private final boolean stageStamps;
+  private final boolean pubSub;
+  private final boolean stream;
+  private final XAddOptions streamTrimming;
+  private final String instance = UUID.randomUUID().toString().substring(0, 8);
+  private final AtomicInteger producers = new AtomicInteger();
+  private final ThreadLocal<Producer> producer = ThreadLocal.withInitial(
+      () -> new Producer((instance + "-" + producers.getAndIncrement()).getBytes(StandardCharsets.UTF_8)));
+  private final Timer ingestLatency;
+
+  public TickerPublisher(StringRedisTemplate stringRedisTemplate, RedisSerializer<Ticker> tickerJsonSerializer,
+      RedisSerializer<Ticker> tickerValueSerializer, MeterRegistry meterRegistry,
+      @Value("${ticker.stage-stamps.enabled:true}") boolean stageStamps,
+      @Value("${ticker.transport:pubsub}") String transport,
+      @Value("${ticker.stream.max-length:100000}") long streamMaxLength) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.tickerJsonSerializer = tickerJsonSerializer;
+    this.tickerValueSerializer = tickerValueSerializer;
+    this.meterRegistry = meterRegistry;
+    this.stageStamps = stageStamps;
+    switch (transport) {
+      case "pubsub" -> {
+        this.pubSub = true;
+        this.stream = false;
+      }
+      case "stream" -> {
+        this.pubSub = false;
+        this.stream = true;
+      }
+      case "both" -> {
+        this.pubSub = true;
+        this.stream = true;
+      }
+      default -> throw new IllegalArgumentException("Unknown ticker.transport: " + transport);
+    }
+    // Approximate trimming lets Redis drop whole macro nodes instead of single entries
+    this.streamTrimming = XAddOptions.maxlen(streamMaxLength).approximateTrimming(true);
+    this.ingestLatency = Timer.builder("ticks.stage.latency").tag("stage", "ingest")
+        .description("Kraken receive to Redis publish")
+        .publishPercentileHistogram().register(meterRegistry);
+  }
+
+  private record SymbolKeys(byte[] key, byte[] channel, Counter published) {
+  }
+
+  private static final class Producer {
+    final byte[] id;
+    long next;
+
+    Producer(byte[] id) {
+      this.id = id;
+    }
+  }
+
+  private SymbolKeys keys(String symbol) {
+    return symbolKeys.computeIfAbsent(symbol, s -> new SymbolKeys(s.getBytes(StandardCharsets.UTF_8),
+        RedisKeys.tickerChannel(s).getBytes(StandardCharsets.UTF_8),
+        Counter.builder("ticks.published").tag("symbol", s).register(meterRegistry)));
+  }
+
+  /** Publishes one Kraken frame's tickers, received at the given epoch micros. */
+  public void publish(List<Ticker> tickers, long receivedAtMicros) {
+    byte[] updatedAt = Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8);
+    byte[][] frames = new byte[tickers.size()][];
+    byte[][] values = new byte[tickers.size()][];
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = tickerJsonSerializer.serialize(tickers.get(i));
+      values[i] = tickerValueSerializer == tickerJsonSerializer ? frames[i]
+          : tickerValueSerializer.serialize(tickers.get(i));
+    }
+    long publishedAtMicros = TickStamps.nowMicros();
+    if (stageStamps) {
+      for (int i = 0; i < frames.length; i++) {
+        frames[i] = TickStamps.stamp(frames[i], receivedAtMicros, publishedAtMicros);
+      }
+    }
+    Producer producer = stream ? this.producer.get() : null;
+    stringRedisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+      for (int i = 0; i < frames.length; i++) {
+        SymbolKeys keys = keys(tickers.get(i).symbol());
+        connection.stringCommands().set(keys.key(), values[i]);
+        // symbol registry, so readers never have to scan the keyspace
+        connection.hashCommands().hSet(SYMBOLS_KEY, keys.key(), updatedAt);
+        if (pubSub) {
+          connection.publish(keys.channel(), frames[i]);
+        }
+        if (stream) {
+          connection.streamCommands().xAdd(StreamRecords.rawBytes(Map.of(
+              STREAM_SYMBOL, keys.key(),
+              STREAM_FRAME, frames[i],
+              STREAM_PRODUCER, producer.id,
+              STREAM_SEQUENCE, Long.toString(producer.next++).getBytes(StandardCharsets.UTF_8)))
+              .withStreamKey(STREAM_KEY), streamTrimming);
+        }
+        keys.published().increment();
+      }
+      return null;
+    });
+    ingestLatency.record(publishedAtMicros - receivedAtMicros, TimeUnit.MICROSECONDS);
+  }
+}
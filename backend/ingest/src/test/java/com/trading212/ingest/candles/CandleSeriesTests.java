@@ -0,0 +1,54 @@
+package com.trading212.ingest.candles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.trading212.common.model.Candle;
+
+class CandleSeriesTests {
+
+	@Test
+	void aggregatesTicksIntoBarsAndClosesThemOnTheNextInterval() {
+		CandleSeries series = new CandleSeries(60_000, 8);
+		series.update(60_000, 10, 1);
+		series.update(70_000, 12, 2);
+		series.update(80_000, 9, 0);
+		series.update(125_000, 11, 1);
+
+		List<Candle> drained = new ArrayList<>();
+		assertThat(series.drain(drained)).isZero();
+
+		assertThat(drained).containsExactly(new Candle(60_000, 10, 12, 9, 9, 3));
+	}
+
+	@Test
+	void closesDueBarsWithoutFurtherTicks() {
+		CandleSeries series = new CandleSeries(1_000, 8);
+		series.update(1_500, 5, 0);
+		series.closeIfDue(1_999);
+
+		List<Candle> drained = new ArrayList<>();
+		series.drain(drained);
+		assertThat(drained).isEmpty();
+
+		series.closeIfDue(2_000);
+		series.drain(drained);
+		assertThat(drained).extracting(Candle::time).containsExactly(1_000L);
+	}
+
+	@Test
+	void countsBarsOverwrittenBeforeTheyWereDrained() {
+		CandleSeries series = new CandleSeries(1_000, 2);
+		for (long time = 0; time <= 4_000; time += 1_000) {
+			series.update(time, time, 0);
+		}
+
+		List<Candle> drained = new ArrayList<>();
+		assertThat(series.drain(drained)).isEqualTo(2);
+		assertThat(drained).extracting(Candle::time).containsExactly(2_000L, 3_000L);
+	}
+}
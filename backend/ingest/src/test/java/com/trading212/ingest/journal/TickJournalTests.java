@@ -0,0 +1,68 @@
+package com.trading212.ingest.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+class TickJournalTests {
+
+	private final RedisSerializer<Ticker> json = new Jackson2JsonRedisSerializer<>(new ObjectMapper(), Ticker.class);
+
+	@Test
+	void readsBackFramesAcrossSegments(@TempDir Path dir) throws Exception {
+		TickJournal journal = new TickJournal(json, true, dir, DataSize.ofBytes(256), DataSize.ofMegabytes(1),
+				Duration.ofDays(1));
+		List<Ticker> first = List.of(ticker("BTC/USD", 1), ticker("ETH/USD", 2));
+		List<Ticker> second = List.of(ticker("BTC/USD", 3));
+		for (int i = 0; i < 10; i++) {
+			journal.append(first, 1_000 + i);
+			journal.append(second, 2_000 + i);
+		}
+		journal.close();
+
+		assertThat(TickJournal.segments(dir)).hasSizeGreaterThan(1);
+		List<List<Ticker>> frames = new ArrayList<>();
+		new TickJournalReader(dir, json).read((receivedAt, tickers) -> frames.add(tickers));
+
+		assertThat(frames).hasSize(20);
+		assertThat(frames.get(0)).extracting(Ticker::symbol).containsExactly("BTC/USD", "ETH/USD");
+		assertThat(frames.get(19)).singleElement()
+				.satisfies(ticker -> assertThat(ticker.bid()).isEqualByComparingTo("3"));
+	}
+
+	@Test
+	void deletesOldestSegmentsOverTheSizeLimit(@TempDir Path dir) throws Exception {
+		TickJournal journal = new TickJournal(json, true, dir, DataSize.ofBytes(256), DataSize.ofBytes(600),
+				Duration.ofDays(1));
+		for (int i = 0; i < 50; i++) {
+			journal.append(List.of(ticker("BTC/USD", i)), i);
+		}
+		journal.close();
+
+		long total = 0;
+		for (Path segment : TickJournal.segments(dir)) {
+			total += Files.size(segment);
+		}
+		assertThat(total).isLessThanOrEqualTo(600 + 256);
+	}
+
+	private static Ticker ticker(String symbol, long price) {
+		BigDecimal p = BigDecimal.valueOf(price);
+		return new Ticker(symbol, p, BigDecimal.ONE, p.add(BigDecimal.ONE), BigDecimal.ONE, p, BigDecimal.TEN, p,
+				p, p, BigDecimal.ZERO, BigDecimal.ZERO, null);
+	}
+}
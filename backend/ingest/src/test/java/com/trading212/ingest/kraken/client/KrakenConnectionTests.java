@@ -0,0 +1,142 @@
+package com.trading212.ingest.kraken.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class KrakenConnectionTests {
+
+	private static final List<String> PAIRS = List.of("BTC/USD", "ETH/USD");
+
+	private final KrakenClient client = mock(KrakenClient.class);
+	private final WebSocketClient webSocketClient = mock(WebSocketClient.class);
+	private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+	private final WebSocketSession session = mock(WebSocketSession.class);
+	private KrakenConnection connection;
+
+	@AfterEach
+	void close() {
+		connection.close();
+	}
+
+	@Test
+	void streamsOnceEveryPairHasItsSnapshot() throws Exception {
+		WebSocketHandler handler = connect(Duration.ofMinutes(1));
+		verify(client).resync(PAIRS);
+		verify(session).sendMessage(new TextMessage(
+				"{\"method\":\"subscribe\",\"params\":{\"channel\":\"ticker\",\"symbol\":[\"BTC/USD\",\"ETH/USD\"]}}"));
+		assertThat(connection.state()).isEqualTo(KrakenConnection.State.SUBSCRIBING);
+
+		when(client.onFrame(eq("btc"), anyLong())).thenReturn(List.of(ticker("BTC/USD")));
+		when(client.onFrame(eq("eth"), anyLong())).thenReturn(List.of(ticker("ETH/USD")));
+		handler.handleMessage(session, new TextMessage("btc"));
+		handler.handleMessage(session, new TextMessage("eth"));
+
+		await().atMost(Duration.ofSeconds(5))
+				.until(() -> connection.state() == KrakenConnection.State.STREAMING);
+	}
+
+	@Test
+	void dropsASilentConnectionAndRetriesAfterAJitteredBackoff() throws Exception {
+		WebSocketHandler handler = connect(Duration.ZERO);
+		Thread.sleep(1);
+
+		connection.check();
+		// Closing the dropped session reports back, and must not schedule a second retry
+		handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+		verify(session).close();
+		ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+		ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+		verify(scheduler).schedule(retry.capture(), delay.capture(), eq(TimeUnit.MILLISECONDS));
+		assertThat(delay.getValue()).isBetween(500L, 1_000L);
+		assertThat(connection.state()).isEqualTo(KrakenConnection.State.WAITING);
+		assertThat(connection.reconnects()).isEqualTo(1);
+
+		retry.getValue().run();
+		verify(webSocketClient, times(2)).execute(any(WebSocketHandler.class), anyString());
+		assertThat(connection.state()).isEqualTo(KrakenConnection.State.CONNECTING);
+	}
+
+	@Test
+	void parsesFramesInArrivalOrderWhileTheParserIsBehind() throws Exception {
+		WebSocketHandler handler = connect(Duration.ofMinutes(1));
+		int frames = KrakenConnection.MAX_QUEUED_FRAMES + 10;
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> parsed = Collections.synchronizedList(new ArrayList<>());
+		List<String> parsedOn = Collections.synchronizedList(new ArrayList<>());
+		when(client.onFrame(anyString(), anyLong())).thenAnswer(call -> {
+			release.await();
+			parsed.add(call.getArgument(0));
+			parsedOn.add(Thread.currentThread().getName());
+			return List.of();
+		});
+
+		Thread socket = Thread.ofPlatform().name("socket").start(() -> {
+			for (int i = 0; i < frames; i++) {
+				try {
+					handler.handleMessage(session, new TextMessage(Integer.toString(i)));
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		// The socket thread waits for room rather than parsing the overflow itself
+		await().atMost(Duration.ofSeconds(5)).until(() -> socket.getState() == Thread.State.WAITING);
+		assertThat(parsed).isEmpty();
+
+		release.countDown();
+		socket.join(5_000);
+		await().atMost(Duration.ofSeconds(5)).until(() -> parsed.size() == frames);
+		assertThat(parsed).containsExactlyElementsOf(IntStream.range(0, frames).mapToObj(Integer::toString).toList());
+		assertThat(parsedOn).containsOnly("kraken-0-parse");
+	}
+
+	private WebSocketHandler connect(Duration staleAfter) throws Exception {
+		when(webSocketClient.execute(any(WebSocketHandler.class), anyString()))
+				.thenReturn(new CompletableFuture<>());
+		connection = new KrakenConnection(0, PAIRS, client, webSocketClient, new ObjectMapper(), scheduler,
+				new KrakenConnection.Settings("ws://kraken", staleAfter, Duration.ofSeconds(1), Duration.ofSeconds(30)),
+				new SimpleMeterRegistry());
+		connection.connect();
+		ArgumentCaptor<WebSocketHandler> handler = ArgumentCaptor.forClass(WebSocketHandler.class);
+		verify(webSocketClient).execute(handler.capture(), eq("ws://kraken"));
+		handler.getValue().afterConnectionEstablished(session);
+		return handler.getValue();
+	}
+
+	private static Ticker ticker(String symbol) {
+		return new Ticker(symbol, null, null, null, null, null, null, null, null, null, null, null, null);
+	}
+}
@@ -0,0 +1,45 @@
+package com.trading212.ingest.kraken.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class KrakenFrameDecoderTests {
+
+	private static final String TICKER = """
+			{"symbol":"BTC/USD","bid":97000.1,"bid_qty":0.5,"ask":97000.2,"ask_qty":1.25,"last":97000.1,
+			"volume":1234.5,"vwap":96500.3,"low":95000.0,"high":98000.0,"change":1500.1,"change_pct":1.57}""";
+
+	private final KrakenFrameDecoder decoder = new KrakenFrameDecoder(new ObjectMapper());
+
+	@Test
+	void decodesTickerUpdates() throws Exception {
+		var tickers = decoder.decodeTickers("{\"channel\":\"ticker\",\"type\":\"update\",\"data\":[" + TICKER + "]}");
+
+		assertThat(tickers).hasSize(1);
+		assertThat(tickers.get(0).symbol()).isEqualTo("BTC/USD");
+		assertThat(tickers.get(0).ask()).isEqualByComparingTo(new BigDecimal("97000.2"));
+	}
+
+	@Test
+	void decodesDataThatPrecedesTheRoutingFields() throws Exception {
+		var tickers = decoder.decodeTickers("{\"data\":[" + TICKER + "],\"type\":\"snapshot\",\"channel\":\"ticker\"}");
+
+		assertThat(tickers).extracting("symbol").containsExactly("BTC/USD");
+	}
+
+	@Test
+	void ignoresOtherChannelsAndAcks() throws Exception {
+		assertThat(decoder.decodeTickers("{\"channel\":\"heartbeat\"}")).isEmpty();
+		assertThat(decoder.decodeTickers(
+				"{\"channel\":\"status\",\"type\":\"update\",\"data\":[{\"api_version\":\"v2\",\"system\":\"online\"}]}"))
+				.isEmpty();
+		assertThat(decoder.decodeTickers(
+				"{\"method\":\"subscribe\",\"result\":{\"channel\":\"ticker\",\"symbol\":\"BTC/USD\"},\"success\":true}"))
+				.isEmpty();
+	}
+}
@@ -0,0 +1,26 @@
+package com.trading212.simulator;
+
+import java.util.Arrays;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+import com.trading212.simulator.load.LoadDriver;
+import com.trading212.simulator.load.TradeLoadDriver;
+
+@SpringBootApplication
+public class Application {
+
+	public static void main(String[] args) throws Exception {
+		// "load" and "trade-load" run a load driver against a running stack instead of starting the simulator
+		if (args.length > 0 && args[0].equals("load")) {
+			LoadDriver.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("trade-load")) {
+			TradeLoadDriver.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		SpringApplication.run(Application.class, args);
+	}
+}
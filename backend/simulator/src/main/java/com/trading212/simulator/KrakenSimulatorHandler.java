@@ -0,0 +1,188 @@
+package com.trading212.simulator;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.trading212.common.model.KrakenModel.Ticker;
+
+/**
+ * Speaks the subset of Kraken's v2 WebSocket API that ingest uses: a status
+ * message on connect, subscribe and unsubscribe to the ticker channel with
+ * per-pair acks, a snapshot per subscribed pair, and ping/pong. Updates are
+ * pushed by the {@link TickEmitter}.
+ */
+@Component
+public class KrakenSimulatorHandler extends TextWebSocketHandler {
+
+  private static final Logger log = LoggerFactory.getLogger(KrakenSimulatorHandler.class);
+
+  // Sends never block the emitter; a client that falls this far behind loses updates
+  private static final int SEND_TIME_LIMIT_MILLIS = 5_000;
+  private static final int BUFFER_SIZE_LIMIT = 4 * 1024 * 1024;
+
+  private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+  private final List<Set<WebSocketSession>> subscribers;
+  private final MarketModel marketModel;
+  private final ObjectMapper objectMapper;
+
+  public KrakenSimulatorHandler(MarketModel marketModel, ObjectMapper objectMapper) {
+    this.marketModel = marketModel;
+    this.objectMapper = objectMapper;
+    this.subscribers = new ArrayList<>(marketModel.size());
+    for (int i = 0; i < marketModel.size(); i++) {
+      subscribers.add(ConcurrentHashMap.newKeySet());
+    }
+  }
+
+  @Override
+  public void afterConnectionEstablished(@NonNull WebSocketSession session) throws IOException {
+    WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MILLIS,
+        BUFFER_SIZE_LIMIT, ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+    sessions.put(session.getId(), concurrent);
+    ObjectNode status = objectMapper.createObjectNode()
+        .put("channel", "status")
+        .put("type", "update");
+    status.putArray("data").addObject()
+        .put("api_version", "v2")
+        .put("connection_id", UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE)
+        .put("system", "online")
+        .put("version", "simulator");
+    send(concurrent, status);
+    log.info("Client connected: {}", session.getId());
+  }
+
+  @Override
+  protected void handleTextMessage(@NonNull WebSocketSession session, @NonNull TextMessage message)
+      throws IOException {
+    WebSocketSession concurrent = sessions.get(session.getId());
+    String timeIn = Instant.now().toString();
+    JsonNode request = objectMapper.readTree(message.getPayload());
+    String method = request.path("method").asText();
+    switch (method) {
+      case "subscribe", "unsubscribe" -> handleSubscription(concurrent, request, method, timeIn);
+      case "ping" -> send(concurrent, ack(request, "pong", timeIn));
+      default -> send(concurrent, error(request, method, "Method not found", timeIn));
+    }
+  }
+
+  private void handleSubscription(WebSocketSession session, JsonNode request, String method, String timeIn)
+      throws IOException {
+    JsonNode params = request.path("params");
+    if (!params.path("channel").asText().equals("ticker")) {
+      send(session, error(request, method, "Channel not supported", timeIn));
+      return;
+    }
+    boolean subscribe = method.equals("subscribe");
+    boolean snapshot = params.path("snapshot").asBoolean(true);
+    for (JsonNode symbolNode : params.path("symbol")) {
+      String symbol = symbolNode.asText();
+      int index = marketModel.indexOf(symbol);
+      if (index < 0) {
+        ObjectNode error = error(request, method, "Currency pair not supported " + symbol, timeIn);
+        send(session, error.put("symbol", symbol));
+        continue;
+      }
+      if (subscribe) {
+        subscribers.get(index).add(session);
+      } else {
+        subscribers.get(index).remove(session);
+      }
+      ObjectNode ack = ack(request, method, timeIn);
+      ack.putObject("result")
+          .put("channel", "ticker")
+          .put("snapshot", snapshot)
+          .put("symbol", symbol);
+      send(session, ack);
+      if (subscribe && snapshot) {
+        send(session, frame("snapshot", marketModel.current(index, nowMicros())));
+      }
+    }
+  }
+
+  /** Whether anyone is subscribed to the pair, so the emitter can skip idle ones. */
+  public boolean hasSubscribers(int index) {
+    return !subscribers.get(index).isEmpty();
+  }
+
+  /** Sends an update for the pair to its subscribers. */
+  public void publish(int index, Ticker ticker) throws IOException {
+    TextMessage message = new TextMessage(objectMapper.writeValueAsString(frame("update", ticker)));
+    for (WebSocketSession session : subscribers.get(index)) {
+      send(session, message);
+    }
+  }
+
+  public void heartbeat() {
+    TextMessage message = new TextMessage("{\"channel\":\"heartbeat\"}");
+    sessions.values().forEach(session -> send(session, message));
+  }
+
+  @Override
+  public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
+    WebSocketSession concurrent = sessions.remove(session.getId());
+    subscribers.forEach(set -> set.remove(concurrent));
+    log.info("Client disconnected: {} {}", session.getId(), status);
+  }
+
+  private ObjectNode frame(String type, Ticker ticker) {
+    ObjectNode frame = objectMapper.createObjectNode()
+        .put("channel", "ticker")
+        .put("type", type);
+    frame.putArray("data").addPOJO(ticker);
+    return frame;
+  }
+
+  private ObjectNode ack(JsonNode request, String method, String timeIn) {
+    ObjectNode ack = objectMapper.createObjectNode().put("method", method);
+    ack.put("success", true)
+        .put("time_in", timeIn)
+        .put("time_out", Instant.now().toString());
+    if (request.has("req_id")) {
+      ack.set("req_id", request.get("req_id"));
+    }
+    return ack;
+  }
+
+  private ObjectNode error(JsonNode request, String method, String error, String timeIn) {
+    return ack(request, method, timeIn).put("success", false).put("error", error);
+  }
+
+  private void send(WebSocketSession session, ObjectNode message) throws IOException {
+    send(session, new TextMessage(objectMapper.writeValueAsString(message)));
+  }
+
+  private void send(WebSocketSession session, TextMessage message) {
+    if (session == null || !session.isOpen()) {
+      return;
+    }
+    try {
+      session.sendMessage(message);
+    } catch (IOException | IllegalStateException e) {
+      log.debug("Send to {} failed: {}", session.getId(), e.getMessage());
+    }
+  }
+
+  static long nowMicros() {
+    Instant now = Instant.now();
+    return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+  }
+}
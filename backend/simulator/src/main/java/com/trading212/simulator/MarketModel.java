@@ -0,0 +1,149 @@
+package com.trading212.simulator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.trading212.common.model.KrakenModel.Ticker;
+
+/**
+ * Prices of the simulated pairs, each a random walk from a realistic start.
+ * The first pairs are the ones ingest subscribes to; beyond those the model
+ * invents {@code SIMnnn/USD} pairs so the symbol count can be scaled up.
+ *
+ * Every ticker carries the time it was emitted in its {@code timestamp}
+ * field, to the microsecond as Kraken sends it. Ingest and api forward it
+ * unchanged in full ticker frames, so the load driver can measure the latency
+ * of each tick from the frame alone.
+ */
+@Component
+public class MarketModel {
+
+  private static final Map<String, Double> KNOWN_PAIRS = new LinkedHashMap<>();
+
+  static {
+    KNOWN_PAIRS.put("BTC/USD", 97000.0);
+    KNOWN_PAIRS.put("USDT/USD", 1.0);
+    KNOWN_PAIRS.put("ETH/USD", 3400.0);
+    KNOWN_PAIRS.put("XRP/USD", 2.34);
+    KNOWN_PAIRS.put("ADA/USD", 0.98);
+    KNOWN_PAIRS.put("SOL/USD", 187.0);
+    KNOWN_PAIRS.put("DOGE/USD", 0.33);
+    KNOWN_PAIRS.put("DOT/USD", 7.1);
+    KNOWN_PAIRS.put("LTC/USD", 104.0);
+    KNOWN_PAIRS.put("LINK/USD", 22.4);
+    KNOWN_PAIRS.put("BCH/USD", 449.0);
+    KNOWN_PAIRS.put("XLM/USD", 0.41);
+    KNOWN_PAIRS.put("FIL/USD", 5.4);
+    KNOWN_PAIRS.put("EOS/USD", 0.8);
+    KNOWN_PAIRS.put("TRX/USD", 0.25);
+    KNOWN_PAIRS.put("ETC/USD", 27.1);
+    KNOWN_PAIRS.put("UNI/USD", 13.5);
+    KNOWN_PAIRS.put("MATIC/USD", 0.48);
+    KNOWN_PAIRS.put("AAVE/USD", 312.0);
+    KNOWN_PAIRS.put("ALGO/USD", 0.38);
+  }
+
+  // Per-tick standard deviation of the relative price move, and the bid/ask spread
+  private static final double VOLATILITY = 0.0005;
+  private static final double SPREAD = 0.0002;
+
+  private final String[] symbols;
+  private final Map<String, Integer> indexes = new HashMap<>();
+  private final double[] prices;
+  private final double[] opens;
+  private final double[] lows;
+  private final double[] highs;
+  private final double[] volumes;
+  // Traded value since the open, so vwap is notionals[i] / volumes[i]
+  private final double[] notionals;
+
+  public MarketModel(@Value("${simulator.symbols:20}") int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("simulator.symbols must be positive: " + count);
+    }
+    List<String> names = new ArrayList<>(KNOWN_PAIRS.keySet());
+    prices = new double[count];
+    for (int i = 0; i < count; i++) {
+      if (i < names.size()) {
+        prices[i] = KNOWN_PAIRS.get(names.get(i));
+      } else {
+        names.add(String.format("SIM%03d/USD", i - KNOWN_PAIRS.size()));
+        prices[i] = 1 + ThreadLocalRandom.current().nextDouble(1000);
+      }
+    }
+    symbols = names.subList(0, count).toArray(String[]::new);
+    for (int i = 0; i < count; i++) {
+      indexes.put(symbols[i], i);
+    }
+    opens = prices.clone();
+    lows = prices.clone();
+    highs = prices.clone();
+    volumes = new double[count];
+    for (int i = 0; i < count; i++) {
+      volumes[i] = 1000 + ThreadLocalRandom.current().nextDouble(1_000_000);
+    }
+    notionals = new double[count];
+    for (int i = 0; i < count; i++) {
+      notionals[i] = volumes[i] * prices[i];
+    }
+  }
+
+  public int size() {
+    return symbols.length;
+  }
+
+  public String symbol(int index) {
+    return symbols[index];
+  }
+
+  /** Index of the pair, or -1 if it is not quoted. */
+  public int indexOf(String symbol) {
+    return indexes.getOrDefault(symbol, -1);
+  }
+
+  /** Moves the pair's price one step and returns the resulting ticker. */
+  public synchronized Ticker tick(int index, long emittedMicros) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    prices[index] *= 1 + random.nextGaussian() * VOLATILITY;
+    lows[index] = Math.min(lows[index], prices[index]);
+    highs[index] = Math.max(highs[index], prices[index]);
+    double traded = random.nextDouble(10);
+    volumes[index] += traded;
+    notionals[index] += traded * prices[index];
+    return ticker(index, emittedMicros);
+  }
+
+  /** The pair's current ticker without moving it, as sent in snapshots. */
+  public synchronized Ticker current(int index, long emittedMicros) {
+    return ticker(index, emittedMicros);
+  }
+
+  private Ticker ticker(int index, long emittedMicros) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    double price = prices[index];
+    double change = price - opens[index];
+    return new Ticker(symbols[index],
+        decimal(price * (1 - SPREAD / 2)), decimal(random.nextDouble(50)),
+        decimal(price * (1 + SPREAD / 2)), decimal(random.nextDouble(50)),
+        decimal(price), decimal(volumes[index]),
+        decimal(notionals[index] / volumes[index]),
+        decimal(lows[index]), decimal(highs[index]),
+        decimal(change), decimal(change / opens[index] * 100).setScale(2, RoundingMode.HALF_UP),
+        Instant.EPOCH.plus(emittedMicros, ChronoUnit.MICROS).toString());
+  }
+
+  private static BigDecimal decimal(double value) {
+    return BigDecimal.valueOf(value).setScale(8, RoundingMode.HALF_UP);
+  }
+}
@@ -0,0 +1,129 @@
+package com.trading212.simulator;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Emits ticker updates at {@code simulator.tick-rate} per second, spread over
+ * the pairs that have subscribers, in 10 ms slots. With bursts enabled the
+ * rate is multiplied for {@code simulator.burst.duration} at the start of
+ * every {@code simulator.burst.interval}, which is how news spikes look on
+ * the real feed. A heartbeat goes to every client each second, as on Kraken.
+ */
+@Component
+public class TickEmitter {
+
+  private static final Logger log = LoggerFactory.getLogger(TickEmitter.class);
+
+  private static final long SLOT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final KrakenSimulatorHandler handler;
+  private final MarketModel marketModel;
+  private final double ticksPerSecond;
+  private final long burstIntervalNanos;
+  private final long burstDurationNanos;
+  private final double burstMultiplier;
+  private Thread worker;
+
+  public TickEmitter(KrakenSimulatorHandler handler, MarketModel marketModel,
+      @Value("${simulator.tick-rate:200}") double ticksPerSecond,
+      @Value("${simulator.burst.interval:0s}") Duration burstInterval,
+      @Value("${simulator.burst.duration:1s}") Duration burstDuration,
+      @Value("${simulator.burst.multiplier:10}") double burstMultiplier) {
+    this.handler = handler;
+    this.marketModel = marketModel;
+    this.ticksPerSecond = ticksPerSecond;
+    this.burstIntervalNanos = burstInterval.toNanos();
+    this.burstDurationNanos = burstDuration.toNanos();
+    this.burstMultiplier = burstMultiplier;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void start() {
+    worker = Thread.ofPlatform().name("sim-ticks").daemon().start(this::run);
+    log.info("Emitting {} ticks/s over {} pairs{}", ticksPerSecond, marketModel.size(),
+        burstIntervalNanos > 0 ? ", x" + burstMultiplier + " bursts every " + Duration.ofNanos(burstIntervalNanos) : "");
+  }
+
+  private void run() {
+    long start = System.nanoTime();
+    long slot = start;
+    long nextHeartbeat = start + HEARTBEAT_NANOS;
+    long nextReport = start + REPORT_NANOS;
+    long emitted = 0;
+    double owed = 0;
+    while (!Thread.currentThread().isInterrupted()) {
+      long now = System.nanoTime();
+      owed += ticksPerSecond * multiplier(now - start) * SLOT_NANOS / 1e9;
+      int ticks = (int) owed;
+      owed -= ticks;
+      for (int i = 0; i < ticks; i++) {
+        emitted += emitOne() ? 1 : 0;
+      }
+      if (now >= nextHeartbeat) {
+        handler.heartbeat();
+        nextHeartbeat += HEARTBEAT_NANOS;
+      }
+      if (now >= nextReport) {
+        log.info("Emitted {} ticks", emitted);
+        nextReport += REPORT_NANOS;
+      }
+      slot += SLOT_NANOS;
+      long sleep = slot - System.nanoTime();
+      if (sleep > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleep);
+        } catch (InterruptedException e) {
+          return;
+        }
+      } else if (-sleep > 100 * SLOT_NANOS) {
+        // Fell far behind, e.g. after a GC pause; skip the missed slots instead of bursting through them
+        slot = System.nanoTime();
+      }
+    }
+  }
+
+  private double multiplier(long elapsedNanos) {
+    if (burstIntervalNanos <= 0) {
+      return 1;
+    }
+    return elapsedNanos % burstIntervalNanos < burstDurationNanos ? burstMultiplier : 1;
+  }
+
+  /** Moves a random subscribed pair; returns {@code false} if no pair has subscribers. */
+  private boolean emitOne() {
+    int size = marketModel.size();
+    int first = ThreadLocalRandom.current().nextInt(size);
+    for (int i = 0; i < size; i++) {
+      int index = (first + i) % size;
+      if (handler.hasSubscribers(index)) {
+        try {
+          handler.publish(index, marketModel.tick(index, KrakenSimulatorHandler.nowMicros()));
+        } catch (Exception e) {
+          log.warn("Could not emit tick: {}", e.getMessage());
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @PreDestroy
+  synchronized void stop() {
+    if (worker != null) {
+      worker.interrupt();
+    }
+  }
+}
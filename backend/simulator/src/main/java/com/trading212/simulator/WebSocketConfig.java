@@ -0,0 +1,25 @@
+package com.trading212.simulator;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+  private final KrakenSimulatorHandler handler;
+
+  public WebSocketConfig(KrakenSimulatorHandler handler) {
+    this.handler = handler;
+  }
+
+  @Override
+  public void registerWebSocketHandlers(@NonNull WebSocketHandlerRegistry registry) {
+    // Same path as wss://ws.kraken.com/v2
+    registry.addHandler(handler, "/v2")
+        .setAllowedOriginPatterns("*");
+  }
+}
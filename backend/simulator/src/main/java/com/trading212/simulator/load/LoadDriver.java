@@ -0,0 +1,200 @@
+package com.trading212.simulator.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Opens many WebSocket sessions against the api, subscribes each to a set of
+ * pairs and measures how long every tick took from the simulator emitting it
+ * to the session receiving it. The emission time travels in the ticker's
+ * {@code timestamp} field (see {@code MarketModel}), so the driver must run on
+ * a host whose clock agrees with the simulator's, ideally the same one, and the
+ * sessions use the full ticker frames, which are the only ones that carry it.
+ *
+ * The first frame a session gets per pair is the api's snapshot of an older
+ * tick and is not measured.
+ *
+ * <pre>
+ * java -jar simulator.jar load --url=ws://localhost:8080/ws --sessions=2000 --duration=60s
+ *     [--topics=BTC/USD,ETH/USD] [--report-interval=10s] [--connect-batch=100]
+ * </pre>
+ */
+public final class LoadDriver {
+
+  private static final String TIMESTAMP_FIELD = "\"timestamp\":\"";
+  private static final String SYMBOL_FIELD = "\"symbol\":\"";
+  private static final List<String> DEFAULT_TOPICS = List.of("BTC/USD", "USDT/USD", "ETH/USD", "XRP/USD",
+      "ADA/USD", "SOL/USD", "DOGE/USD", "DOT/USD", "LTC/USD", "LINK/USD", "BCH/USD", "XLM/USD", "FIL/USD",
+      "EOS/USD", "TRX/USD", "ETC/USD", "UNI/USD", "MATIC/USD", "AAVE/USD", "ALGO/USD");
+
+  // Latencies in microseconds, up to a minute
+  private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 3);
+  private final Histogram total = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+  private final LongAdder received = new LongAdder();
+  private final LongAdder unmeasured = new LongAdder();
+  private final AtomicInteger open = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final URI url;
+  private final int sessions;
+  private final List<String> topics;
+  private final Duration duration;
+  private final Duration reportInterval;
+  private final int connectBatch;
+
+  private LoadDriver(Map<String, String> options) {
+    this.url = URI.create(options.getOrDefault("url", "ws://localhost:8080/ws"));
+    this.sessions = Integer.parseInt(options.getOrDefault("sessions", "1000"));
+    this.topics = options.containsKey("topics") ? List.of(options.get("topics").split(",")) : DEFAULT_TOPICS;
+    this.duration = Duration.parse("PT" + options.getOrDefault("duration", "60s"));
+    this.reportInterval = Duration.parse("PT" + options.getOrDefault("report-interval", "10s"));
+    this.connectBatch = Integer.parseInt(options.getOrDefault("connect-batch", "100"));
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value, got " + arg);
+      }
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+    new LoadDriver(options).run();
+  }
+
+  private void run() throws Exception {
+    HttpClient client = HttpClient.newHttpClient();
+    String subscribe = "{\"type\":\"subscribe\",\"topics\":[\"" + String.join("\",\"", topics) + "\"]}";
+    List<WebSocket> sockets = new ArrayList<>(sessions);
+    long connectStart = System.nanoTime();
+    for (int i = 0; i < sessions; i += connectBatch) {
+      List<CompletableFuture<WebSocket>> batch = new ArrayList<>();
+      for (int j = i; j < Math.min(sessions, i + connectBatch); j++) {
+        batch.add(client.newWebSocketBuilder().buildAsync(url, new Session())
+            .thenCompose(socket -> socket.sendText(subscribe, true))
+            .whenComplete((socket, error) -> {
+              if (error != null) {
+                failed.incrementAndGet();
+              }
+            }));
+      }
+      for (CompletableFuture<WebSocket> future : batch) {
+        try {
+          sockets.add(future.join());
+        } catch (RuntimeException e) {
+          // Counted as failed
+        }
+      }
+    }
+    System.out.printf("Connected %d of %d sessions to %s in %d ms, %d topics each%n", open.get(), sessions, url,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart), topics.size());
+
+    recorder.reset();
+    long end = System.nanoTime() + duration.toNanos();
+    Histogram interval = null;
+    while (System.nanoTime() < end) {
+      Thread.sleep(Math.max(1, Math.min(reportInterval.toMillis(), TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+      interval = recorder.getIntervalHistogram(interval);
+      total.add(interval);
+      report("interval", interval, reportInterval);
+    }
+    report("total", total, duration);
+    System.out.printf("sessions open %d, failed %d, ticker frames %d of which %d snapshots not measured%n",
+        open.get(), failed.get(), received.sum(), unmeasured.sum());
+
+    for (WebSocket socket : sockets) {
+      socket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+    }
+  }
+
+  private void report(String label, Histogram histogram, Duration over) {
+    System.out.printf("%-8s %9d ticks %9.0f/s  p50 %8.3f  p90 %8.3f  p99 %8.3f  p99.9 %8.3f  max %8.3f ms%n",
+        label, histogram.getTotalCount(), histogram.getTotalCount() / (over.toMillis() / 1000.0),
+        millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+        millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+        millis(histogram.getMaxValue()));
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  private static long nowMicros() {
+    Instant now = Instant.now();
+    return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+  }
+
+  /** Callbacks for one session run one at a time, so its state needs no locking. */
+  private final class Session implements WebSocket.Listener {
+
+    private final StringBuilder partial = new StringBuilder();
+    private final Set<String> snapshotted = new HashSet<>();
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+      open.incrementAndGet();
+      webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+      long receivedAt = nowMicros();
+      partial.append(data);
+      if (last) {
+        measure(partial, receivedAt);
+        partial.setLength(0);
+      }
+      webSocket.request(1);
+      return null;
+    }
+
+    private void measure(CharSequence frame, long receivedAt) {
+      String text = frame.toString();
+      int timestamp = text.indexOf(TIMESTAMP_FIELD);
+      int symbol = text.indexOf(SYMBOL_FIELD);
+      if (timestamp < 0 || symbol < 0) {
+        // Portfolio pushes and other frames carry no emission time
+        return;
+      }
+      received.increment();
+      int pairStart = symbol + SYMBOL_FIELD.length();
+      String pair = text.substring(pairStart, text.indexOf('"', pairStart));
+      if (snapshotted.add(pair)) {
+        unmeasured.increment();
+        return;
+      }
+      int start = timestamp + TIMESTAMP_FIELD.length();
+      Instant emitted = Instant.parse(text.substring(start, text.indexOf('"', start)));
+      long emittedAt = emitted.getEpochSecond() * 1_000_000 + emitted.getNano() / 1_000;
+      recorder.recordValue(Math.max(0, Math.min(receivedAt - emittedAt, TimeUnit.MINUTES.toMicros(1))));
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+      open.decrementAndGet();
+      return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+      open.decrementAndGet();
+      failed.incrementAndGet();
+    }
+  }
+}
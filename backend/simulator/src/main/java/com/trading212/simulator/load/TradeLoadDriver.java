@@ -0,0 +1,173 @@
+package com.trading212.simulator.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Runs closed-loop trade clients against the api's REST endpoints. Each client
+ * alternately buys and sells a small quantity for one of a pool of load-test
+ * users. Latency is recorded for filled orders only and every response is
+ * counted by status, so the api's thread and database modes can be compared
+ * on throughput, tail latency and how many requests were turned away with 503.
+ *
+ * Users named {@code load-<n>} are created on first use and reset before
+ * every run; they need a live price for the symbol.
+ *
+ * <pre>
+ * java -jar simulator.jar trade-load --url=http://localhost:8080 --clients=500 --duration=60s
+ *     [--users=100] [--symbol=BTC/USD] [--quantity=0.0001] [--report-interval=10s]
+ * </pre>
+ */
+public final class TradeLoadDriver {
+
+  private static final Pattern USER = Pattern.compile("\\{[^}]*\"id\":(\\d+)[^}]*\"username\":\"(load-\\d+)\"");
+
+  // Latencies in microseconds, up to a minute
+  private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 3);
+  private final Histogram total = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+  private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+  private final LongAdder failures = new LongAdder();
+  private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(5)).build();
+  private final URI url;
+  private final int clients;
+  private final int users;
+  private final String symbol;
+  private final String quantity;
+  private final Duration duration;
+  private final Duration reportInterval;
+  private volatile boolean running = true;
+
+  private TradeLoadDriver(Map<String, String> options) {
+    this.url = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+    this.clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+    this.users = Integer.parseInt(options.getOrDefault("users", "100"));
+    this.symbol = options.getOrDefault("symbol", "BTC/USD");
+    this.quantity = options.getOrDefault("quantity", "0.0001");
+    this.duration = Duration.parse("PT" + options.getOrDefault("duration", "60s"));
+    this.reportInterval = Duration.parse("PT" + options.getOrDefault("report-interval", "10s"));
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value, got " + arg);
+      }
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+    new TradeLoadDriver(options).run();
+  }
+
+  private void run() throws Exception {
+    List<Integer> userIds = prepareUsers();
+    System.out.printf("Running %d clients over %d users against %s for %s%n", clients, userIds.size(), url,
+        duration);
+
+    recorder.reset();
+    try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < clients; i++) {
+        int userId = userIds.get(i % userIds.size());
+        workers.execute(() -> trade(userId));
+      }
+      long end = System.nanoTime() + duration.toNanos();
+      Histogram interval = null;
+      while (System.nanoTime() < end) {
+        Thread.sleep(Math.max(1, Math.min(reportInterval.toMillis(),
+            TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        report("interval", interval, reportInterval);
+      }
+      running = false;
+    }
+    report("total", total, duration);
+    System.out.printf("responses by status %s, transport failures %d%n", new TreeMap<>(statuses),
+        failures.sum());
+  }
+
+  private List<Integer> prepareUsers() throws Exception {
+    Map<String, Integer> existing = new HashMap<>();
+    Matcher matcher = USER.matcher(send(HttpRequest.newBuilder(url.resolve("/api/v1/users")).GET()).body());
+    while (matcher.find()) {
+      existing.put(matcher.group(2), Integer.parseInt(matcher.group(1)));
+    }
+    List<Integer> ids = new ArrayList<>(users);
+    for (int i = 0; i < users; i++) {
+      String name = "load-" + i;
+      Integer id = existing.get(name);
+      if (id == null) {
+        Matcher created = Pattern.compile("\"id\":(\\d+)").matcher(send(post("/api/v1/users",
+            "{\"username\":\"" + name + "\"}")).body());
+        if (!created.find()) {
+          throw new IllegalStateException("Could not create user " + name);
+        }
+        id = Integer.parseInt(created.group(1));
+      }
+      send(post("/api/v1/users/" + id + "/reset", ""));
+      ids.add(id);
+    }
+    return ids;
+  }
+
+  /** One closed-loop client: the next order goes out as soon as the previous one is answered. */
+  private void trade(int userId) {
+    String body = "{\"userId\":" + userId + ",\"symbol\":\"" + symbol + "\",\"quantity\":" + quantity + "}";
+    boolean buy = true;
+    while (running) {
+      long start = System.nanoTime();
+      try {
+        HttpResponse<String> response = send(post(buy ? "/api/v1/trade/buy" : "/api/v1/trade/sell", body));
+        statuses.computeIfAbsent(response.statusCode(), _ -> new LongAdder()).increment();
+        if (response.statusCode() == 200) {
+          recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start),
+              TimeUnit.MINUTES.toMicros(1)));
+          buy = !buy;
+        } else if (response.statusCode() == 503) {
+          // Honour the api's back-off rather than hammering it while it sheds load
+          String retryAfter = response.headers().firstValue("Retry-After").orElse("1");
+          Thread.sleep(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter)));
+        }
+      } catch (InterruptedException e) {
+        return;
+      } catch (Exception e) {
+        failures.increment();
+      }
+    }
+  }
+
+  private HttpRequest.Builder post(String path, String json) {
+    return HttpRequest.newBuilder(url.resolve(path)).header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json));
+  }
+
+  private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+    return client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private void report(String label, Histogram histogram, Duration over) {
+    System.out.printf("%-8s %9d filled %8.0f/s  p50 %8.3f  p90 %8.3f  p99 %8.3f  p99.9 %8.3f  max %8.3f ms%n",
+        label, histogram.getTotalCount(), histogram.getTotalCount() / (over.toMillis() / 1000.0),
+        histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+        histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+        histogram.getMaxValue() / 1000.0);
+  }
+}